@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.Random;
+
+import entity.Bullet;
+import entity.Enemy;
+import simulation.World;
+
+/**
+ * Builds the worlds the benchmarks run on.
+ */
+final class BenchmarkWorlds {
+    private static final int ORIGINAL_TILE_SIZE = 16;
+    private static final int SCALE = 2;
+    private static final int MAX_COLS = 21;
+    private static final int MAX_ROWS = 21;
+    private static final int TICKS_PER_SECOND = 60;
+    private static final long SEED = 42;
+
+    private BenchmarkWorlds() {
+    }
+
+    /**
+     * This method is responsible for building a world with the given number of
+     * enemies spread over the whole map and the given number of bullets in
+     * flight.
+     * The player cannot die, so the world can be updated for as long as a
+     * benchmark iteration lasts.
+     *
+     * @param enemyCount  The number of enemies.
+     * @param bulletCount The number of bullets.
+     * @return The new world.
+     */
+    static World create(int enemyCount, int bulletCount) {
+        World world = new World(ORIGINAL_TILE_SIZE, SCALE, MAX_COLS, MAX_ROWS, TICKS_PER_SECOND);
+        world.getPlayer().setHealth(Float.MAX_VALUE);
+        Random random = new Random(SEED);
+        for (int i = 0; i < enemyCount; i++) {
+            world.spawnEnemy();
+            Enemy enemy = world.getEnemies().get(i);
+            enemy.setX(random.nextFloat() * world.getWidth());
+            enemy.setY(random.nextFloat() * world.getHeight());
+            enemy.updateHitboxPosition();
+            world.getEnemyGrid().update(enemy);
+        }
+        List<Bullet> bullets = world.getPlayer().getBullets();
+        for (int i = 0; i < bulletCount && enemyCount > 0; i++) {
+            Enemy target = world.getEnemies().get(random.nextInt(enemyCount));
+            Bullet bullet = new Bullet(world, target);
+            bullet.setId(world.nextEntityId());
+            bullets.add(bullet);
+        }
+        return world;
+    }
+
+    /**
+     * This method is responsible for placing towers on tiles picked at random,
+     * away from the player.
+     *
+     * @param world      The world to place the towers in.
+     * @param towerCount The number of towers, at most the number of free tiles.
+     */
+    static void placeTowers(World world, int towerCount) {
+        Random random = new Random(SEED);
+        int cols = world.getWidth() / world.getTileSize();
+        int rows = world.getHeight() / world.getTileSize();
+        while (world.getTowers().size() < towerCount) {
+            world.addTower(random.nextInt(cols), random.nextInt(rows));
+        }
+    }
+}
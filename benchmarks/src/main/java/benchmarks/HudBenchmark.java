@@ -0,0 +1,97 @@
+package benchmarks;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.GamePanel;
+import render.GlyphAtlas;
+import render.TextBuffer;
+import render.TextLine;
+
+/**
+ * Benchmarks drawing the FPS counters of the HUD into an offscreen image, as
+ * in one frame at 60 frames per second, so the counters change every 60th
+ * invocation: concatenated and drawn with Graphics2D.drawString, as the HUD
+ * used to be drawn, written into a TextBuffer and drawn glyph by glyph from
+ * the atlas, and drawn through TextLines, as the HUD is drawn now. The GC
+ * profiler of the BenchmarkRunner shows the allocation of each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Didletower.log.level=OFF" })
+public class HudBenchmark {
+    private static final int X = 10;
+    private static final int Y = 20;
+    private static final int FRAMES_PER_SECOND = 60;
+
+    private GlyphAtlas atlas;
+    private TextLine fpsLine;
+    private TextLine overshootLine;
+    private TextBuffer text;
+    private BufferedImage frame;
+    private Graphics2D g2d;
+    private long frames;
+
+    @Setup
+    public void setUp() {
+        GamePanel gamePanel = new GamePanel();
+        atlas = gamePanel.getHudAtlas();
+        fpsLine = new TextLine(atlas);
+        overshootLine = new TextLine(atlas);
+        text = new TextBuffer(64);
+        frame = new BufferedImage(gamePanel.getScreenWidth(), gamePanel.getScreenHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        g2d = frame.createGraphics();
+        g2d.setColor(Color.WHITE);
+        g2d.setFont(new Font(Font.DIALOG, Font.PLAIN, 12));
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage drawString() {
+        long second = frames++ / FRAMES_PER_SECOND;
+        g2d.drawString("FPS: " + second, X, Y);
+        g2d.drawString("Overshoot: " + second + " us avg, " + second * 3 + " us max", X, Y * 2);
+        return frame;
+    }
+
+    @Benchmark
+    public BufferedImage drawAtlas() {
+        long second = frames++ / FRAMES_PER_SECOND;
+        atlas.draw(g2d, text.clear().append("FPS: ").append(second), X, Y);
+        atlas.draw(g2d, text.clear().append("Overshoot: ").append(second).append(" us avg, ")
+                .append(second * 3).append(" us max"), X, Y * 2);
+        return frame;
+    }
+
+    @Benchmark
+    public BufferedImage drawLines() {
+        long second = frames++ / FRAMES_PER_SECOND;
+        fpsLine.draw(g2d, text.clear().append("FPS: ").append(second), X, Y);
+        overshootLine.draw(g2d, text.clear().append("Overshoot: ").append(second).append(" us avg, ")
+                .append(second * 3).append(" us max"), X, Y * 2);
+        return frame;
+    }
+}
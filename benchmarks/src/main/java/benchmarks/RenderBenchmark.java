@@ -0,0 +1,119 @@
+package benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import main.GamePanel;
+import render.Backbuffer;
+import render.SpriteBlitter;
+import render.WorldRenderer;
+import simulation.RenderSnapshot;
+import simulation.World;
+import tiles.TileManager;
+
+/**
+ * Benchmarks drawing a frame into an offscreen image, so it runs without a
+ * display: the tile map, the entities of a snapshot through Graphics2D or the
+ * SpriteBlitter, the whole scene at full resolution or at native resolution
+ * with one upscale, and writing the snapshot itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Didletower.log.level=OFF" })
+public class RenderBenchmark {
+
+    @Param({ "100", "1000", "10000", "50000" })
+    public int enemyCount;
+
+    private World world;
+    private TileManager tileManager;
+    private WorldRenderer worldRenderer;
+    private RenderSnapshot snapshot;
+    private BufferedImage frame;
+    private Backbuffer backbuffer;
+    private SpriteBlitter spriteBlitter;
+    private Graphics2D g2d;
+
+    @Setup
+    public void setUp() {
+        GamePanel gamePanel = new GamePanel();
+        tileManager = gamePanel.getTileManager();
+        world = BenchmarkWorlds.create(enemyCount, 0);
+        worldRenderer = new WorldRenderer(world.getTileSize());
+        snapshot = new RenderSnapshot();
+        world.writeSnapshot(snapshot);
+        frame = new BufferedImage(gamePanel.getScreenWidth(), gamePanel.getScreenHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        g2d = frame.createGraphics();
+        backbuffer = new Backbuffer(frame.getWidth(), frame.getHeight(), gamePanel.getScale());
+        spriteBlitter = new SpriteBlitter(worldRenderer.getSprites(), worldRenderer.getTileSize());
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2d.dispose();
+    }
+
+    // TileManager.draw
+    @Benchmark
+    public BufferedImage drawTiles() {
+        tileManager.draw(g2d, 0, 0, frame.getWidth(), frame.getHeight());
+        return frame;
+    }
+
+    @Benchmark
+    public BufferedImage drawEntities() {
+        worldRenderer.draw(g2d, snapshot);
+        return frame;
+    }
+
+    // The entities written into the pixels of the frame, on the calling thread
+    @Benchmark
+    public BufferedImage drawEntitiesSoftware() {
+        spriteBlitter.draw(frame, snapshot, 0, 0, 1);
+        return frame;
+    }
+
+    // The scene drawn straight into the frame, every sprite scaled
+    @Benchmark
+    public BufferedImage drawScene() {
+        tileManager.draw(g2d, 0, 0, frame.getWidth(), frame.getHeight());
+        worldRenderer.draw(g2d, snapshot);
+        return frame;
+    }
+
+    // The scene drawn into the backbuffer at native resolution, then upscaled once
+    @Benchmark
+    public BufferedImage drawSceneUpscaled() {
+        Graphics2D scene = backbuffer.begin(Color.BLACK);
+        tileManager.draw(scene, 0, 0, frame.getWidth(), frame.getHeight());
+        worldRenderer.draw(scene, snapshot);
+        scene.dispose();
+        backbuffer.present(g2d);
+        return frame;
+    }
+
+    @Benchmark
+    public RenderSnapshot writeSnapshot() {
+        world.writeSnapshot(snapshot);
+        return snapshot;
+    }
+}
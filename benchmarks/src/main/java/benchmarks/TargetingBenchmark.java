@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Bullet;
+import entity.Tower;
+import simulation.World;
+
+/**
+ * Benchmarks the target assignment of the player and the towers, with every
+ * shooter ready to fire.
+ * Each invocation makes every shooter ready, assigns the targets, and then
+ * takes back the bullets it fired, so every invocation does the same work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Didletower.log.level=OFF" })
+public class TargetingBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int enemyCount;
+
+    @Param({ "1", "50", "200" })
+    public int towerCount;
+
+    private World world;
+    private List<Tower> towers;
+    private List<Bullet> bullets;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        world = BenchmarkWorlds.create(enemyCount, 0);
+        BenchmarkWorlds.placeTowers(world, towerCount);
+        towers = world.getTowers();
+        bullets = world.getPlayer().getBullets();
+    }
+
+    // TargetingSystem.assign, the targeting phase of World.update
+    @Benchmark
+    public List<Bullet> assign() {
+        long tick = world.getTick();
+        world.getPlayer().setAttackReadyTick(tick);
+        for (int i = 0; i < towers.size(); i++) {
+            towers.get(i).setAttackReadyTick(tick);
+        }
+        world.getTargeting().assign();
+        for (int i = bullets.size() - 1; i >= 0; i--) {
+            Bullet bullet = bullets.remove(i);
+            bullet.getEnemy().setCommittedDamage(0);
+            world.getBulletPool().release(bullet);
+        }
+        return bullets;
+    }
+}
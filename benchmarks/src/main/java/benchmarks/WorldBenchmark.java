@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import entity.Bullet;
+import entity.Enemy;
+import entity.Player;
+import simulation.SaveState;
+import simulation.World;
+
+/**
+ * Benchmarks the simulation hot paths: a whole world update, the nearest enemy
+ * query of the spatial grid, enemy movement, bullet movement and the projectile
+ * system.
+ * Every benchmark runs on a world built before every iteration. Moving the
+ * enemies and the bullets does the same work wherever they are, so those
+ * benchmarks use the world as it goes. Ticking and the projectile system spawn,
+ * kill and remove entities, so those benchmarks restore the world from a save
+ * state taken at the start of the iteration and then run a batch of BATCH_TICKS
+ * calls, and each call is reported as one operation. The restore reuses the
+ * entities through the pools, and its cost is spread over the batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Didletower.log.level=OFF" })
+public class WorldBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int enemyCount;
+
+    @Param({ "0", "100", "1000" })
+    public int bulletCount;
+
+    // The number of ticks or projectile updates between two restores of the
+    // world, one second of game time
+    private static final int BATCH_TICKS = 60;
+    // Room in the pools for the enemies spawned and the bullets fired during a
+    // batch, on top of the ones the restore releases
+    private static final int POOL_HEADROOM = 1024;
+
+    private World world;
+    private Player player;
+    private List<Enemy> enemies;
+    private List<Bullet> bullets;
+    private SaveState start;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        world = BenchmarkWorlds.create(enemyCount, bulletCount);
+        world.setPoolCapacity(enemyCount + POOL_HEADROOM, bulletCount + POOL_HEADROOM);
+        player = world.getPlayer();
+        enemies = world.getEnemies();
+        bullets = player.getBullets();
+        start = new SaveState();
+        world.writeSaveState(start);
+    }
+
+    // World.tick, the former GamePanel.update, with the cooldowns and spawning
+    @Benchmark
+    @OperationsPerInvocation(BATCH_TICKS)
+    public World update() {
+        world.readSaveState(start);
+        for (int i = 0; i < BATCH_TICKS; i++) {
+            world.tick();
+        }
+        return world;
+    }
+
+    // The nearest enemy query of the spatial grid
+    @Benchmark
+    public Enemy closestEnemy() {
+        return world.getEnemyGrid().nearest(player.getX(), player.getY(), player.getAttackRadius());
+    }
+
+    // The linear scan Player.getClosestEnemy used before the spatial grid
+    @Benchmark
+    public Enemy closestEnemyLinearScan() {
+        Enemy closestEnemy = null;
+        double closestDistance = Double.MAX_VALUE;
+        for (Enemy enemy : enemies) {
+            double dx = enemy.getX() - player.getX();
+            double dy = enemy.getY() - player.getY();
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            if (distance < closestDistance) {
+                closestEnemy = enemy;
+                closestDistance = distance;
+            }
+        }
+        return closestEnemy;
+    }
+
+    @Benchmark
+    public List<Enemy> enemyMoveToPlayer() {
+        for (int i = 0; i < enemies.size(); i++) {
+            enemies.get(i).moveToPlayer();
+        }
+        return enemies;
+    }
+
+    @Benchmark
+    public List<Bullet> bulletMoveToTarget() {
+        for (int i = 0; i < bullets.size(); i++) {
+            bullets.get(i).moveToTarget();
+        }
+        return bullets;
+    }
+
+    // ProjectileSystem.update, the bullet phase of World.update
+    @Benchmark
+    @OperationsPerInvocation(BATCH_TICKS)
+    public List<Bullet> projectiles() {
+        world.readSaveState(start);
+        for (int i = 0; i < BATCH_TICKS; i++) {
+            world.getProjectiles().update(bullets);
+        }
+        return bullets;
+    }
+}
@@ -0,0 +1,271 @@
+package diagnostics;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A log for the game thread that never formats text or takes a lock.
+ * Logging an event writes a fixed-size record (time, event, entity id, value)
+ * into a preallocated ring buffer of longs. A background thread drains the
+ * ring, formats the records and prints them. If the ring is full the record is
+ * dropped and counted instead of waiting for the writer.
+ *
+ * Only one thread may log (the game thread). Events can be filtered by level
+ * and by category; filtered events cost a couple of array reads.
+ *
+ * The default log is configured with the system properties
+ * idletower.log.level (DEBUG, INFO, WARN or OFF, default INFO) and
+ * idletower.log.categories (a comma separated list, default all).
+ */
+public class EventLog {
+    public enum Level {
+        DEBUG, INFO, WARN, OFF
+    }
+
+    public enum Category {
+        WORLD, PLAYER, ENEMY, BULLET
+    }
+
+    public enum Event {
+        ENEMY_REMOVED(Level.INFO, Category.ENEMY, "Enemy removed", false),
+        BULLET_REMOVED(Level.DEBUG, Category.BULLET, "Bullet removed", false),
+        BULLET_HIT(Level.DEBUG, Category.BULLET, "Colliding with enemy", false),
+        ENEMY_HEALTH(Level.DEBUG, Category.ENEMY, "Enemy health: ", true),
+        PLAYER_HEALTH(Level.INFO, Category.PLAYER, "Player health: ", true),
+        GAME_OVER(Level.WARN, Category.WORLD, "Game over", false),
+        OFFLINE_TICKS(Level.INFO, Category.WORLD, "Offline ticks: ", true),
+        OFFLINE_ENEMIES_KILLED(Level.INFO, Category.WORLD, "Offline enemies killed: ", true),
+        OFFLINE_DAMAGE_TAKEN(Level.INFO, Category.WORLD, "Offline damage taken: ", true);
+
+        private final Level level;
+        private final Category category;
+        private final String message;
+        private final boolean hasValue;
+
+        Event(Level level, Category category, String message, boolean hasValue) {
+            this.level = level;
+            this.category = category;
+            this.message = message;
+            this.hasValue = hasValue;
+        }
+
+        public Level getLevel() { return level; }
+
+        public Category getCategory() { return category; }
+    }
+
+    private static final int RECORD_LONGS = 4;
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+    private static final long DRAIN_INTERVAL = 5_000_000L;
+    private static final Event[] EVENTS = Event.values();
+
+    private static final EventLog DEFAULT = createDefault();
+
+    // Ring buffer
+    private final long[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Filters
+    private final boolean[] eventEnabled = new boolean[EVENTS.length];
+    private final boolean[] categoryEnabled = new boolean[Category.values().length];
+    private volatile Level level = Level.INFO;
+
+    // Output
+    private final PrintStream out;
+    private final StringBuilder line = new StringBuilder();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Constructor for the EventLog class. The log does not drain itself until
+     * start is called.
+     *
+     * @param capacity The number of records the ring holds, rounded up to a
+     *                 power of two.
+     * @param out      Where the drained records are printed.
+     */
+    public EventLog(int capacity, PrintStream out) {
+        int records = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new long[records * RECORD_LONGS];
+        this.mask = records - 1;
+        this.out = out;
+        for (Category category : Category.values()) {
+            categoryEnabled[category.ordinal()] = true;
+        }
+        updateFilters();
+    }
+
+    // Creates the shared log from the system properties. A property that cannot
+    // be parsed is reported on stderr and the default is kept, since failing
+    // here would fail the initialization of every class that logs.
+    private static EventLog createDefault() {
+        EventLog log = new EventLog(DEFAULT_CAPACITY, System.out);
+        String level = System.getProperty("idletower.log.level");
+        if (level != null) {
+            try {
+                log.setLevel(Level.valueOf(level.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown idletower.log.level " + level + ", logging at " + log.getLevel());
+            }
+        }
+        String categories = System.getProperty("idletower.log.categories");
+        if (categories != null) {
+            try {
+                boolean[] enabled = new boolean[Category.values().length];
+                for (String name : categories.split(",")) {
+                    if (!name.isBlank()) {
+                        enabled[Category.valueOf(name.trim().toUpperCase()).ordinal()] = true;
+                    }
+                }
+                for (Category category : Category.values()) {
+                    log.setCategoryEnabled(category, enabled[category.ordinal()]);
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown category in idletower.log.categories " + categories
+                        + ", logging all categories");
+            }
+        }
+        log.start();
+        return log;
+    }
+
+    // Returns the log shared by the game
+    public static EventLog get() {
+        return DEFAULT;
+    }
+
+    // Logs an event without a value to the shared log
+    public static void log(Event event, long entityId) {
+        DEFAULT.write(event, entityId, 0);
+    }
+
+    // Logs an event with a value to the shared log
+    public static void log(Event event, long entityId, float value) {
+        DEFAULT.write(event, entityId, value);
+    }
+
+    /**
+     * This method is responsible for starting the background thread that drains
+     * the ring, and for draining whatever is left when the JVM exits.
+     */
+    public void start() {
+        Thread drainer = new Thread(() -> {
+            while (true) {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(DRAIN_INTERVAL);
+                }
+            }
+        }, "EventLog");
+        drainer.setDaemon(true);
+        drainer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "EventLog flush"));
+    }
+
+    // Returns true if the event passes the level and category filters
+    public boolean isEnabled(Event event) {
+        return eventEnabled[event.ordinal()];
+    }
+
+    /**
+     * This method is responsible for appending a record to the ring.
+     * It does not allocate and never blocks; if the ring is full the record is
+     * dropped.
+     *
+     * @param event    The event that happened.
+     * @param entityId The id of the entity involved, or 0.
+     * @param value    A value attached to the event, like a health.
+     */
+    public void write(Event event, long entityId, float value) {
+        if (!eventEnabled[event.ordinal()]) {
+            return;
+        }
+        long position = head.get();
+        if (position - tail.get() > mask) {
+            dropped.incrementAndGet();
+            return;
+        }
+        int index = (int) (position & mask) * RECORD_LONGS;
+        ring[index] = System.nanoTime();
+        ring[index + 1] = event.ordinal();
+        ring[index + 2] = entityId;
+        ring[index + 3] = Float.floatToRawIntBits(value);
+        head.lazySet(position + 1);
+    }
+
+    /**
+     * This method is responsible for printing every record written so far.
+     * It is called by the background thread, and can also be called to flush the
+     * log, e.g. before exiting.
+     *
+     * @return The number of records printed.
+     */
+    public synchronized int drain() {
+        long position = tail.get();
+        long end = head.get();
+        if (position == end) {
+            return 0;
+        }
+        int count = 0;
+        line.setLength(0);
+        for (; position < end; position++) {
+            int index = (int) (position & mask) * RECORD_LONGS;
+            format(ring[index], EVENTS[(int) ring[index + 1]], ring[index + 2],
+                    Float.intBitsToFloat((int) ring[index + 3]));
+            count++;
+        }
+        tail.lazySet(end);
+        out.print(line);
+        out.flush();
+        return count;
+    }
+
+    private void format(long time, Event event, long entityId, float value) {
+        line.append('[').append((time - startTime) / 1_000_000L).append(" ms] ");
+        line.append(event.level).append(' ').append(event.category).append(' ');
+        line.append(event.message);
+        if (event.hasValue) {
+            line.append(value);
+        }
+        if (entityId != 0) {
+            line.append(" (id ").append(entityId).append(')');
+        }
+        line.append(System.lineSeparator());
+    }
+
+    // Sets the lowest level that is logged
+    public void setLevel(Level level) {
+        this.level = level;
+        updateFilters();
+    }
+
+    // Returns the lowest level that is logged
+    public Level getLevel() {
+        return level;
+    }
+
+    // Enables or disables every event of a category
+    public void setCategoryEnabled(Category category, boolean enabled) {
+        categoryEnabled[category.ordinal()] = enabled;
+        updateFilters();
+    }
+
+    // Returns true if the events of the category are logged
+    public boolean isCategoryEnabled(Category category) {
+        return categoryEnabled[category.ordinal()];
+    }
+
+    // Returns the number of records dropped because the ring was full
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void updateFilters() {
+        for (Event event : EVENTS) {
+            eventEnabled[event.ordinal()] = level != Level.OFF && event.level.compareTo(level) >= 0
+                    && categoryEnabled[event.category.ordinal()];
+        }
+    }
+}
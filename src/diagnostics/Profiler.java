@@ -0,0 +1,198 @@
+package diagnostics;
+
+import java.util.Arrays;
+
+/**
+ * Times every phase of a frame and keeps a rolling latency histogram per phase.
+ * A phase is timed by taking System.nanoTime() before and after it and passing
+ * both to record. Recording only increments counters, so it does not allocate.
+ *
+ * Each phase keeps a histogram of the last second, made of a few shorter
+ * windows; when the oldest window expires it is cleared and reused. Percentiles
+ * are read from the buckets, so they are exact to within one bucket (about
+ * 12%).
+ *
+ * A phase must always be recorded from the same thread. Reading the statistics
+ * from another thread is safe but may see a window while it is being updated.
+ */
+public class Profiler {
+    public enum Phase {
+        PLAYER_UPDATE("Player update"),
+        TARGETING("Targeting"),
+        ENEMY_UPDATE("Enemy update"),
+        BULLET_UPDATE("Bullet update"),
+        SPAWNING("Spawning"),
+        TILE_DRAW("Tile draw"),
+        ENTITY_DRAW("Entity draw"),
+        UPSCALE("Upscale"),
+        PRESENT("Present");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    // Histogram layout: values below 8 ns get their own bucket, above that every
+    // power of two is split into 8 buckets
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (40 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // Rolling window: WINDOWS windows of WINDOW_LENGTH nanoseconds each
+    private static final int WINDOWS = 5;
+    private static final long WINDOW_LENGTH = 200_000_000L;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final RollingHistogram[] histograms = new RollingHistogram[PHASES.length];
+    private volatile boolean isEnabled = true;
+
+    public Profiler() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new RollingHistogram();
+        }
+    }
+
+    /**
+     * This method is responsible for recording how long a phase took.
+     *
+     * @param phase The phase that was timed.
+     * @param start System.nanoTime() before the phase.
+     * @param end   System.nanoTime() after the phase.
+     */
+    public void record(Phase phase, long start, long end) {
+        if (isEnabled) {
+            histograms[phase.ordinal()].record(end - start, end);
+        }
+    }
+
+    // Enables or disables recording
+    public void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    // Returns true if phases are being recorded
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * This method is responsible for returning a percentile of the durations of a
+     * phase over the last second.
+     *
+     * @param phase      The phase.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The duration in nanoseconds, or 0 if the phase was not recorded.
+     */
+    public long getPercentile(Phase phase, double percentile) {
+        return histograms[phase.ordinal()].percentile(percentile, System.nanoTime());
+    }
+
+    // Returns the longest duration of a phase over the last second, in
+    // nanoseconds
+    public long getMax(Phase phase) {
+        return histograms[phase.ordinal()].max(System.nanoTime());
+    }
+
+    // Returns the number of times a phase was recorded over the last second
+    public long getCount(Phase phase) {
+        return histograms[phase.ordinal()].count(System.nanoTime());
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(value);
+        int shift = octave - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, SUB_BUCKETS + shift * SUB_BUCKETS + subBucket);
+    }
+
+    // Returns the highest value that falls into a bucket
+    private static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * A histogram of the durations of one phase over the last WINDOWS windows.
+     */
+    private static class RollingHistogram {
+        private final long[][] counts = new long[WINDOWS][BUCKETS];
+        private final long[] totals = new long[WINDOWS];
+        private final long[] maxima = new long[WINDOWS];
+        private final long[] windowStarts = new long[WINDOWS];
+        private int current = 0;
+
+        RollingHistogram() {
+            windowStarts[current] = System.nanoTime();
+        }
+
+        void record(long duration, long now) {
+            if (now - windowStarts[current] >= WINDOW_LENGTH) {
+                current = (current + 1) % WINDOWS;
+                Arrays.fill(counts[current], 0);
+                totals[current] = 0;
+                maxima[current] = 0;
+                windowStarts[current] = now;
+            }
+            counts[current][bucketOf(duration)]++;
+            totals[current]++;
+            maxima[current] = Math.max(maxima[current], duration);
+        }
+
+        // Returns true if the window holds data from the last WINDOWS windows
+        private boolean isLive(int window, long now) {
+            return now - windowStarts[window] < WINDOWS * WINDOW_LENGTH;
+        }
+
+        long count(long now) {
+            long count = 0;
+            for (int w = 0; w < WINDOWS; w++) {
+                if (isLive(w, now)) {
+                    count += totals[w];
+                }
+            }
+            return count;
+        }
+
+        long max(long now) {
+            long max = 0;
+            for (int w = 0; w < WINDOWS; w++) {
+                if (isLive(w, now)) {
+                    max = Math.max(max, maxima[w]);
+                }
+            }
+            return max;
+        }
+
+        long percentile(double percentile, long now) {
+            long count = count(now);
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                for (int w = 0; w < WINDOWS; w++) {
+                    if (isLive(w, now)) {
+                        seen += counts[w][bucket];
+                    }
+                }
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(bucket), max(now));
+                }
+            }
+            return max(now);
+        }
+    }
+}
@@ -1,30 +1,99 @@
 package entity;
 
-import java.awt.Graphics2D;
-import java.awt.Color;
 import java.awt.Rectangle;
 
-import main.GamePanel;
+import simulation.World;
 
 public class Bullet extends Entity {
-    private GamePanel gamePanel;
+    // Default stats of a new bullet
+    public static final int SIZE = 2;
+    public static final int SPEED = 5;
+    public static final int TIME_TO_LIVE_SECONDS = 2;
+
+    private World world;
     private boolean isVisible = false;
-    private boolean shouldBeRemoved = false;
     private float targetX;
     private float targetY;
     private Enemy enemy;
+    private long enemyId;
+    private int timeToLive;
+
+    public Bullet(World world, Enemy enemy) {
+        this(world, world.getPlayer(), enemy);
+    }
+
+    public Bullet(World world, Entity shooter, Enemy enemy) {
+        this.world = world;
+        this.hitbox = new Rectangle();
+        reset(shooter, enemy);
+    }
 
-    public Bullet(GamePanel gamePanel, Enemy enemy) {
-        this.gamePanel = gamePanel;
+    // Reinitializes the bullet to fly from the player towards a new enemy
+    public void reset(Enemy enemy) {
+        reset(world.getPlayer(), enemy);
+    }
+
+    // Reinitializes the bullet to fly from a player or a tower towards a new
+    // enemy, so a bullet taken from a pool can be reused without allocating. The
+    // bullet deals the damage of the entity that fired it.
+    public void reset(Entity shooter, Enemy enemy) {
         this.enemy = enemy;
-        this.targetX = enemy.getX() + enemy.getWidth() / 2 * gamePanel.getScale();
-        this.targetY = enemy.getY() + enemy.getHeight() / 2 * gamePanel.getScale();
-        this.width = 2;
-        this.height = 2;
-        this.x = gamePanel.getPlayer().getX() + gamePanel.getPlayer().getWidth() / 2;
-        this.y = gamePanel.getPlayer().getY() + gamePanel.getPlayer().getHeight() / 2;
-        this.speed = 5;
-        this.hitbox = new Rectangle((int) x, (int) y, (int) width, (int) height);
+        this.enemyId = enemy.getId();
+        this.targetX = enemy.getX() + enemy.getWidth() / 2 * world.getScale();
+        this.targetY = enemy.getY() + enemy.getHeight() / 2 * world.getScale();
+        this.width = SIZE;
+        this.height = SIZE;
+        this.x = shooter.getX() + shooter.getWidth() / 2;
+        this.y = shooter.getY() + shooter.getHeight() / 2;
+        this.speed = SPEED;
+        this.damage = shooter.getDamage();
+        this.timeToLive = TIME_TO_LIVE_SECONDS * world.getTicksPerSecond();
+        this.isVisible = false;
+        this.hitbox.setBounds((int) x, (int) y, (int) width, (int) height);
+    }
+
+    // Returns the enemy the bullet was fired at
+    public Enemy getEnemy() {
+        return enemy;
+    }
+
+    // Returns the id the target had when the bullet was fired
+    public long getEnemyId() {
+        return enemyId;
+    }
+
+    // Returns the point the bullet flies to
+    public float getTargetX() {
+        return targetX;
+    }
+
+    public float getTargetY() {
+        return targetY;
+    }
+
+    // Sets the point the bullet flies to, e.g. when a saved bullet is restored
+    public void setTarget(float targetX, float targetY) {
+        this.targetX = targetX;
+        this.targetY = targetY;
+    }
+
+    // Returns the number of ticks the bullet can still fly
+    public int getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(int timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    // Returns true if the target has been recycled into another enemy
+    public boolean isTargetGone() {
+        return enemy.getId() != enemyId;
+    }
+
+    // Returns true if the target is still in the world and alive
+    public boolean isTargetAlive() {
+        return !isTargetGone() && enemy.isAlive();
     }
 
     public void moveToTarget(){
@@ -35,6 +104,12 @@ public class Bullet extends Entity {
         if (distance > 0) {
             dx /= distance;
             dy /= distance;
+            // A bullet that reaches the point without a hit keeps flying straight
+            // until it expires, instead of stopping there
+            if (distance <= speed) {
+                targetX += dx * speed * timeToLive;
+                targetY += dy * speed * timeToLive;
+            }
         }
 
         x += dx * speed;
@@ -46,30 +121,12 @@ public class Bullet extends Entity {
         hitbox.y = (int) y;
     }
 
-    public void attackEnemy() {
-        enemy.setHealth(enemy.getHealth() - gamePanel.getPlayer().getDamage());
-        System.out.println("Enemy health: " + enemy.getHealth());
+    public boolean isVisible() {
+        return isVisible;
     }
 
-    public boolean shouldBeRemoved() {
-        return shouldBeRemoved;
-    }
-
-    public void update() {
-        // check if is colliding with player
-        if (!isColliding(gamePanel.getPlayer())) {
-            isVisible = true;
-        }
-        else {
-            isVisible = false;
-        }
-        moveToTarget();
-        updateHitboxPosition();
-        if (isColliding(enemy)) {
-            System.out.println("Colliding with enemy");
-            attackEnemy();
-            shouldBeRemoved = true;
-        }
+    public void setVisible(boolean isVisible) {
+        this.isVisible = isVisible;
     }
 
     public boolean isOutOfBounds(int screenWidth, int screenHeight) {
@@ -80,14 +137,4 @@ public class Bullet extends Entity {
         return this.hitbox.intersects(entity.getHitbox());
     }
 
-    public void draw(Graphics2D g2d) {
-        if (isVisible) {
-            g2d.setColor(Color.WHITE);
-            g2d.fillRect((int) x, (int) y, 2, 2);
-        }
-        // Draw hitbox
-        g2d.setColor(Color.YELLOW);
-        g2d.drawRect(hitbox.x, hitbox.y, hitbox.width, hitbox.height);
-    }
-
 }
@@ -1,76 +1,100 @@
 package entity;
 
-import java.awt.Color;
-import java.awt.Graphics2D;
 import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
 
-import javax.imageio.ImageIO;
-
-import main.GamePanel;
+import diagnostics.EventLog;
+import main.AssetManager;
+import simulation.World;
 
 public class Enemy extends Entity {
-    private GamePanel gamePanel;
+    public static final String SPRITE_PATH = "/enemy/enemy.png";
+
+    // Default stats of a new enemy
+    public static final int SIZE = 8;
+    public static final float HEALTH = 4;
+    public static final int SPEED = 2;
+    public static final float DAMAGE = 1;
+    public static final float ATTACK_SPEED = 1;
+
+    private World world;
 
-    public Enemy(GamePanel gamePanel) {
-        this.gamePanel = gamePanel;
+    // Damage of the bullets flying towards the enemy, counted by the
+    // TargetingSystem so that no more bullets are fired than it takes to kill it
+    private float committedDamage;
+
+    public Enemy(World world) {
+        this.world = world;
         setDeafultValues();
         getImage();
     }
 
+    // Reinitializes the enemy as a new spawn, so an enemy taken from a pool can be
+    // reused without allocating
+    public void reset() {
+        setDeafultValues();
+    }
+
     public void getImage() {
-        try {
-            sprite = ImageIO.read(getClass().getResourceAsStream("/enemy/enemy.png"));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        sprite = AssetManager.getImage(SPRITE_PATH);
     }
 
     public void setDeafultValues() {
         setHitbox();
         setRandomEdgeSpawn();
         updateHitboxPosition();
-        health = 4;
-        speed = 2;
-        damage = 1;
-        attackSpeed = 1;
-        attackCooldown = (int) (attackSpeed * gamePanel.getTargetFPS());
-        attackCounter = attackCooldown;
+        health = HEALTH;
+        speed = SPEED;
+        damage = DAMAGE;
+        attackSpeed = ATTACK_SPEED;
+        attackCooldown = (int) (attackSpeed * world.getTicksPerSecond());
+        attackReadyTick = world.getTick();
         isMoving = true;
+        committedDamage = 0;
+    }
+
+    public float getCommittedDamage() {
+        return committedDamage;
+    }
+
+    public void setCommittedDamage(float committedDamage) {
+        this.committedDamage = committedDamage;
     }
 
     public void setHitbox() {
-        width = 8 * gamePanel.getScale();
-        height = 8 * gamePanel.getScale();
-        hitbox = new Rectangle(0, 0, (int) width, (int) height);
+        width = SIZE * world.getScale();
+        height = SIZE * world.getScale();
+        if (hitbox == null) {
+            hitbox = new Rectangle();
+        }
+        hitbox.setBounds(0, 0, (int) width, (int) height);
     }
 
     public void setRandomEdgeSpawn() {
         // set x and y to spawn enemy in a random edge tile of the screen
-        int randomEdge = (int) (Math.random() * 4);
+        int randomEdge = world.getRandom().nextInt(4);
         switch (randomEdge) {
             case 0: // top
-                x = (int) (Math.random() * gamePanel.getScreenWidth());
-                y = -height / gamePanel.getScale();
+                x = (int) (world.getRandom().nextDouble() * world.getWidth());
+                y = -height / world.getScale();
                 break;
             case 1: // right
-                x = gamePanel.getScreenWidth() - gamePanel.getTileSize() + width / gamePanel.getScale();
-                y = (int) (Math.random() * gamePanel.getScreenHeight());
+                x = world.getWidth() - world.getTileSize() + width / world.getScale();
+                y = (int) (world.getRandom().nextDouble() * world.getHeight());
                 break;
             case 2: // bottom
-                x = (int) (Math.random() * gamePanel.getScreenWidth());
-                y = gamePanel.getScreenHeight() - gamePanel.getTileSize() + height / gamePanel.getScale();
+                x = (int) (world.getRandom().nextDouble() * world.getWidth());
+                y = world.getHeight() - world.getTileSize() + height / world.getScale();
                 break;
             case 3: // left
-                x = -width / gamePanel.getScale();
-                y = (int) (Math.random() * gamePanel.getScreenHeight());
+                x = -width / world.getScale();
+                y = (int) (world.getRandom().nextDouble() * world.getHeight());
                 break;
         }
     }
 
     public void updateHitboxPosition() {
-        hitbox.x = (int) (x + gamePanel.getTileSize() / 2 - width / 2);
-        hitbox.y = (int) (y + gamePanel.getTileSize() / 2 - height / 2);
+        hitbox.x = (int) (x + world.getTileSize() / 2 - width / 2);
+        hitbox.y = (int) (y + world.getTileSize() / 2 - height / 2);
     }
 
     public void moveToPlayer() {
@@ -78,8 +102,8 @@ public class Enemy extends Entity {
             return;
         }
         // move enemy towards player
-        float dx = gamePanel.getPlayer().getX() - x;
-        float dy = gamePanel.getPlayer().getY() - y;
+        float dx = world.getPlayer().getX() - x;
+        float dy = world.getPlayer().getY() - y;
         float distance = (float) Math.sqrt(dx * dx + dy * dy);
 
         if (distance > 0) {
@@ -93,14 +117,11 @@ public class Enemy extends Entity {
 
     public void attackPlayer() {
         // attack player
-        if (attackCounter >= attackCooldown) {
-            gamePanel.getPlayer().setHealth(gamePanel.getPlayer().getHealth() - damage);
-            if (gamePanel.getPlayer().isAlive()) {
-                gamePanel.getMusicController().playSoundEffect("music/soundEffects/enemyAttack.wav", 0.0f);
-            }
-            System.out.println("Player health: " + gamePanel.getPlayer().getHealth());
-            attackCounter = 0; // reset the counter
+        world.getPlayer().setHealth(world.getPlayer().getHealth() - damage);
+        if (world.getPlayer().isAlive()) {
+            world.getListener().onEnemyAttack();
         }
+        EventLog.log(EventLog.Event.PLAYER_HEALTH, world.getPlayer().getId(), world.getPlayer().getHealth());
     }
 
     public void stopMoving() {
@@ -112,25 +133,30 @@ public class Enemy extends Entity {
         return hitbox.intersects(player.getHitbox());
     }
 
-    public void update() {
+    // Moves the enemy and checks the collision with the player, and returns true
+    // if the enemy attacks the player this tick. It only changes this enemy, so
+    // many enemies can advance at the same time; the attack itself is applied by
+    // attackPlayer.
+    public boolean advance() {
         if (!isAlive()) {
-            return;
+            return false;
         }
+        boolean attacks = false;
         moveToPlayer();
         updateHitboxPosition();
-        if (checkCollision(gamePanel.getPlayer())) {
+        if (checkCollision(world.getPlayer())) {
             stopMoving();
-            attackPlayer();
+            if (world.getTick() >= attackReadyTick) {
+                attacks = true;
+                attackReadyTick = world.getTick() + attackCooldown;
+            }
         }
-        attackCounter++;
+        return attacks;
     }
 
-    public void draw(Graphics2D g2d) {
-        BufferedImage image = sprite;
-        g2d.drawImage(image, (int) x, (int) y, gamePanel.getTileSize(), gamePanel.getTileSize(), null);
-
-        // Draw hitbox
-        g2d.setColor(Color.RED);
-        g2d.drawRect(hitbox.x, hitbox.y, hitbox.width, hitbox.height);
+    public void update() {
+        if (advance()) {
+            attackPlayer();
+        }
     }
 }
@@ -5,6 +5,7 @@ import java.awt.image.BufferedImage;
 
 public class Entity {
     // Properties
+    protected long id;
     protected float x;
     protected float y;
     protected float width;
@@ -16,10 +17,17 @@ public class Entity {
     protected BufferedImage sprite;
     protected Rectangle hitbox;
     protected int attackCooldown;
-    protected int attackCounter;
+    protected long attackReadyTick;
     protected boolean isMoving;
 
+    // Position in a spatial grid, -1 when the entity is not in one
+    protected int gridCell = -1;
+    protected int gridSlot = -1;
+
     // Methods
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
     public float getX() { return x; }
     public void setX(float x) { this.x = x; }
 
@@ -50,12 +58,19 @@ public class Entity {
     public int getAttackCooldown() { return attackCooldown; }
     public void setAttackCooldown(int attackCooldown) { this.attackCooldown = attackCooldown; }
 
-    public int getAttackCounter() { return attackCounter; }
-    public void setAttackCounter(int attackCounter) { this.attackCounter = attackCounter; }
+    // The first tick on which the entity can attack again
+    public long getAttackReadyTick() { return attackReadyTick; }
+    public void setAttackReadyTick(long attackReadyTick) { this.attackReadyTick = attackReadyTick; }
 
     public boolean isMoving() { return isMoving; }
     public void setMoving(boolean isMoving) { this.isMoving = isMoving; }
 
+    public int getGridCell() { return gridCell; }
+    public void setGridCell(int gridCell) { this.gridCell = gridCell; }
+
+    public int getGridSlot() { return gridSlot; }
+    public void setGridSlot(int gridSlot) { this.gridSlot = gridSlot; }
+
 
 
     public boolean isAlive() { return health > 0; }
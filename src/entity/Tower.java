@@ -0,0 +1,60 @@
+package entity;
+
+import java.awt.Rectangle;
+
+import simulation.World;
+
+public class Tower extends Entity {
+    public static final String SPRITE_PATH = Player.SPRITE_PATH;
+
+    // Default stats of a new tower
+    public static final float DAMAGE = 1;
+    public static final float ATTACK_SPEED = 1;
+    public static final double ATTACK_RADIUS = 150;
+
+    private World world;
+    private int col;
+    private int row;
+    private double attackRadius;
+
+    // Places a tower on the tile at the given column and row. A tower cannot be
+    // hurt, it only shoots at the enemies in its attack radius.
+    public Tower(World world, int col, int row) {
+        this.world = world;
+        this.col = col;
+        this.row = row;
+        this.x = col * world.getTileSize();
+        this.y = row * world.getTileSize();
+        this.width = world.getTileSize();
+        this.height = world.getTileSize();
+        this.hitbox = new Rectangle((int) x, (int) y, (int) width, (int) height);
+        this.health = 1;
+        this.damage = DAMAGE;
+        this.attackSpeed = ATTACK_SPEED;
+        this.attackCooldown = (int) (attackSpeed * world.getTicksPerSecond());
+        this.attackReadyTick = world.getTick();
+        this.attackRadius = ATTACK_RADIUS;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    // Returns the tile column the tower stands on
+    public int getCol() {
+        return col;
+    }
+
+    // Returns the tile row the tower stands on
+    public int getRow() {
+        return row;
+    }
+
+    public double getAttackRadius() {
+        return attackRadius;
+    }
+
+    public void setAttackRadius(double attackRadius) {
+        this.attackRadius = attackRadius;
+    }
+}
@@ -0,0 +1,163 @@
+package main;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+public final class AssetManager {
+    // Image cache, keyed by classpath resource path
+    private static final ConcurrentHashMap<String, BufferedImage> images = new ConcurrentHashMap<String, BufferedImage>();
+
+    // Statistics
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong bytesHeld = new AtomicLong();
+
+    private AssetManager() {
+    }
+
+    /**
+     * This method is responsible for returning the shared image for the given
+     * resource path.
+     * The image is decoded only the first time it is requested, converted to an
+     * image compatible with the screen, and then shared by every caller.
+     * If the image cannot be loaded, null is returned and the failure is not
+     * cached, so a later call can try again.
+     *
+     * @param path The classpath path of the image, e.g. "/enemy/enemy.png".
+     * @return The shared image, or null if it could not be loaded.
+     */
+    public static BufferedImage getImage(String path) {
+        BufferedImage image = images.get(path);
+        if (image != null) {
+            hits.incrementAndGet();
+            return image;
+        }
+        return loadImage(path);
+    }
+
+    /**
+     * This method is responsible for decoding all the given images up front, so
+     * that the first spawn of an entity does not pay for the decoding.
+     *
+     * @param paths The classpath paths of the images to load.
+     */
+    public static void preload(String... paths) {
+        for (String path : paths) {
+            getImage(path);
+        }
+    }
+
+    private static synchronized BufferedImage loadImage(String path) {
+        // Another thread may have loaded the image while we were waiting
+        BufferedImage image = images.get(path);
+        if (image != null) {
+            hits.incrementAndGet();
+            return image;
+        }
+        misses.incrementAndGet();
+        try (InputStream is = AssetManager.class.getResourceAsStream(path)) {
+            if (is == null) {
+                System.err.println("Missing image: " + path);
+                return null;
+            }
+            BufferedImage decoded = ImageIO.read(is);
+            if (decoded == null) {
+                System.err.println("Unsupported image format: " + path);
+                return null;
+            }
+            image = toCompatibleImage(decoded);
+            images.put(path, image);
+            bytesHeld.addAndGet(sizeOf(image));
+            return image;
+        } catch (IOException e) {
+            System.err.println("Error loading image " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * This method is responsible for converting an image to the pixel layout of
+     * the default screen, so that drawing it can be accelerated.
+     * When running without a display the image is returned unchanged.
+     *
+     * @param image The decoded image.
+     * @return An image with the same content in a screen compatible format.
+     */
+    public static BufferedImage toCompatibleImage(BufferedImage image) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return image;
+        }
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        if (image.getColorModel().equals(config.getColorModel())) {
+            return image;
+        }
+        BufferedImage compatible = config.createCompatibleImage(image.getWidth(), image.getHeight(),
+                Transparency.TRANSLUCENT);
+        Graphics2D g2d = compatible.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return compatible;
+    }
+
+    /**
+     * This method is responsible for creating an empty image in the pixel layout
+     * of the default screen, for content that is drawn once and then reused, like
+     * a pre-rendered background.
+     * When running without a display a plain RGB or ARGB image is returned.
+     *
+     * @param width        The width of the image.
+     * @param height       The height of the image.
+     * @param transparency One of the Transparency constants.
+     * @return The new image.
+     */
+    public static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless()) {
+            int type = transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+            return new BufferedImage(width, height, type);
+        }
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return config.createCompatibleImage(width, height, transparency);
+    }
+
+    private static long sizeOf(BufferedImage image) {
+        int bitsPerPixel = image.getColorModel().getPixelSize();
+        return (long) image.getWidth() * image.getHeight() * Math.max(1, bitsPerPixel / 8);
+    }
+
+    // Returns the number of requests served from the cache
+    public static long getHits() {
+        return hits.get();
+    }
+
+    // Returns the number of requests that had to decode an image
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    // Returns the approximate number of bytes held by the cached images
+    public static long getBytesHeld() {
+        return bytesHeld.get();
+    }
+
+    // Returns the number of cached images
+    public static int getImageCount() {
+        return images.size();
+    }
+
+    // Returns a one line summary of the cache statistics
+    public static String getStats() {
+        return "Images: " + getImageCount() + ", hits: " + getHits() + ", misses: " + getMisses()
+                + ", bytes held: " + getBytesHeld();
+    }
+}
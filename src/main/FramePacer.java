@@ -0,0 +1,165 @@
+package main;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+public class FramePacer {
+    private static final long NANOSECONDS_IN_SECOND = 1_000_000_000L;
+
+    /**
+     * Decides how the game thread waits for the next frame deadline.
+     */
+    public interface WaitStrategy {
+        // Returns once System.nanoTime() has reached the deadline
+        void waitUntil(long deadline);
+    }
+
+    /**
+     * Parks the thread until the deadline is close, then spins for the last
+     * stretch.
+     * Parking gives the core back to the OS, but the wake up can be late by tens
+     * of microseconds, so the final spinThreshold nanoseconds are spent spinning
+     * to hit the deadline precisely.
+     */
+    public static class HybridWait implements WaitStrategy {
+        private final long spinThreshold;
+
+        public HybridWait(long spinThreshold) {
+            this.spinThreshold = spinThreshold;
+        }
+
+        @Override
+        public void waitUntil(long deadline) {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                if (remaining > spinThreshold) {
+                    LockSupport.parkNanos(remaining - spinThreshold);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+
+    // Spins until the deadline, the most precise and the most expensive wait
+    public static final WaitStrategy SPIN = new HybridWait(Long.MAX_VALUE);
+
+    // Only parks, the cheapest and the least precise wait
+    public static final WaitStrategy PARK = new HybridWait(0);
+
+    // Settings
+    private final long updateInterval;
+    private final long renderInterval;
+    private final int maxUpdatesPerFrame;
+    private WaitStrategy waitStrategy;
+
+    // Statistics
+    private long lastOvershoot = 0;
+    private long maxOvershoot = 0;
+    private long totalOvershoot = 0;
+    private long waits = 0;
+    private long skippedUpdates = 0;
+
+    /**
+     * Constructor for the FramePacer class.
+     *
+     * @param updatesPerSecond   The fixed number of updates per second.
+     * @param rendersPerSecond   The maximum number of renders per second.
+     * @param maxUpdatesPerFrame The maximum number of updates run back to back to
+     *                           catch up before the missed ones are skipped.
+     * @param waitStrategy       The way the thread waits between frames.
+     */
+    public FramePacer(int updatesPerSecond, int rendersPerSecond, int maxUpdatesPerFrame, WaitStrategy waitStrategy) {
+        this.updateInterval = NANOSECONDS_IN_SECOND / updatesPerSecond;
+        this.renderInterval = NANOSECONDS_IN_SECOND / rendersPerSecond;
+        this.maxUpdatesPerFrame = Math.max(1, maxUpdatesPerFrame);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * This method is responsible for running a paced loop until isRunning returns
+     * false.
+     * Updates run at a fixed rate. If the loop falls behind, at most
+     * maxUpdatesPerFrame updates are run back to back and the rest are skipped,
+     * so a long stall does not turn into a burst of updates. Renders run at their
+     * own rate, and between frames the thread waits for whichever deadline comes
+     * first.
+     *
+     * @param isRunning Tells whether the loop should keep going.
+     * @param update    Advances the game by one fixed step.
+     * @param render    Draws the current state.
+     */
+    public void run(BooleanSupplier isRunning, Runnable update, Runnable render) {
+        long now = System.nanoTime();
+        long nextUpdate = now + updateInterval;
+        long nextRender = now + renderInterval;
+
+        while (isRunning.getAsBoolean()) {
+            now = System.nanoTime();
+
+            int updates = 0;
+            while (now - nextUpdate >= 0 && updates < maxUpdatesPerFrame) {
+                update.run();
+                nextUpdate += updateInterval;
+                updates++;
+            }
+            if (now - nextUpdate >= 0) {
+                // Too far behind, drop the missed updates instead of catching up
+                skippedUpdates += (now - nextUpdate) / updateInterval + 1;
+                nextUpdate = now + updateInterval;
+            }
+
+            if (now - nextRender >= 0) {
+                render.run();
+                nextRender += renderInterval;
+                if (now - nextRender >= 0) {
+                    nextRender = now + renderInterval;
+                }
+            }
+
+            long deadline = nextUpdate - nextRender < 0 ? nextUpdate : nextRender;
+            waitStrategy.waitUntil(deadline);
+            recordOvershoot(System.nanoTime() - deadline);
+        }
+    }
+
+    private void recordOvershoot(long overshoot) {
+        lastOvershoot = overshoot;
+        maxOvershoot = Math.max(maxOvershoot, overshoot);
+        totalOvershoot += overshoot;
+        waits++;
+    }
+
+    // Sets the way the thread waits between frames
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    // Returns how late the last wait returned, in nanoseconds
+    public long getLastOvershoot() {
+        return lastOvershoot;
+    }
+
+    // Returns the latest any wait returned since the last reset, in nanoseconds
+    public long getMaxOvershoot() {
+        return maxOvershoot;
+    }
+
+    // Returns the average lateness of the waits since the last reset, in
+    // nanoseconds
+    public long getAverageOvershoot() {
+        return waits == 0 ? 0 : totalOvershoot / waits;
+    }
+
+    // Returns the number of updates dropped because the loop fell too far behind
+    public long getSkippedUpdates() {
+        return skippedUpdates;
+    }
+
+    // Clears the overshoot statistics
+    public void resetStats() {
+        maxOvershoot = 0;
+        totalOvershoot = 0;
+        waits = 0;
+    }
+}
@@ -6,19 +6,56 @@ import java.awt.Font;
 import java.awt.FontFormatException;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
+import diagnostics.EventLog;
+import diagnostics.Profiler;
 import entity.Enemy;
 import entity.Player;
+import render.Backbuffer;
+import render.Camera;
+import render.DamageTracker;
+import render.GlyphAtlas;
+import render.SpriteBlitter;
+import render.TextBuffer;
+import render.TextLine;
+import render.WorldRenderer;
+import simulation.Checkpointer;
+import simulation.OfflineProgression;
+import simulation.RenderSnapshot;
+import simulation.Replay;
+import simulation.ReplayRecorder;
+import simulation.SaveFile;
+import simulation.SaveState;
+import simulation.SnapshotBuffer;
+import simulation.World;
+import simulation.WorldListener;
+import tiles.ChunkCache;
 import tiles.TileManager;
 
-public class GamePanel extends JPanel implements Runnable {
+public class GamePanel extends JPanel implements Runnable, WorldListener {
 
     // Screen settings
     protected final int originalTileSize = 16;
@@ -36,29 +73,137 @@ public class GamePanel extends JPanel implements Runnable {
     protected final int targetFPS = 60;
     protected long currentFPS = 60;
 
+    // Frame pacing
+    private static final int MAX_UPDATES_PER_FRAME = 5;
+    private static final long SPIN_THRESHOLD = 1_000_000L;
+    private static final long NANOSECONDS_IN_MICROSECOND = 1_000L;
+    protected final int targetUPS = 60;
+    protected FramePacer framePacer = new FramePacer(targetUPS, targetFPS, MAX_UPDATES_PER_FRAME,
+            new FramePacer.HybridWait(SPIN_THRESHOLD));
+    protected long averageOvershoot = 0;
+    protected long maxOvershoot = 0;
+    private long frames = 0;
+    private long fpsTimer = System.nanoTime();
+
+    // Profiler overlay
+    private static final int PROFILER_TOGGLE_KEY = KeyEvent.VK_F3;
+    private static final int PROFILER_DISPLAY_Y = FPS_DISPLAY_Y * 3;
+    private static final int PROFILER_LINE_HEIGHT = 14;
+    private static final int PROFILER_WIDTH = 320;
+    private static final Profiler.Phase[] PROFILER_PHASES = Profiler.Phase.values();
+    private static final Font PROFILER_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color PROFILER_BACKGROUND = new Color(0, 0, 0, 160);
+    private static final int PROFILER_LABEL_WIDTH = 14;
+    private static final int PROFILER_COLUMN_WIDTH = 8;
+    // The durations are shown in milliseconds with three decimals, which is
+    // a whole number of microseconds
+    private static final int PROFILER_DECIMALS = 3;
+    private static final int PROFILER_TEXT_CAPACITY = 64;
+    private volatile boolean isProfilerVisible = false;
+    private final Rectangle profilerArea = new Rectangle(FPS_DISPLAY_X - 4, PROFILER_DISPLAY_Y - PROFILER_LINE_HEIGHT + 2,
+            PROFILER_WIDTH, (PROFILER_PHASES.length + 1) * PROFILER_LINE_HEIGHT + 4);
+    private GlyphAtlas profilerAtlas;
+    private final TextLine[] profilerLines = new TextLine[PROFILER_PHASES.length + 1];
+    private final TextBuffer profilerText = new TextBuffer(PROFILER_TEXT_CAPACITY);
+
     // Music and sound effects
     private static final String GAME_LOOP_MUSIC = "music/gameloop/stranger-things.wav";
     private static final String GAME_OVER_SOUND_EFFECT = "music/soundEffects/dead.wav";
+    private static final String ENEMY_ATTACK_SOUND_EFFECT = "music/soundEffects/enemyAttack.wav";
+    private static final int ENEMY_ATTACK_VOICES = 8;
     private static final float MUSIC_VOLUME = -10.0f;
     private static final float SOUND_EFFECT_VOLUME = -10.0f;
 
     // Game state
-    private boolean isGameOver = false;
     private boolean gameOverSoundPlayed = false;
-    private boolean isRunning;
+    private volatile boolean isRunning;
 
     // Font
     private static final float FONT_SIZE = 40f;
     private static final String FONT_PATH = "/fonts/TrueType/Blazma-Regular.ttf";
     protected Font customFont;
 
+    // HUD: the text is written into a reused buffer and drawn from glyph
+    // atlases of the custom font, through lines that keep their last text
+    private static final float HUD_FONT_SIZE = 16f;
+    private static final int HUD_TEXT_CAPACITY = 64;
+    private static final String GAME_OVER_TEXT = "Game Over";
+    private GlyphAtlas hudAtlas;
+    private GlyphAtlas gameOverAtlas;
+    private TextLine fpsLine;
+    private TextLine overshootLine;
+    private TextLine gameOverLine;
+    private final TextBuffer hudText = new TextBuffer(HUD_TEXT_CAPACITY);
+    private final TextBuffer gameOverText = new TextBuffer(GAME_OVER_TEXT.length()).append(GAME_OVER_TEXT);
+
     // Controllers
     protected MusicController musicController = new MusicController();
     protected TileManager tileManager = new TileManager(this);
 
-    // Entities
-    protected Player player = new Player(this);
-    protected List<Enemy> enemies = new ArrayList<Enemy>();
+    // Simulation
+    protected World world = new World(originalTileSize, scale, maxScreenCols, maxScreenRows, targetUPS);
+
+    // Saving
+    private static final String SAVE_PATH = "save.dat";
+    private static final int CHECKPOINT_INTERVAL_SECONDS = 5;
+    private static final long MILLISECONDS_IN_SECOND = 1000L;
+    protected Checkpointer checkpointer = new Checkpointer(world, new SaveFile(Paths.get(SAVE_PATH)));
+
+    // Recording
+    protected ReplayRecorder recorder;
+    private Path replayPath;
+
+    // Towers clicked on the event dispatch thread, placed on the game thread.
+    // Each value holds the column in its high 32 bits and the row in its low ones.
+    private final Queue<Long> pendingTowers = new ConcurrentLinkedQueue<Long>();
+
+    // Rendering
+    protected SnapshotBuffer snapshots = new SnapshotBuffer();
+    protected WorldRenderer worldRenderer;
+
+    // Native resolution rendering. At a render scale above 1 the scene is drawn
+    // into a smaller backbuffer and upscaled once; at 1 it is drawn straight to
+    // the screen.
+    private static final int RENDER_SCALE_KEY = KeyEvent.VK_F4;
+    protected Backbuffer backbuffer = new Backbuffer(screenWidth, screenHeight, scale);
+
+    // Software rendering. When set, the entities are written straight into the
+    // pixels of the backbuffer instead of being drawn through Graphics2D.
+    protected volatile SpriteBlitter spriteBlitter;
+
+    // Dirty rendering. When set, only the parts of the backbuffer that changed
+    // since the previous frame are drawn again.
+    protected volatile DamageTracker damageTracker;
+    private ChunkCache trackedChunks;
+    private long trackedModifications;
+
+    // With dirty rendering and Swing painting the panel, the changed regions are
+    // drawn into the backbuffer on the event dispatch thread, and then only
+    // those regions of the panel are painted, from the snapshot of that frame.
+    // The HUD and the profiler overlay are painted again when they change.
+    private final Runnable dirtyFrame = this::drawDirtyFrame;
+    private final AtomicBoolean isDirtyFramePending = new AtomicBoolean();
+    private RenderSnapshot dirtySnapshot;
+    private Rectangle hudArea;
+    private long paintedFps = -1;
+    private long paintedAverageOvershoot = -1;
+    private long paintedMaxOvershoot = -1;
+    private boolean isProfilerPainted = false;
+    private final Rectangle paintClip = new Rectangle();
+
+    // Time spent drawing the tiles and the entities of the current frame
+    private long tileDrawTime;
+    private long entityDrawTime;
+
+    // Camera
+    private static final double CAMERA_PAN_STEP = 64;
+    private static final double CAMERA_ZOOM_STEP = 1.25;
+    protected Camera camera = new Camera(screenWidth, screenHeight,
+            Math.max(screenWidth, tileManager.getMapWidth()), Math.max(screenHeight, tileManager.getMapHeight()));
+
+    // Active rendering
+    private BufferStrategy bufferStrategy;
+    private Point panelOrigin;
 
     // Game thread
     private Thread gameThread;
@@ -67,16 +212,142 @@ public class GamePanel extends JPanel implements Runnable {
      * Constructor for the GamePanel class.
      * It sets the preferred size of the panel, the background color, and enables
      * double buffering.
-     * It also loads a custom font, spawns an enemy, and starts playing the game
-     * loop music.
+     * It also loads a custom font, decodes the enemy sprite once so that spawning
+     * never touches the disk, decodes the sound effects, resumes the saved game
+     * or spawns an enemy, listens to the world events, publishes the first frame,
+     * and starts playing the game loop music.
+     * The panel takes the keyboard focus so that F3 can toggle the profiler
+     * overlay and F4 can cycle the render scale, and a left click places a tower
+     * on the clicked tile.
      */
     public GamePanel() {
+        this(null);
+    }
+
+    /**
+     * Constructor for a GamePanel that records the session.
+     * A recorded session always starts a new game instead of resuming the saved
+     * one, and the replay is written when the game loop ends.
+     *
+     * @param replayPath The file to record the session in, or null to not
+     *                   record it.
+     */
+    public GamePanel(Path replayPath) {
         setPreferredSize(new Dimension(screenWidth, screenHeight));
         setBackground(Color.BLACK);
         setDoubleBuffered(true);
-        customFont = loadFont(FONT_PATH).deriveFont(FONT_SIZE);
-        spawnEnemy();
-        musicController.playMusic(GAME_LOOP_MUSIC, MUSIC_VOLUME);
+        setFocusable(true);
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                switch (e.getKeyCode()) {
+                    case PROFILER_TOGGLE_KEY:
+                        isProfilerVisible = !isProfilerVisible;
+                        break;
+                    case RENDER_SCALE_KEY:
+                        setRenderScale(getRenderScale() % Backbuffer.MAX_SCALE + 1);
+                        break;
+                    case KeyEvent.VK_LEFT:
+                        camera.pan(-CAMERA_PAN_STEP, 0);
+                        break;
+                    case KeyEvent.VK_RIGHT:
+                        camera.pan(CAMERA_PAN_STEP, 0);
+                        break;
+                    case KeyEvent.VK_UP:
+                        camera.pan(0, -CAMERA_PAN_STEP);
+                        break;
+                    case KeyEvent.VK_DOWN:
+                        camera.pan(0, CAMERA_PAN_STEP);
+                        break;
+                    case KeyEvent.VK_EQUALS:
+                    case KeyEvent.VK_ADD:
+                        camera.zoomAt(CAMERA_ZOOM_STEP, screenWidth / 2.0, screenHeight / 2.0);
+                        break;
+                    case KeyEvent.VK_MINUS:
+                    case KeyEvent.VK_SUBTRACT:
+                        camera.zoomAt(1 / CAMERA_ZOOM_STEP, screenWidth / 2.0, screenHeight / 2.0);
+                        break;
+                    case KeyEvent.VK_HOME:
+                        camera.reset();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+        addMouseWheelListener((MouseWheelEvent e) -> camera.zoomAt(
+                Math.pow(CAMERA_ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY()));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (e.getButton() == MouseEvent.BUTTON1) {
+                    queueTower(e.getX(), e.getY());
+                }
+            }
+        });
+        Font font = loadFont(FONT_PATH);
+        customFont = font.deriveFont(FONT_SIZE);
+        hudAtlas = new GlyphAtlas(font.deriveFont(HUD_FONT_SIZE), Color.WHITE, GlyphAtlas.PRINTABLE_ASCII);
+        gameOverAtlas = new GlyphAtlas(customFont, Color.RED, GAME_OVER_TEXT);
+        fpsLine = new TextLine(hudAtlas);
+        overshootLine = new TextLine(hudAtlas);
+        gameOverLine = new TextLine(gameOverAtlas);
+        hudArea = new Rectangle(0, 0, screenWidth, FPS_DISPLAY_Y * 2 + hudAtlas.getLineHeight());
+        profilerAtlas = new GlyphAtlas(PROFILER_FONT, Color.WHITE, GlyphAtlas.PRINTABLE_ASCII);
+        for (int i = 0; i < profilerLines.length; i++) {
+            profilerLines[i] = new TextLine(profilerAtlas);
+        }
+        AssetManager.preload(Enemy.SPRITE_PATH);
+        worldRenderer = new WorldRenderer(tileSize);
+        musicController.loadSoundEffect(ENEMY_ATTACK_SOUND_EFFECT, ENEMY_ATTACK_VOICES);
+        musicController.loadSoundEffect(GAME_OVER_SOUND_EFFECT, 1);
+        if (replayPath != null) {
+            this.replayPath = replayPath;
+            recorder = new ReplayRecorder(world);
+            recorder.input(Replay.Input.SPAWN_ENEMY, 0);
+        } else if (!loadSave()) {
+            world.spawnEnemy();
+        }
+        world.setListener(this);
+        publishSnapshot();
+        if (world.isGameOver()) {
+            onGameOver();
+        } else {
+            musicController.playMusic(GAME_LOOP_MUSIC, MUSIC_VOLUME);
+        }
+    }
+
+    /**
+     * This method is responsible for resuming the saved game, if there is one.
+     * The world is restored from the latest checkpoint and then advanced by the
+     * time that passed since it was saved. The save of a finished game is
+     * ignored, and so is a save that cannot be read.
+     *
+     * @return True if a save was loaded.
+     */
+    private boolean loadSave() {
+        SaveFile saveFile = checkpointer.getSaveFile();
+        if (!saveFile.exists()) {
+            return false;
+        }
+        SaveState state;
+        try {
+            state = saveFile.read();
+            if (state.isGameOver) {
+                return false;
+            }
+            world.readSaveState(state);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error loading save: " + e.getMessage());
+            return false;
+        }
+        long away = Math.max(0, System.currentTimeMillis() - state.savedAt);
+        OfflineProgression.Result progress = new OfflineProgression(world)
+                .advance(away * targetUPS / MILLISECONDS_IN_SECOND);
+        EventLog.log(EventLog.Event.OFFLINE_TICKS, 0, progress.getElapsedTicks());
+        EventLog.log(EventLog.Event.OFFLINE_ENEMIES_KILLED, 0, progress.getEnemiesKilled());
+        EventLog.log(EventLog.Event.OFFLINE_DAMAGE_TAKEN, 0, progress.getDamageTaken());
+        return true;
     }
 
     /**
@@ -119,14 +390,19 @@ public class GamePanel extends JPanel implements Runnable {
         return screenHeight;
     }
 
+    // Returns the simulated world
+    public World getWorld() {
+        return world;
+    }
+
     // Returns the player object
     public Player getPlayer() {
-        return player;
+        return world.getPlayer();
     }
 
     // Returns the list of enemies
     public List<Enemy> getEnemies() {
-        return enemies;
+        return world.getEnemies();
     }
 
     // Returns the target frames per second
@@ -134,11 +410,86 @@ public class GamePanel extends JPanel implements Runnable {
         return targetFPS;
     }
 
+    // Returns the frame pacer driving the game loop
+    public FramePacer getFramePacer() {
+        return framePacer;
+    }
+
+    // Returns true if the profiler overlay is drawn
+    public boolean isProfilerVisible() {
+        return isProfilerVisible;
+    }
+
+    // Shows or hides the profiler overlay
+    public void setProfilerVisible(boolean isProfilerVisible) {
+        this.isProfilerVisible = isProfilerVisible;
+    }
+
+    // Returns the number of screen pixels per pixel the scene is drawn at
+    public int getRenderScale() {
+        return backbuffer.getScale();
+    }
+
+    // Sets the render scale, from 1 (full resolution) to Backbuffer.MAX_SCALE,
+    // used from the next frame. The default, the scale of the game, draws the
+    // 16 pixel sprites at their native size.
+    public void setRenderScale(int renderScale) {
+        backbuffer.setScale(renderScale);
+    }
+
+    // Returns the blitter drawing the entities, or null if they are drawn through Graphics2D
+    public SpriteBlitter getSpriteBlitter() {
+        return spriteBlitter;
+    }
+
+    /**
+     * This method is responsible for switching the drawing of the entities to
+     * the software SpriteBlitter, or back to Graphics2D. It must be called before
+     * the game thread is started.
+     *
+     * @param parallelism The number of threads the entities are drawn on, or 0
+     *                    to draw them through Graphics2D.
+     */
+    public void setSoftwareRendering(int parallelism) {
+        SpriteBlitter previous = spriteBlitter;
+        if (parallelism > 0) {
+            SpriteBlitter blitter = new SpriteBlitter(worldRenderer.getSprites(), worldRenderer.getTileSize());
+            blitter.setParallelism(parallelism);
+            spriteBlitter = blitter;
+        } else {
+            spriteBlitter = null;
+        }
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    // Returns the tracker of the changed regions, or null if every frame is drawn in full
+    public DamageTracker getDamageTracker() {
+        return damageTracker;
+    }
+
+    // Turns dirty rendering on or off. With dirty rendering the scene is always
+    // drawn through the backbuffer, which keeps the previous frame.
+    public void setDirtyRendering(boolean isDirtyRendering) {
+        damageTracker = isDirtyRendering ? new DamageTracker() : null;
+    }
+
+    // Returns the glyph atlas the HUD text is drawn from
+    public GlyphAtlas getHudAtlas() {
+        return hudAtlas;
+    }
+
     // Returns the tile manager object
     public TileManager getTileManager() {
         return tileManager;
     }
 
+    // Returns the camera the world is drawn through
+    public Camera getCamera() {
+        return camera;
+    }
+
     // Returns the music controller object
     public MusicController getMusicController() {
         return musicController;
@@ -178,6 +529,28 @@ public class GamePanel extends JPanel implements Runnable {
         }
     }
 
+    /**
+     * This method is responsible for switching the panel to active rendering.
+     * Instead of asking Swing to repaint, the game loop draws every frame into a
+     * BufferStrategy of the window and shows it directly, so no frame is
+     * coalesced or delayed by the Swing paint path.
+     * It must be called after the window is visible.
+     *
+     * @param window The window that contains the panel.
+     */
+    public void enableActiveRendering(Window window) {
+        window.setIgnoreRepaint(true);
+        setIgnoreRepaint(true);
+        window.createBufferStrategy(2);
+        panelOrigin = SwingUtilities.convertPoint(this, 0, 0, window);
+        bufferStrategy = window.getBufferStrategy();
+    }
+
+    // Returns true if frames are drawn by the game loop instead of Swing
+    public boolean isActiveRendering() {
+        return bufferStrategy != null;
+    }
+
     /**
      * This method is responsible for loading a font from a given path.
      * If the font cannot be loaded due to a FontFormatException or IOException,
@@ -198,74 +571,99 @@ public class GamePanel extends JPanel implements Runnable {
 
     /**
      * This method is the main game loop. It runs as long as the game is running.
-     * It updates the game state, repaints the game panel, and spawns new enemies at
-     * regular intervals.
-     * It also calculates the current frames per second (FPS) for performance
-     * monitoring.
+     * The frame pacer advances the world at a fixed rate and repaints the game
+     * panel at its own rate, parking the thread in between instead of spinning.
+     * Spawning and every other game rule live in the World, which counts time in
+     * ticks. When the loop ends, one last frame is presented, the game is saved
+     * and the replay, if the session is recorded, is written.
      */
     @Override
     public void run() {
-        double targetTime = NANOSECONDS_IN_SECOND / targetFPS;
-        double delta = 0;
-        long lastTime = System.nanoTime();
-        long currentTime;
-        long timer = 0;
-        long frames = 0;
-        long enemySpawnTimer = 0;
-        long enemySpawnCooldown = NANOSECONDS_IN_SECOND;
-
-        // Main game loop
-        while (isRunning) {
-            currentTime = System.nanoTime();
-            delta += (currentTime - lastTime) / targetTime;
-            timer += currentTime - lastTime;
-            enemySpawnTimer += currentTime - lastTime;
-            lastTime = currentTime;
-
-            // Update game state and repaint game panel for each frame
-            if (delta >= 1) {
-                update();
-                repaint();
-                delta--;
-                frames++;
-            }
-            if (enemySpawnTimer >= enemySpawnCooldown) {
-                spawnEnemy();
-                enemySpawnTimer = 0;
-            }
-            if (timer >= NANOSECONDS_IN_SECOND) {
-                currentFPS = frames;
-                frames = 0;
-                timer = 0;
+        framePacer.run(() -> isRunning && !world.isGameOver(), this::update, this::renderFrame);
+        // Present the final state, like the game over screen
+        renderFrame();
+        try {
+            checkpointer.close();
+        } catch (IOException e) {
+            System.err.println("Error saving: " + e.getMessage());
+        }
+        if (recorder != null) {
+            try {
+                recorder.write(replayPath);
+            } catch (IOException e) {
+                System.err.println("Error writing replay: " + e.getMessage());
             }
         }
-        stopGameThread();
     }
 
     /**
-     * This method is responsible for spawning a new enemy in the game.
-     * It creates a new Enemy object and adds it to the list of enemies.
+     * This method is responsible for queueing a tower on the tile under the given
+     * viewport position. It runs on the event dispatch thread, so the tower is
+     * only placed by the game thread at the start of its next update.
+     *
+     * @param screenX The x coordinate of the click, in viewport pixels.
+     * @param screenY The y coordinate of the click, in viewport pixels.
+     */
+    private void queueTower(int screenX, int screenY) {
+        int col = (int) Math.floor(camera.screenToWorldX(screenX) / tileSize);
+        int row = (int) Math.floor(camera.screenToWorldY(screenY) / tileSize);
+        pendingTowers.add(((long) col << 32) | (row & 0xFFFFFFFFL));
+    }
+
+    /**
+     * This method is responsible for advancing the world by one tick, through the
+     * recorder if the session is recorded, and for starting a background
+     * checkpoint every few seconds of game time.
+     * The towers clicked since the last tick are placed first, as recorded inputs
+     * if the session is recorded.
      */
-    public void spawnEnemy() {
-        Enemy enemy = new Enemy(this);
-        enemies.add(enemy);
+    private void update() {
+        Long tower;
+        while ((tower = pendingTowers.poll()) != null) {
+            if (recorder != null) {
+                recorder.input(Replay.Input.PLACE_TOWER, tower);
+            } else {
+                Replay.Input.PLACE_TOWER.apply(world, tower);
+            }
+        }
+        if (recorder != null) {
+            recorder.tick();
+        } else {
+            world.tick();
+        }
+        if (world.getTick() % ((long) CHECKPOINT_INTERVAL_SECONDS * targetUPS) == 0) {
+            checkpointer.checkpoint();
+        }
     }
 
     /**
-     * This method is responsible for updating the state of the game.
-     * It updates the player's state, and then updates the state of each enemy.
-     * If an enemy is no longer alive, it is removed from the game.
+     * This method is responsible for presenting a frame. It publishes a snapshot
+     * of the world and then either draws it into the buffer strategy or requests
+     * a repaint of the game panel. With dirty rendering the repaint is replaced
+     * by drawDirtyFrame, which repaints only what changed.
+     * It also calculates the current frames per second (FPS) and the frame
+     * pacer overshoot once per second for performance monitoring.
      */
-    public void update() {
-        player.update();
-        Iterator<Enemy> enemyIterator = enemies.iterator();
-        while (enemyIterator.hasNext()) {
-            Enemy enemy = enemyIterator.next();
-            enemy.update();
-            if (!enemy.isAlive()) {
-                enemyIterator.remove();
-                System.out.println("Enemy removed");
+    private void renderFrame() {
+        publishSnapshot();
+        if (bufferStrategy != null) {
+            presentFrame();
+        } else if (damageTracker != null) {
+            if (isDirtyFramePending.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(dirtyFrame);
             }
+        } else {
+            repaint();
+        }
+        frames++;
+        long now = System.nanoTime();
+        if (now - fpsTimer >= NANOSECONDS_IN_SECOND) {
+            currentFPS = frames;
+            averageOvershoot = framePacer.getAverageOvershoot();
+            maxOvershoot = framePacer.getMaxOvershoot();
+            framePacer.resetStats();
+            frames = 0;
+            fpsTimer = now;
         }
     }
 
@@ -289,45 +687,372 @@ public class GamePanel extends JPanel implements Runnable {
     }
 
     /**
-     * This method is responsible for drawing all the game elements on the game
-     * panel.
-     * It first draws the game tiles, then the player, and finally the enemies.
-     * If the game is over, it draws the game over message instead.
+     * This method is responsible for copying the drawable state of the world into
+     * a snapshot and handing it to the renderer. It runs on the game thread, so
+     * the world is never read while it is being ticked.
+     */
+    private void publishSnapshot() {
+        RenderSnapshot snapshot = snapshots.beginWrite();
+        world.writeSnapshot(snapshot);
+        snapshot.fps = currentFPS;
+        snapshot.averageOvershoot = averageOvershoot;
+        snapshot.maxOvershoot = maxOvershoot;
+        snapshots.publish();
+    }
+
+    /**
+     * This method is responsible for drawing a frame into the buffer strategy and
+     * showing it. The drawing is repeated if the contents of the buffer are lost
+     * while it is drawn. Showing the buffer is timed as the present phase; with
+     * passive rendering Swing presents the frame and the phase is not measured.
+     */
+    private void presentFrame() {
+        long presentTime = 0;
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) bufferStrategy.getDrawGraphics();
+                try {
+                    g2d.translate(panelOrigin.x, panelOrigin.y);
+                    g2d.setColor(getBackground());
+                    g2d.fillRect(0, 0, screenWidth, screenHeight);
+                    draw(g2d);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (bufferStrategy.contentsRestored());
+            long showStart = System.nanoTime();
+            bufferStrategy.show();
+            presentTime += System.nanoTime() - showStart;
+        } while (bufferStrategy.contentsLost());
+        long syncStart = System.nanoTime();
+        Toolkit.getDefaultToolkit().sync();
+        long end = System.nanoTime();
+        presentTime += end - syncStart;
+        world.getProfiler().record(Profiler.Phase.PRESENT, end - presentTime, end);
+    }
+
+    /**
+     * This method is called by Swing to paint the panel.
+     * When active rendering is enabled the game loop presents the frames and
+     * Swing is ignored. With dirty rendering, once drawDirtyFrame has drawn a
+     * frame, only the part of the backbuffer Swing asks for is presented.
      *
      * @param g The Graphics object to protect.
      */
     public void paintComponent(Graphics g) {
+        if (bufferStrategy == null && damageTracker != null && dirtySnapshot != null) {
+            presentDirtyFrame((Graphics2D) g);
+            return;
+        }
         super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-
-        if (isGameOver) {
-            String gameOver = "Game Over";
-            g2d.setFont(customFont);
-            int stringLen = (int) g2d.getFontMetrics().getStringBounds(gameOver, g2d).getWidth();
-            int stringHeight = (int) g2d.getFontMetrics().getStringBounds(gameOver, g2d).getHeight();
-            g2d.setColor(Color.RED);
-            g2d.drawString(gameOver, screenWidth / 2 - stringLen / 2, screenHeight / 2 - stringHeight / 2);
+        if (bufferStrategy == null) {
+            // Drawing takes a newer snapshot, so the one of the last dirty frame
+            // is no longer ours
+            dirtySnapshot = null;
+            draw((Graphics2D) g);
+        }
+    }
+
+    /**
+     * This method is responsible for drawing a frame with dirty rendering when
+     * Swing paints the panel. It runs on the event dispatch thread. The changed
+     * regions are drawn into the backbuffer, and then only those regions of the
+     * panel are painted, each through paintImmediately, so Swing neither clears
+     * nor copies the rest of the panel. The HUD is painted again when its
+     * counters change and the profiler overlay while it is shown. A frame in
+     * which nothing changed paints nothing.
+     * The whole panel is painted when the whole backbuffer was drawn, and the
+     * game over screen is left to the usual repaint.
+     */
+    private void drawDirtyFrame() {
+        isDirtyFramePending.set(false);
+        DamageTracker tracker = damageTracker;
+        if (tracker == null || bufferStrategy != null) {
+            return;
+        }
+        RenderSnapshot snapshot = snapshots.acquire();
+        if (snapshot.isGameOver) {
+            dirtySnapshot = null;
+            repaint();
+            return;
+        }
+        Profiler profiler = world.getProfiler();
+        tileDrawTime = 0;
+        entityDrawTime = 0;
+        boolean isFullFrame = drawBackbuffer(snapshot, spriteBlitter, tracker, camera.getX(), camera.getY(),
+                camera.getZoom());
+        long end = System.nanoTime();
+        profiler.record(Profiler.Phase.TILE_DRAW, end - tileDrawTime, end);
+        profiler.record(Profiler.Phase.ENTITY_DRAW, end - entityDrawTime, end);
+        dirtySnapshot = snapshot;
+
+        if (isFullFrame) {
+            paintImmediately(0, 0, getWidth(), getHeight());
         } else {
-            tileManager.draw(g2d);
-            g2d.setColor(Color.WHITE);
-            g2d.drawString("FPS: " + currentFPS, FPS_DISPLAY_X, FPS_DISPLAY_Y);
-            player.draw(g2d);
-            Iterator<Enemy> enemyIterator = enemies.iterator();
-            while (enemyIterator.hasNext()) {
-                Enemy enemy = enemyIterator.next();
-                enemy.draw(g2d);
+            int frameScale = backbuffer.getFrameScale();
+            for (int i = 0; i < tracker.getRegionCount(); i++) {
+                paintImmediately(tracker.getRegionX(i) * frameScale, tracker.getRegionY(i) * frameScale,
+                        tracker.getRegionWidth(i) * frameScale, tracker.getRegionHeight(i) * frameScale);
+            }
+            if (snapshot.fps != paintedFps || snapshot.averageOvershoot != paintedAverageOvershoot
+                    || snapshot.maxOvershoot != paintedMaxOvershoot) {
+                paintImmediately(hudArea);
+            }
+            if (isProfilerVisible || isProfilerPainted) {
+                paintImmediately(profilerArea);
+            }
+        }
+        paintedFps = snapshot.fps;
+        paintedAverageOvershoot = snapshot.averageOvershoot;
+        paintedMaxOvershoot = snapshot.maxOvershoot;
+        isProfilerPainted = isProfilerVisible;
+    }
+
+    // Presents the part of the last dirty frame Swing is painting, with the HUD
+    // and the profiler overlay over it. Only the panel outside the frame, if it
+    // is larger, is cleared.
+    private void presentDirtyFrame(Graphics2D g2d) {
+        paintClip.setBounds(0, 0, getWidth(), getHeight());
+        g2d.getClipBounds(paintClip);
+        if (paintClip.x + paintClip.width > screenWidth || paintClip.y + paintClip.height > screenHeight) {
+            super.paintComponent(g2d);
+        }
+        long upscaleStart = System.nanoTime();
+        backbuffer.present(g2d, paintClip.x, paintClip.y, paintClip.width, paintClip.height);
+        world.getProfiler().record(Profiler.Phase.UPSCALE, upscaleStart, System.nanoTime());
+        drawHud(g2d, dirtySnapshot);
+        if (isProfilerVisible) {
+            drawProfiler(g2d);
+        }
+    }
+
+    /**
+     * This method is responsible for drawing all the game elements.
+     * It draws the latest snapshot published by the game thread through the
+     * camera: first the tiles in view, then the player, and then the enemies.
+     * Above a render scale of 1, or with software or dirty rendering, the scene
+     * is drawn into the backbuffer and upscaled to the screen in one pass. With software
+     * rendering the entities are written into its pixels by the SpriteBlitter,
+     * and only the attack radii are drawn through Graphics2D, before them.
+     * The FPS counters are drawn last, on top, without the camera and at full
+     * resolution, from the glyph atlas of the HUD.
+     * If the game is over, it draws the game over message instead, from its own
+     * atlas.
+     *
+     * @param g2d The Graphics2D object to draw on.
+     */
+    public void draw(Graphics2D g2d) {
+        RenderSnapshot snapshot = snapshots.acquire();
+        if (snapshot.isGameOver) {
+            gameOverLine.draw(g2d, gameOverText, screenWidth / 2 - gameOverAtlas.getWidth(gameOverText) / 2,
+                    screenHeight / 2 - gameOverAtlas.getLineHeight() / 2);
+        } else {
+            Profiler profiler = world.getProfiler();
+            AffineTransform screenTransform = g2d.getTransform();
+            SpriteBlitter blitter = spriteBlitter;
+            DamageTracker tracker = damageTracker;
+            double cameraX = camera.getX();
+            double cameraY = camera.getY();
+            double zoom = camera.getZoom();
+            tileDrawTime = 0;
+            entityDrawTime = 0;
+            if (backbuffer.getScale() > 1 || blitter != null || tracker != null) {
+                drawBackbuffer(snapshot, blitter, tracker, cameraX, cameraY, zoom);
+                long end = System.nanoTime();
+                profiler.record(Profiler.Phase.TILE_DRAW, end - tileDrawTime, end);
+                profiler.record(Profiler.Phase.ENTITY_DRAW, end - entityDrawTime, end);
+                long upscaleStart = System.nanoTime();
+                backbuffer.present(g2d);
+                profiler.record(Profiler.Phase.UPSCALE, upscaleStart, System.nanoTime());
+            } else {
+                g2d.scale(zoom, zoom);
+                g2d.translate(-cameraX, -cameraY);
+                drawScene(g2d, snapshot, cameraX, cameraY, screenWidth / zoom, screenHeight / zoom);
+                long end = System.nanoTime();
+                profiler.record(Profiler.Phase.TILE_DRAW, end - tileDrawTime, end);
+                profiler.record(Profiler.Phase.ENTITY_DRAW, end - entityDrawTime, end);
+                g2d.setTransform(screenTransform);
             }
-            g2d.dispose();
+            drawHud(g2d, snapshot);
+        }
+        if (isProfilerVisible) {
+            drawProfiler(g2d);
         }
         // drawGrid(g2d);
     }
 
     /**
-     * This method is called when the game is over. It stops the game loop,
-     * stops the background music, and plays the game over sound effect.
+     * This method is responsible for drawing the scene into the backbuffer. With
+     * dirty rendering only the regions the DamageTracker found changed are
+     * cleared and drawn again, over the previous frame, and nothing is drawn if
+     * nothing changed. This needs the sprites and the tiles to be scaled up by a
+     * whole factor, as they are at the default render scale and zoom. Otherwise
+     * the whole backbuffer is drawn.
+     *
+     * @param snapshot The state to draw.
+     * @param blitter  The blitter drawing the entities, or null to draw them
+     *                 through Graphics2D.
+     * @param tracker  The tracker of the changed regions, or null to draw the
+     *                 whole frame.
+     * @param cameraX  The world x coordinate of the left edge of the view.
+     * @param cameraY  The world y coordinate of the top edge of the view.
+     * @param zoom     The number of screen pixels per world pixel.
+     * @return True if the whole backbuffer was drawn, false if only the regions
+     *         of the tracker were.
+     */
+    private boolean drawBackbuffer(RenderSnapshot snapshot, SpriteBlitter blitter, DamageTracker tracker,
+            double cameraX, double cameraY, double zoom) {
+        boolean isNewImage = backbuffer.beginFrame();
+        BufferedImage image = backbuffer.getImage();
+        int frameScale = backbuffer.getFrameScale();
+        if (tracker != null) {
+            // Graphics2D samples images drawn smaller, or at a fractional size,
+            // differently depending on the clip, so a region would not match the
+            // rest of the frame; those frames are always drawn in full
+            double pixelsPerImagePixel = zoom / frameScale * tileSize / originalTileSize;
+            boolean isExact = pixelsPerImagePixel >= 1 && pixelsPerImagePixel == Math.rint(pixelsPerImagePixel);
+            ChunkCache chunks = tileManager.getChunkCache();
+            if (isNewImage || !isExact || chunks != trackedChunks
+                    || chunks.getModifications() != trackedModifications) {
+                tracker.invalidate();
+                trackedChunks = chunks;
+                trackedModifications = chunks.getModifications();
+            }
+        }
+        if (tracker == null || tracker.update(snapshot, image.getWidth(), image.getHeight(), cameraX, cameraY,
+                zoom / frameScale, worldRenderer.getTileSize())) {
+            drawBackbufferRegion(snapshot, blitter, cameraX, cameraY, zoom, 0, 0, image.getWidth(),
+                    image.getHeight());
+            return true;
+        }
+        for (int i = 0; i < tracker.getRegionCount(); i++) {
+            drawBackbufferRegion(snapshot, blitter, cameraX, cameraY, zoom, tracker.getRegionX(i),
+                    tracker.getRegionY(i), tracker.getRegionWidth(i), tracker.getRegionHeight(i));
+        }
+        return false;
+    }
+
+    private void drawBackbufferRegion(RenderSnapshot snapshot, SpriteBlitter blitter, double cameraX,
+            double cameraY, double zoom, int x, int y, int width, int height) {
+        double worldPerPixel = backbuffer.getFrameScale() / zoom;
+        Graphics2D scene = backbuffer.createGraphics(getBackground(), x, y, width, height);
+        try {
+            scene.scale(zoom, zoom);
+            scene.translate(-cameraX, -cameraY);
+            if (blitter == null) {
+                drawScene(scene, snapshot, cameraX + x * worldPerPixel, cameraY + y * worldPerPixel,
+                        width * worldPerPixel, height * worldPerPixel);
+                return;
+            }
+            long tilesStart = System.nanoTime();
+            tileManager.draw(scene, cameraX + x * worldPerPixel, cameraY + y * worldPerPixel,
+                    width * worldPerPixel, height * worldPerPixel);
+            long entitiesStart = System.nanoTime();
+            worldRenderer.drawAttackRadii(scene, snapshot);
+            blitter.draw(backbuffer.getImage(), snapshot, cameraX, cameraY, 1 / worldPerPixel, x, y, width, height);
+            long end = System.nanoTime();
+            tileDrawTime += entitiesStart - tilesStart;
+            entityDrawTime += end - entitiesStart;
+        } finally {
+            scene.dispose();
+        }
+    }
+
+    // Draws the tiles in the given part of the world and the entities through Graphics2D
+    private void drawScene(Graphics2D g2d, RenderSnapshot snapshot, double viewX, double viewY, double viewWidth,
+            double viewHeight) {
+        long tilesStart = System.nanoTime();
+        tileManager.draw(g2d, viewX, viewY, viewWidth, viewHeight);
+        long entitiesStart = System.nanoTime();
+        worldRenderer.draw(g2d, snapshot);
+        long end = System.nanoTime();
+        tileDrawTime += entitiesStart - tilesStart;
+        entityDrawTime += end - entitiesStart;
+    }
+
+    /**
+     * This method is responsible for drawing the FPS counters. The text is
+     * written into a reused buffer and drawn from the glyph atlas of the HUD,
+     * so drawing it does not allocate. The counters change once a second, and
+     * in the other frames each line is a single image copy.
+     *
+     * @param g2d      The Graphics2D object to draw on, in screen pixels.
+     * @param snapshot The state to draw the counters of.
      */
-    public void gameOver() {
-        isGameOver = true;
+    private void drawHud(Graphics2D g2d, RenderSnapshot snapshot) {
+        fpsLine.draw(g2d, hudText.clear().append("FPS: ").append(snapshot.fps), FPS_DISPLAY_X, FPS_DISPLAY_Y);
+        hudText.clear().append("Overshoot: ").append(snapshot.averageOvershoot / NANOSECONDS_IN_MICROSECOND)
+                .append(" us avg, ").append(snapshot.maxOvershoot / NANOSECONDS_IN_MICROSECOND).append(" us max");
+        overshootLine.draw(g2d, hudText, FPS_DISPLAY_X, FPS_DISPLAY_Y * 2);
+    }
+
+    /**
+     * This method is responsible for drawing the profiler overlay.
+     * It lists every phase of a frame with the median, the 99th percentile and
+     * the longest duration over the last second, in milliseconds. Phases that
+     * were not timed in the last second show dashes. Like the HUD, the lines are
+     * written into a reused buffer and drawn from a glyph atlas, here of a
+     * monospaced font so the columns line up, so drawing them does not allocate.
+     *
+     * @param g2d The Graphics2D object to draw on.
+     */
+    private void drawProfiler(Graphics2D g2d) {
+        Profiler profiler = world.getProfiler();
+        int y = PROFILER_DISPLAY_Y;
+        g2d.setColor(PROFILER_BACKGROUND);
+        g2d.fillRect(profilerArea.x, profilerArea.y, profilerArea.width, profilerArea.height);
+        profilerText.clear().append("Phase (ms)").padTo(PROFILER_LABEL_WIDTH);
+        appendProfilerColumn("p50");
+        appendProfilerColumn("p99");
+        appendProfilerColumn("max");
+        profilerLines[0].draw(g2d, profilerText, FPS_DISPLAY_X, y);
+        for (int i = 0; i < PROFILER_PHASES.length; i++) {
+            Profiler.Phase phase = PROFILER_PHASES[i];
+            y += PROFILER_LINE_HEIGHT;
+            profilerText.clear().append(phase.getLabel()).padTo(PROFILER_LABEL_WIDTH);
+            if (profiler.getCount(phase) == 0) {
+                appendProfilerColumn("-");
+                appendProfilerColumn("-");
+                appendProfilerColumn("-");
+            } else {
+                appendProfilerColumn(profiler.getPercentile(phase, 50));
+                appendProfilerColumn(profiler.getPercentile(phase, 99));
+                appendProfilerColumn(profiler.getMax(phase));
+            }
+            profilerLines[i + 1].draw(g2d, profilerText, FPS_DISPLAY_X, y);
+        }
+    }
+
+    // Appends a column of the profiler overlay, after a space and aligned to
+    // the right
+    private void appendProfilerColumn(String text) {
+        int start = profilerText.append(' ').length();
+        profilerText.append(text).alignRight(start, PROFILER_COLUMN_WIDTH);
+    }
+
+    // Appends a duration in nanoseconds to the profiler overlay, in
+    // milliseconds rounded to the microsecond
+    private void appendProfilerColumn(long nanoseconds) {
+        int start = profilerText.append(' ').length();
+        long microseconds = (nanoseconds + NANOSECONDS_IN_MICROSECOND / 2) / NANOSECONDS_IN_MICROSECOND;
+        profilerText.append(microseconds, PROFILER_DECIMALS).alignRight(start, PROFILER_COLUMN_WIDTH);
+    }
+
+    /**
+     * This method is called by the world when an enemy hits the player.
+     * It plays the enemy attack sound effect.
+     */
+    @Override
+    public void onEnemyAttack() {
+        musicController.playSoundEffect(ENEMY_ATTACK_SOUND_EFFECT, 0.0f);
+    }
+
+    /**
+     * This method is called by the world when the game is over. It stops the game
+     * loop, stops the background music, and plays the game over sound effect.
+     */
+    @Override
+    public void onGameOver() {
         isRunning = false;
         musicController.stopMusic();
         if (!gameOverSoundPlayed) {
@@ -336,4 +1061,4 @@ public class GamePanel extends JPanel implements Runnable {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -1,8 +1,19 @@
 package main;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import javax.swing.JFrame;
 
 public class Main {
+    private static final String ACTIVE_RENDERING_FLAG = "--active-rendering";
+    private static final String RECORD_FLAG = "--record=";
+    private static final String RENDER_SCALE_FLAG = "--render-scale=";
+    private static final String SOFTWARE_RENDERING_FLAG = "--software-rendering";
+    private static final String DIRTY_RENDERING_FLAG = "--dirty-rendering";
+
     // This is the main method, creates the window and adds the game panel
     public static void main(String[] args) {
         // Create a new JFrame object and set its properties
@@ -10,14 +21,62 @@ public class Main {
         window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         window.setResizable(false);
 
+        // Record the session if requested
+        Path replayPath = null;
+        for (String arg : args) {
+            if (arg.startsWith(RECORD_FLAG)) {
+                replayPath = Paths.get(arg.substring(RECORD_FLAG.length()));
+            }
+        }
+
         // Create a new GamePanel object and add it to the JFrame
-        GamePanel gamePanel = new GamePanel();
+        GamePanel gamePanel = new GamePanel(replayPath);
         window.add(gamePanel);
 
+        // Draw the scene at another resolution if requested, 1 being full resolution
+        for (String arg : args) {
+            if (arg.startsWith(RENDER_SCALE_FLAG)) {
+                gamePanel.setRenderScale(Integer.parseInt(arg.substring(RENDER_SCALE_FLAG.length())));
+            }
+        }
+
+        // Draw the entities in software if requested, on every core unless a
+        // number of threads is given, like --software-rendering=4
+        for (String arg : args) {
+            if (arg.equals(SOFTWARE_RENDERING_FLAG)) {
+                gamePanel.setSoftwareRendering(Runtime.getRuntime().availableProcessors());
+            } else if (arg.startsWith(SOFTWARE_RENDERING_FLAG + "=")) {
+                gamePanel.setSoftwareRendering(Integer.parseInt(arg.substring(SOFTWARE_RENDERING_FLAG.length() + 1)));
+            }
+        }
+
+        // Only draw the parts of the frame that changed if requested
+        for (String arg : args) {
+            if (arg.equals(DIRTY_RENDERING_FLAG)) {
+                gamePanel.setDirtyRendering(true);
+            }
+        }
+
+        // Let the game loop save the game before the window closes
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gamePanel.stopGameThread();
+            }
+        });
+
         // Pack the JFrame and set its location and visibility
         window.pack();
         window.setLocationRelativeTo(null);
         window.setVisible(true);
+        gamePanel.requestFocusInWindow();
+
+        // Let the game loop present the frames itself if requested
+        for (String arg : args) {
+            if (arg.equals(ACTIVE_RENDERING_FLAG)) {
+                gamePanel.enableActiveRendering(window);
+            }
+        }
 
         // Start the game thread by calling the startGameThread method on the GamePanel object
         gamePanel.startGameThread();
@@ -2,6 +2,8 @@ package main;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
@@ -10,14 +12,44 @@ import javax.sound.sampled.FloatControl;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
+import main.SoundBank.SoundEffect;
+
 public class MusicController {
     // Music
     protected Clip musicClip;
 
+    // Sound effects
+    private static final int MAX_VOICES = 16;
+    private static final int DEFAULT_VOICES_PER_EFFECT = 1;
+    protected SoundBank soundBank = new SoundBank();
+    private final Map<String, Voice[]> voices = new HashMap<String, Voice[]>();
+    private int openVoices = 0;
+    private long playCounter = 0;
+
+    /**
+     * A Clip that stays open for the whole game and is reused every time its
+     * effect is played.
+     */
+    private static class Voice {
+        private final Clip clip;
+        private final FloatControl volumeControl;
+        private long startedAt;
+
+        Voice(Clip clip) {
+            this.clip = clip;
+            this.volumeControl = clip.isControlSupported(FloatControl.Type.MASTER_GAIN)
+                    ? (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN)
+                    : null;
+        }
+    }
 
     public void playMusic(String filePath, float volume) {
         try {
             URL url = this.getClass().getClassLoader().getResource(filePath);
+            if (url == null) {
+                System.err.println("Missing music: " + filePath);
+                return;
+            }
             AudioInputStream audioIn = AudioSystem.getAudioInputStream(url);
             musicClip = AudioSystem.getClip();
             musicClip.open(audioIn);
@@ -25,7 +57,7 @@ public class MusicController {
             volumeControl.setValue(volume); // Reduce volume by x decibels.
             musicClip.start();
             musicClip.loop(Clip.LOOP_CONTINUOUSLY); // Loop the music continuously
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
+        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException | IllegalArgumentException e) {
             e.printStackTrace();
         }
     }
@@ -36,17 +68,100 @@ public class MusicController {
         }
     }
 
-    public void playSoundEffect(String filePath, float volume) {
+    /**
+     * This method is responsible for decoding a sound effect and opening the voices
+     * that will play it.
+     * It should be called at startup, so that playing the effect later does no
+     * I/O and opens no new lines. The number of voices is limited by the size of
+     * the voice pool, which is shared by all the effects.
+     *
+     * @param filePath  The classpath path of the effect.
+     * @param maxVoices The maximum number of times the effect can be heard at the
+     *                  same time.
+     */
+    public void loadSoundEffect(String filePath, int maxVoices) {
+        if (voices.containsKey(filePath)) {
+            return;
+        }
+        SoundEffect effect = soundBank.load(filePath, maxVoices);
+        if (effect == null) {
+            voices.put(filePath, new Voice[0]);
+            return;
+        }
+        int count = Math.min(effect.getMaxVoices(), MAX_VOICES - openVoices);
+        Voice[] effectVoices = new Voice[Math.max(0, count)];
+        int opened = 0;
         try {
-            URL url = this.getClass().getClassLoader().getResource(filePath);
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(url);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioIn);
-            FloatControl volumeControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-            volumeControl.setValue(volume); // Reduce volume by x decibels.
-            clip.start();
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            e.printStackTrace();
+            for (; opened < effectVoices.length; opened++) {
+                Clip clip = AudioSystem.getClip();
+                clip.open(effect.getFormat(), effect.getData(), 0, effect.getData().length);
+                effectVoices[opened] = new Voice(clip);
+            }
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Error opening voice for " + filePath + ": " + e.getMessage());
+            Voice[] openedVoices = new Voice[opened];
+            System.arraycopy(effectVoices, 0, openedVoices, 0, opened);
+            effectVoices = openedVoices;
         }
+        openVoices += effectVoices.length;
+        voices.put(filePath, effectVoices);
+    }
+
+    /**
+     * This method is responsible for playing a sound effect on one of its voices.
+     * A free voice is used if there is one, otherwise the voice that has been
+     * playing the longest is restarted.
+     * Effects that were not loaded are loaded on first use with a single voice.
+     *
+     * @param filePath The classpath path of the effect.
+     * @param volume   The gain in decibels.
+     */
+    public void playSoundEffect(String filePath, float volume) {
+        Voice[] effectVoices = voices.get(filePath);
+        if (effectVoices == null) {
+            loadSoundEffect(filePath, DEFAULT_VOICES_PER_EFFECT);
+            effectVoices = voices.get(filePath);
+        }
+        if (effectVoices.length == 0) {
+            return;
+        }
+        Voice voice = effectVoices[0];
+        for (Voice candidate : effectVoices) {
+            if (!candidate.clip.isRunning()) {
+                voice = candidate;
+                break;
+            }
+            if (candidate.startedAt < voice.startedAt) {
+                voice = candidate;
+            }
+        }
+        voice.clip.stop();
+        voice.clip.setFramePosition(0);
+        if (voice.volumeControl != null) {
+            voice.volumeControl.setValue(volume); // Reduce volume by x decibels.
+        }
+        voice.startedAt = ++playCounter;
+        voice.clip.start();
+    }
+
+    /**
+     * This method is responsible for closing every voice and the music clip.
+     */
+    public void close() {
+        for (Voice[] effectVoices : voices.values()) {
+            for (Voice voice : effectVoices) {
+                voice.clip.close();
+            }
+        }
+        voices.clear();
+        openVoices = 0;
+        if (musicClip != null) {
+            musicClip.close();
+        }
+    }
+
+    // Returns the number of voices currently open
+    public int getOpenVoices() {
+        return openVoices;
     }
 }
@@ -0,0 +1,107 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+public class SoundBank {
+    // Decoded effects, keyed by classpath resource path
+    private final Map<String, SoundEffect> effects = new HashMap<String, SoundEffect>();
+
+    /**
+     * A sound effect decoded to raw PCM samples.
+     * The samples are read once and are never modified afterwards, so they can be
+     * shared by every voice that plays the effect.
+     */
+    public static class SoundEffect {
+        private final String path;
+        private final AudioFormat format;
+        private final byte[] data;
+        private final int maxVoices;
+
+        SoundEffect(String path, AudioFormat format, byte[] data, int maxVoices) {
+            this.path = path;
+            this.format = format;
+            this.data = data;
+            this.maxVoices = maxVoices;
+        }
+
+        public String getPath() { return path; }
+
+        public AudioFormat getFormat() { return format; }
+
+        public byte[] getData() { return data; }
+
+        public int getMaxVoices() { return maxVoices; }
+    }
+
+    /**
+     * This method is responsible for decoding a sound effect into PCM and storing
+     * it in the bank.
+     * Compressed or non PCM formats are converted to signed PCM so that the samples
+     * can be handed to a Clip without any further decoding.
+     * If the effect is already loaded, the loaded effect is returned.
+     *
+     * @param filePath  The classpath path of the effect.
+     * @param maxVoices The maximum number of times the effect can be heard at the
+     *                  same time.
+     * @return The decoded effect, or null if it could not be loaded.
+     */
+    public SoundEffect load(String filePath, int maxVoices) {
+        SoundEffect effect = effects.get(filePath);
+        if (effect != null) {
+            return effect;
+        }
+        URL url = this.getClass().getClassLoader().getResource(filePath);
+        if (url == null) {
+            System.err.println("Missing sound effect: " + filePath);
+            return null;
+        }
+        try (AudioInputStream audioIn = toPcm(AudioSystem.getAudioInputStream(url))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = audioIn.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            effect = new SoundEffect(filePath, audioIn.getFormat(), out.toByteArray(), Math.max(1, maxVoices));
+            effects.put(filePath, effect);
+            return effect;
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            System.err.println("Error loading sound effect " + filePath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private AudioInputStream toPcm(AudioInputStream audioIn) {
+        AudioFormat format = audioIn.getFormat();
+        AudioFormat.Encoding encoding = format.getEncoding();
+        if (encoding.equals(AudioFormat.Encoding.PCM_SIGNED) || encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED)) {
+            return audioIn;
+        }
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+        return AudioSystem.getAudioInputStream(pcm, audioIn);
+    }
+
+    // Returns the effect loaded for the given path, or null if it was not loaded
+    public SoundEffect get(String filePath) {
+        return effects.get(filePath);
+    }
+
+    // Returns the total number of PCM bytes held by the bank
+    public long getBytesHeld() {
+        long bytes = 0;
+        for (SoundEffect effect : effects.values()) {
+            bytes += effect.data.length;
+        }
+        return bytes;
+    }
+}
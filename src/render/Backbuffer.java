@@ -0,0 +1,159 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * An image the scene is drawn into at a fraction of the viewport resolution,
+ * and then copied to the screen in one nearest-neighbour upscale.
+ * The sprites and the tiles are 16 pixels wide and are drawn twice as large on
+ * the screen, so drawing every one of them scaled repeats the scaling work for
+ * each sprite in each frame. Drawn into a backbuffer at a scale of 2, every
+ * sprite is copied at its own size, which fills a quarter of the pixels, and
+ * only the finished frame is scaled, once.
+ *
+ * The scale can be changed at any time, for example from the event dispatch
+ * thread. A frame reads it once, in begin, and keeps it until the frame is
+ * presented, so the image is only resized between frames.
+ */
+public class Backbuffer {
+    public static final int MIN_SCALE = 1;
+    public static final int MAX_SCALE = 4;
+
+    private final int viewportWidth;
+    private final int viewportHeight;
+    private volatile int scale;
+
+    // The image and the scale of the frame being drawn
+    private BufferedImage image;
+    private int frameScale;
+
+    /**
+     * Constructor for the Backbuffer class.
+     *
+     * @param viewportWidth  The width of the screen area the frames are shown in.
+     * @param viewportHeight The height of the screen area the frames are shown in.
+     * @param scale          The number of screen pixels per backbuffer pixel.
+     */
+    public Backbuffer(int viewportWidth, int viewportHeight, int scale) {
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+        setScale(scale);
+    }
+
+    // Returns the number of screen pixels per backbuffer pixel
+    public int getScale() {
+        return scale;
+    }
+
+    // Sets the number of screen pixels per backbuffer pixel, used from the next frame
+    public void setScale(int scale) {
+        this.scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+
+    // Returns the scale of the frame being drawn, read by begin
+    public int getFrameScale() {
+        return frameScale;
+    }
+
+    // Returns the image the last frame was drawn into, or null before the first frame
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * This method is responsible for starting a frame. The image is resized if
+     * the scale changed, cleared to the given color, and a Graphics2D object
+     * drawing into it is returned. Its transform maps screen pixels to
+     * backbuffer pixels, so the scene is drawn with the same coordinates as on
+     * the screen.
+     *
+     * @param background The color to clear the image to.
+     * @return The Graphics2D object to draw the frame with, to be disposed by the
+     *         caller.
+     */
+    public Graphics2D begin(Color background) {
+        beginFrame();
+        return createGraphics(background, 0, 0, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * This method is responsible for starting a frame without clearing it, so
+     * the previous frame can be drawn over. The image is resized if the scale
+     * changed, which loses the previous frame.
+     *
+     * @return True if the image was created or resized and holds no frame.
+     */
+    public boolean beginFrame() {
+        frameScale = scale;
+        int width = (viewportWidth + frameScale - 1) / frameScale;
+        int height = (viewportHeight + frameScale - 1) / frameScale;
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * This method is responsible for returning a Graphics2D object that draws
+     * only into a region of the image, after clearing the region to the given
+     * color. Like begin, its transform maps screen pixels to backbuffer pixels.
+     *
+     * @param background The color to clear the region to.
+     * @param x          The left edge of the region, in backbuffer pixels.
+     * @param y          The top edge of the region, in backbuffer pixels.
+     * @param width      The width of the region, in backbuffer pixels.
+     * @param height     The height of the region, in backbuffer pixels.
+     * @return The Graphics2D object to draw the region with, to be disposed by
+     *         the caller.
+     */
+    public Graphics2D createGraphics(Color background, int x, int y, int width, int height) {
+        Graphics2D g2d = image.createGraphics();
+        g2d.clipRect(x, y, width, height);
+        g2d.setColor(background);
+        g2d.fillRect(x, y, width, height);
+        g2d.scale(1.0 / frameScale, 1.0 / frameScale);
+        return g2d;
+    }
+
+    /**
+     * This method is responsible for copying the frame to the screen, scaled up
+     * with nearest-neighbour sampling so the pixels stay sharp.
+     *
+     * @param g2d The Graphics2D object of the screen, in screen pixels.
+     */
+    public void present(Graphics2D g2d) {
+        present(g2d, 0, 0, image.getWidth() * frameScale, image.getHeight() * frameScale);
+    }
+
+    /**
+     * This method is responsible for copying only a part of the frame to the
+     * screen, like present, when the rest of the screen still shows the same
+     * frame. The part is widened to whole backbuffer pixels.
+     *
+     * @param g2d    The Graphics2D object of the screen, in screen pixels.
+     * @param x      The left edge of the part, in screen pixels.
+     * @param y      The top edge of the part, in screen pixels.
+     * @param width  The width of the part, in screen pixels.
+     * @param height The height of the part, in screen pixels.
+     */
+    public void present(Graphics2D g2d, int x, int y, int width, int height) {
+        int left = Math.max(0, Math.floorDiv(x, frameScale));
+        int top = Math.max(0, Math.floorDiv(y, frameScale));
+        int right = Math.min(image.getWidth(), Math.floorDiv(x + width + frameScale - 1, frameScale));
+        int bottom = Math.min(image.getHeight(), Math.floorDiv(y + height + frameScale - 1, frameScale));
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        Object interpolation = g2d.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2d.drawImage(image, left * frameScale, top * frameScale, right * frameScale, bottom * frameScale, left, top,
+                right, bottom, null);
+        if (interpolation != null) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        }
+    }
+}
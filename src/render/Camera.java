@@ -0,0 +1,131 @@
+package render;
+
+/**
+ * The part of the world shown on the screen.
+ * The camera has a position, the world pixel shown in the top left corner of
+ * the viewport, and a zoom factor, the number of screen pixels per world
+ * pixel. It is moved from the event dispatch thread and read while drawing, so
+ * its fields are volatile and a frame reads each of them only once.
+ *
+ * The camera is kept over the world: it cannot be moved past an edge, and when
+ * the visible area is larger than the world the world is shown from its top
+ * left corner.
+ */
+public class Camera {
+    public static final double MIN_ZOOM = 0.25;
+    public static final double MAX_ZOOM = 4.0;
+
+    private final int viewportWidth;
+    private final int viewportHeight;
+    private volatile int worldWidth;
+    private volatile int worldHeight;
+
+    private volatile double x = 0;
+    private volatile double y = 0;
+    private volatile double zoom = 1.0;
+
+    /**
+     * Constructor for the Camera class. The camera starts in the top left
+     * corner of the world, at a zoom of 1.
+     *
+     * @param viewportWidth  The width of the viewport in screen pixels.
+     * @param viewportHeight The height of the viewport in screen pixels.
+     * @param worldWidth     The width of the world in world pixels.
+     * @param worldHeight    The height of the world in world pixels.
+     */
+    public Camera(int viewportWidth, int viewportHeight, int worldWidth, int worldHeight) {
+        this.viewportWidth = viewportWidth;
+        this.viewportHeight = viewportHeight;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+    }
+
+    // Returns the world x coordinate shown on the left edge of the viewport
+    public double getX() {
+        return x;
+    }
+
+    // Returns the world y coordinate shown on the top edge of the viewport
+    public double getY() {
+        return y;
+    }
+
+    // Returns the number of screen pixels per world pixel
+    public double getZoom() {
+        return zoom;
+    }
+
+    // Returns the width of the viewport in screen pixels
+    public int getViewportWidth() {
+        return viewportWidth;
+    }
+
+    // Returns the height of the viewport in screen pixels
+    public int getViewportHeight() {
+        return viewportHeight;
+    }
+
+    // Sets the size of the world in world pixels, and keeps the camera over it
+    public synchronized void setWorldSize(int worldWidth, int worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        moveTo(x, y);
+    }
+
+    /**
+     * This method is responsible for moving the camera so that the given world
+     * position is in the top left corner of the viewport, or as close to it as
+     * the edges of the world allow.
+     *
+     * @param x The world x coordinate.
+     * @param y The world y coordinate.
+     */
+    public synchronized void moveTo(double x, double y) {
+        double zoom = this.zoom;
+        this.x = clamp(x, 0, Math.max(0, worldWidth - viewportWidth / zoom));
+        this.y = clamp(y, 0, Math.max(0, worldHeight - viewportHeight / zoom));
+    }
+
+    // Moves the camera by the given number of screen pixels
+    public synchronized void pan(double dx, double dy) {
+        moveTo(x + dx / zoom, y + dy / zoom);
+    }
+
+    /**
+     * This method is responsible for changing the zoom while keeping the world
+     * point under the given screen position in place, so zooming with the mouse
+     * wheel zooms towards the cursor.
+     *
+     * @param factor  The factor to multiply the zoom by.
+     * @param screenX The x coordinate that stays in place, in viewport pixels.
+     * @param screenY The y coordinate that stays in place, in viewport pixels.
+     */
+    public synchronized void zoomAt(double factor, double screenX, double screenY) {
+        double oldZoom = zoom;
+        double newZoom = clamp(oldZoom * factor, MIN_ZOOM, MAX_ZOOM);
+        double worldX = x + screenX / oldZoom;
+        double worldY = y + screenY / oldZoom;
+        zoom = newZoom;
+        moveTo(worldX - screenX / newZoom, worldY - screenY / newZoom);
+    }
+
+    // Returns the world x coordinate shown at the given viewport x coordinate
+    public double screenToWorldX(double screenX) {
+        return x + screenX / zoom;
+    }
+
+    // Returns the world y coordinate shown at the given viewport y coordinate
+    public double screenToWorldY(double screenY) {
+        return y + screenY / zoom;
+    }
+
+    // Puts the camera back in the top left corner at a zoom of 1
+    public synchronized void reset() {
+        zoom = 1.0;
+        moveTo(0, 0);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,493 @@
+package render;
+
+import java.util.Arrays;
+
+import entity.Bullet;
+import simulation.RenderSnapshot;
+
+/**
+ * Works out which parts of a frame changed since the previous one, so only
+ * those parts are drawn again over the frame that is still in the backbuffer.
+ *
+ * The tracker keeps the bounds every entity was drawn with in the previous
+ * frame, in backbuffer pixels. Enemies and bullets are matched by the id of the
+ * snapshot, towers by their position in the list and the player is unique. An
+ * entity that moved or changed damages both its previous and its current
+ * bounds, one that appeared only its current bounds and one that is gone only
+ * its previous bounds.
+ *
+ * The damaged bounds are marked on a grid of cells, and the marked cells are
+ * merged into rectangles: runs of cells on a row, extended downwards while the
+ * next row has the same run. This keeps the number of regions small, and
+ * entities that overlap or stand next to each other share one region. When the
+ * regions cover most of the frame, or there are too many of them, the whole
+ * frame is drawn instead, which is cheaper.
+ *
+ * The whole frame is also drawn whenever the mapping from the world to the
+ * backbuffer changes, like when the camera moves, and after invalidate.
+ */
+public class DamageTracker {
+    public static final int CELL_SIZE = 16;
+    public static final int MAX_REGIONS = 64;
+    private static final int FULL_FRAME_PERCENT = 50;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Stroked outlines can reach one pixel past the bounds they were drawn for
+    private static final int MARGIN = 1;
+
+    // The mapping of the previous frame, only valid if isValid is true
+    private boolean isValid = false;
+    private int imageWidth;
+    private int imageHeight;
+    private double originX;
+    private double originY;
+    private double scale;
+    private int spriteSize;
+
+    // Bounds of the previous and of the current frame, as left, top, right and
+    // bottom, the right and bottom edges excluded
+    private final int[] previousPlayer = new int[4];
+    private final int[] currentPlayer = new int[4];
+    private int previousTowerCount = 0;
+    private int[] previousTowers = new int[DEFAULT_CAPACITY * 4];
+    private int[] currentTowers = new int[DEFAULT_CAPACITY * 4];
+    private int previousEnemyCount = 0;
+    private long[] previousEnemyIds = new long[DEFAULT_CAPACITY];
+    private long[] currentEnemyIds = new long[DEFAULT_CAPACITY];
+    private int[] previousEnemySprites = new int[DEFAULT_CAPACITY];
+    private int[] currentEnemySprites = new int[DEFAULT_CAPACITY];
+    private int[] previousEnemies = new int[DEFAULT_CAPACITY * 4];
+    private int[] currentEnemies = new int[DEFAULT_CAPACITY * 4];
+    private int previousBulletCount = 0;
+    private long[] previousBulletIds = new long[DEFAULT_CAPACITY];
+    private long[] currentBulletIds = new long[DEFAULT_CAPACITY];
+    private boolean[] previousBulletVisible = new boolean[DEFAULT_CAPACITY];
+    private boolean[] currentBulletVisible = new boolean[DEFAULT_CAPACITY];
+    private int[] previousBullets = new int[DEFAULT_CAPACITY * 4];
+    private int[] currentBullets = new int[DEFAULT_CAPACITY * 4];
+
+    // Index of the previous frame by id, open addressing with linear probing
+    private long[] slotIds = new long[DEFAULT_CAPACITY * 2];
+    private int[] slotIndices = new int[DEFAULT_CAPACITY * 2];
+    private boolean[] isMatched = new boolean[DEFAULT_CAPACITY];
+
+    // Damaged cells
+    private boolean[] cells = new boolean[0];
+    private int cellCols;
+    private int cellRows;
+    private int damagedCells;
+
+    // Regions to draw, in backbuffer pixels
+    private int regionCount = 0;
+    private final int[] regionX = new int[MAX_REGIONS];
+    private final int[] regionY = new int[MAX_REGIONS];
+    private final int[] regionWidth = new int[MAX_REGIONS];
+    private final int[] regionHeight = new int[MAX_REGIONS];
+
+    // Statistics
+    private long fullFrames = 0;
+    private long partialFrames = 0;
+    private long cleanFrames = 0;
+    private long drawnPixels = 0;
+    private long framePixels = 0;
+
+    // Returns the number of regions of the last partial frame
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    // Returns the left edge of a region, in backbuffer pixels
+    public int getRegionX(int region) {
+        return regionX[region];
+    }
+
+    // Returns the top edge of a region, in backbuffer pixels
+    public int getRegionY(int region) {
+        return regionY[region];
+    }
+
+    // Returns the width of a region, in backbuffer pixels
+    public int getRegionWidth(int region) {
+        return regionWidth[region];
+    }
+
+    // Returns the height of a region, in backbuffer pixels
+    public int getRegionHeight(int region) {
+        return regionHeight[region];
+    }
+
+    // Returns the number of frames drawn in full
+    public long getFullFrames() {
+        return fullFrames;
+    }
+
+    // Returns the number of frames drawn as regions
+    public long getPartialFrames() {
+        return partialFrames;
+    }
+
+    // Returns the number of frames in which nothing changed
+    public long getCleanFrames() {
+        return cleanFrames;
+    }
+
+    // Returns the fraction of the pixels of all frames that were drawn again
+    public double getDrawnFraction() {
+        return framePixels > 0 ? (double) drawnPixels / framePixels : 0;
+    }
+
+    // Makes the next frame draw in full, for when the backbuffer no longer
+    // holds the previous frame or the background changed
+    public void invalidate() {
+        isValid = false;
+    }
+
+    /**
+     * This method is responsible for comparing a snapshot with the previous one
+     * and working out the regions to draw again.
+     *
+     * @param snapshot    The state to draw.
+     * @param imageWidth  The width of the backbuffer.
+     * @param imageHeight The height of the backbuffer.
+     * @param originX     The world x coordinate of the left edge of the backbuffer.
+     * @param originY     The world y coordinate of the top edge of the backbuffer.
+     * @param scale       The number of backbuffer pixels per world pixel.
+     * @param spriteSize  The size sprites are drawn at, in world pixels.
+     * @return True if the whole frame must be drawn, false if drawing the
+     *         regions is enough. There may be no regions at all.
+     */
+    public boolean update(RenderSnapshot snapshot, int imageWidth, int imageHeight, double originX, double originY,
+            double scale, int spriteSize) {
+        boolean isFullFrame = !isValid || imageWidth != this.imageWidth || imageHeight != this.imageHeight
+                || originX != this.originX || originY != this.originY || scale != this.scale
+                || spriteSize != this.spriteSize;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.originX = originX;
+        this.originY = originY;
+        this.scale = scale;
+        this.spriteSize = spriteSize;
+        this.isValid = true;
+        measure(snapshot);
+
+        regionCount = 0;
+        if (!isFullFrame) {
+            prepareCells();
+            damage(snapshot);
+            isFullFrame = damagedCells * 100L > (long) cellCols * cellRows * FULL_FRAME_PERCENT || !mergeRegions();
+        }
+        swap(snapshot);
+
+        framePixels += (long) imageWidth * imageHeight;
+        if (isFullFrame) {
+            regionCount = 0;
+            drawnPixels += (long) imageWidth * imageHeight;
+            fullFrames++;
+        } else if (regionCount == 0) {
+            cleanFrames++;
+        } else {
+            for (int i = 0; i < regionCount; i++) {
+                drawnPixels += (long) regionWidth[i] * regionHeight[i];
+            }
+            partialFrames++;
+        }
+        return isFullFrame;
+    }
+
+    // Computes the bounds of every entity of the snapshot in the current arrays
+    private void measure(RenderSnapshot snapshot) {
+        int size = spriteSize;
+        double radius = snapshot.playerAttackRadius;
+        int circleX = (int) (snapshot.playerX - radius + snapshot.playerWidth / 2);
+        int circleY = (int) (snapshot.playerY - radius + snapshot.playerHeight / 2);
+        int diameter = (int) (2 * radius);
+        int x = (int) snapshot.playerX;
+        int y = (int) snapshot.playerY;
+        bounds(currentPlayer, 0,
+                min(x, snapshot.playerHitboxX, circleX), min(y, snapshot.playerHitboxY, circleY),
+                max(x + size, snapshot.playerHitboxX + snapshot.playerHitboxWidth + 1, circleX + diameter + 1),
+                max(y + size, snapshot.playerHitboxY + snapshot.playerHitboxHeight + 1, circleY + diameter + 1));
+
+        if (currentTowers.length < snapshot.towerCount * 4) {
+            currentTowers = new int[snapshot.towerCount * 8];
+            previousTowers = Arrays.copyOf(previousTowers, snapshot.towerCount * 8);
+        }
+        for (int i = 0; i < snapshot.towerCount; i++) {
+            x = (int) snapshot.towerX[i];
+            y = (int) snapshot.towerY[i];
+            radius = snapshot.towerAttackRadius[i];
+            circleX = (int) (x - radius + size / 2);
+            circleY = (int) (y - radius + size / 2);
+            diameter = (int) (2 * radius);
+            bounds(currentTowers, i * 4, Math.min(x, circleX), Math.min(y, circleY),
+                    Math.max(x + size, circleX + diameter + 1), Math.max(y + size, circleY + diameter + 1));
+        }
+
+        int enemyCount = snapshot.enemyCount;
+        if (currentEnemyIds.length < enemyCount) {
+            int capacity = Math.max(enemyCount, currentEnemyIds.length * 2);
+            currentEnemyIds = new long[capacity];
+            currentEnemySprites = new int[capacity];
+            currentEnemies = new int[capacity * 4];
+        }
+        for (int i = 0; i < enemyCount; i++) {
+            x = (int) snapshot.enemyX[i];
+            y = (int) snapshot.enemyY[i];
+            currentEnemyIds[i] = snapshot.enemyId[i];
+            currentEnemySprites[i] = snapshot.enemySprite[i];
+            bounds(currentEnemies, i * 4, Math.min(x, snapshot.enemyHitboxX[i]), Math.min(y, snapshot.enemyHitboxY[i]),
+                    Math.max(x + size, snapshot.enemyHitboxX[i] + snapshot.enemyHitboxWidth[i] + 1),
+                    Math.max(y + size, snapshot.enemyHitboxY[i] + snapshot.enemyHitboxHeight[i] + 1));
+        }
+
+        int bulletCount = snapshot.bulletCount;
+        if (currentBulletIds.length < bulletCount) {
+            int capacity = Math.max(bulletCount, currentBulletIds.length * 2);
+            currentBulletIds = new long[capacity];
+            currentBulletVisible = new boolean[capacity];
+            currentBullets = new int[capacity * 4];
+        }
+        for (int i = 0; i < bulletCount; i++) {
+            x = (int) snapshot.bulletX[i];
+            y = (int) snapshot.bulletY[i];
+            currentBulletIds[i] = snapshot.bulletId[i];
+            currentBulletVisible[i] = snapshot.bulletVisible[i];
+            bounds(currentBullets, i * 4, Math.min(x, snapshot.bulletHitboxX[i]),
+                    Math.min(y, snapshot.bulletHitboxY[i]),
+                    Math.max(x + Bullet.SIZE, snapshot.bulletHitboxX[i] + snapshot.bulletHitboxWidth[i] + 1),
+                    Math.max(y + Bullet.SIZE, snapshot.bulletHitboxY[i] + snapshot.bulletHitboxHeight[i] + 1));
+        }
+    }
+
+    // Marks the bounds of everything that changed since the previous frame
+    private void damage(RenderSnapshot snapshot) {
+        if (!equals(previousPlayer, 0, currentPlayer, 0)) {
+            mark(previousPlayer, 0);
+            mark(currentPlayer, 0);
+        }
+
+        int towerCount = snapshot.towerCount;
+        for (int i = 0; i < Math.max(towerCount, previousTowerCount); i++) {
+            boolean isPrevious = i < previousTowerCount;
+            boolean isCurrent = i < towerCount;
+            if (isPrevious && isCurrent && equals(previousTowers, i * 4, currentTowers, i * 4)) {
+                continue;
+            }
+            if (isPrevious) {
+                mark(previousTowers, i * 4);
+            }
+            if (isCurrent) {
+                mark(currentTowers, i * 4);
+            }
+        }
+
+        index(previousEnemyIds, previousEnemyCount);
+        for (int i = 0; i < snapshot.enemyCount; i++) {
+            int previous = find(currentEnemyIds[i]);
+            if (previous >= 0) {
+                isMatched[previous] = true;
+                if (previousEnemySprites[previous] == currentEnemySprites[i]
+                        && equals(previousEnemies, previous * 4, currentEnemies, i * 4)) {
+                    continue;
+                }
+                mark(previousEnemies, previous * 4);
+            }
+            mark(currentEnemies, i * 4);
+        }
+        for (int i = 0; i < previousEnemyCount; i++) {
+            if (!isMatched[i]) {
+                mark(previousEnemies, i * 4);
+            }
+        }
+
+        index(previousBulletIds, previousBulletCount);
+        for (int i = 0; i < snapshot.bulletCount; i++) {
+            int previous = find(currentBulletIds[i]);
+            if (previous >= 0) {
+                isMatched[previous] = true;
+                if (previousBulletVisible[previous] == currentBulletVisible[i]
+                        && equals(previousBullets, previous * 4, currentBullets, i * 4)) {
+                    continue;
+                }
+                mark(previousBullets, previous * 4);
+            }
+            mark(currentBullets, i * 4);
+        }
+        for (int i = 0; i < previousBulletCount; i++) {
+            if (!isMatched[i]) {
+                mark(previousBullets, i * 4);
+            }
+        }
+    }
+
+    // Makes the current bounds the previous ones, and the other way round
+    private void swap(RenderSnapshot snapshot) {
+        System.arraycopy(currentPlayer, 0, previousPlayer, 0, 4);
+        previousTowerCount = snapshot.towerCount;
+        previousEnemyCount = snapshot.enemyCount;
+        previousBulletCount = snapshot.bulletCount;
+
+        int[] towers = previousTowers;
+        previousTowers = currentTowers;
+        currentTowers = towers;
+
+        long[] ids = previousEnemyIds;
+        previousEnemyIds = currentEnemyIds;
+        currentEnemyIds = ids;
+        int[] sprites = previousEnemySprites;
+        previousEnemySprites = currentEnemySprites;
+        currentEnemySprites = sprites;
+        int[] enemies = previousEnemies;
+        previousEnemies = currentEnemies;
+        currentEnemies = enemies;
+
+        ids = previousBulletIds;
+        previousBulletIds = currentBulletIds;
+        currentBulletIds = ids;
+        boolean[] visible = previousBulletVisible;
+        previousBulletVisible = currentBulletVisible;
+        currentBulletVisible = visible;
+        int[] bullets = previousBullets;
+        previousBullets = currentBullets;
+        currentBullets = bullets;
+    }
+
+    // Converts bounds in world pixels to backbuffer pixels, with a margin
+    private void bounds(int[] target, int offset, int left, int top, int right, int bottom) {
+        target[offset] = (int) Math.floor((left - originX) * scale) - MARGIN;
+        target[offset + 1] = (int) Math.floor((top - originY) * scale) - MARGIN;
+        target[offset + 2] = (int) Math.ceil((right - originX) * scale) + MARGIN;
+        target[offset + 3] = (int) Math.ceil((bottom - originY) * scale) + MARGIN;
+    }
+
+    private static boolean equals(int[] a, int aOffset, int[] b, int bOffset) {
+        return a[aOffset] == b[bOffset] && a[aOffset + 1] == b[bOffset + 1] && a[aOffset + 2] == b[bOffset + 2]
+                && a[aOffset + 3] == b[bOffset + 3];
+    }
+
+    private static int min(int a, int b, int c) {
+        return Math.min(a, Math.min(b, c));
+    }
+
+    private static int max(int a, int b, int c) {
+        return Math.max(a, Math.max(b, c));
+    }
+
+    // Builds the index of the previous frame from its ids
+    private void index(long[] ids, int count) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, count) * 2 - 1) << 1;
+        if (slotIds.length < capacity) {
+            slotIds = new long[capacity];
+            slotIndices = new int[capacity];
+        }
+        if (isMatched.length < count) {
+            isMatched = new boolean[Math.max(count, isMatched.length * 2)];
+        }
+        Arrays.fill(slotIndices, -1);
+        Arrays.fill(isMatched, 0, count, false);
+        int mask = slotIds.length - 1;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(ids[i], mask);
+            while (slotIndices[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            slotIds[slot] = ids[i];
+            slotIndices[slot] = i;
+        }
+    }
+
+    // Returns the index an id had in the previous frame, or -1
+    private int find(long id) {
+        int mask = slotIds.length - 1;
+        for (int slot = slot(id, mask); slotIndices[slot] >= 0; slot = (slot + 1) & mask) {
+            if (slotIds[slot] == id) {
+                return slotIndices[slot];
+            }
+        }
+        return -1;
+    }
+
+    private static int slot(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void prepareCells() {
+        cellCols = (imageWidth + CELL_SIZE - 1) / CELL_SIZE;
+        cellRows = (imageHeight + CELL_SIZE - 1) / CELL_SIZE;
+        if (cells.length != cellCols * cellRows) {
+            cells = new boolean[cellCols * cellRows];
+        } else {
+            Arrays.fill(cells, false);
+        }
+        damagedCells = 0;
+    }
+
+    // Marks the cells covered by the given bounds
+    private void mark(int[] bounds, int offset) {
+        int firstCol = Math.max(0, Math.floorDiv(bounds[offset], CELL_SIZE));
+        int firstRow = Math.max(0, Math.floorDiv(bounds[offset + 1], CELL_SIZE));
+        int lastCol = Math.min(cellCols - 1, Math.floorDiv(bounds[offset + 2] - 1, CELL_SIZE));
+        int lastRow = Math.min(cellRows - 1, Math.floorDiv(bounds[offset + 3] - 1, CELL_SIZE));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int cell = row * cellCols + col;
+                if (!cells[cell]) {
+                    cells[cell] = true;
+                    damagedCells++;
+                }
+            }
+        }
+    }
+
+    // Merges the marked cells into regions, returns false if there are too many
+    private boolean mergeRegions() {
+        for (int row = 0; row < cellRows; row++) {
+            int col = 0;
+            while (col < cellCols) {
+                if (!cells[row * cellCols + col]) {
+                    col++;
+                    continue;
+                }
+                int start = col;
+                while (col < cellCols && cells[row * cellCols + col]) {
+                    col++;
+                }
+                if (!extendRegion(start, col, row) && !addRegion(start, col, row)) {
+                    return false;
+                }
+            }
+        }
+        for (int i = 0; i < regionCount; i++) {
+            regionX[i] *= CELL_SIZE;
+            regionY[i] *= CELL_SIZE;
+            regionWidth[i] = Math.min(regionWidth[i] * CELL_SIZE, imageWidth - regionX[i]);
+            regionHeight[i] = Math.min(regionHeight[i] * CELL_SIZE, imageHeight - regionY[i]);
+        }
+        return true;
+    }
+
+    // Extends the region that ends just above a run of cells and has the same columns
+    private boolean extendRegion(int startCol, int endCol, int row) {
+        for (int i = 0; i < regionCount; i++) {
+            if (regionX[i] == startCol && regionWidth[i] == endCol - startCol
+                    && regionY[i] + regionHeight[i] == row) {
+                regionHeight[i]++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean addRegion(int startCol, int endCol, int row) {
+        if (regionCount == MAX_REGIONS) {
+            return false;
+        }
+        regionX[regionCount] = startCol;
+        regionY[regionCount] = row;
+        regionWidth[regionCount] = endCol - startCol;
+        regionHeight[regionCount] = 1;
+        regionCount++;
+        return true;
+    }
+}
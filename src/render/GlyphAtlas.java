@@ -0,0 +1,240 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import main.AssetManager;
+
+/**
+ * The glyphs of a font rasterized once, in one color, into a single image.
+ * Drawing a string through Graphics2D lays its glyphs out again every time it
+ * is drawn. With an atlas every character is one image copy at its offset,
+ * and the text is moved along by the advance of each glyph, which was read
+ * when the atlas was made. Text is drawn from a TextBuffer, so drawing and
+ * measuring it does not allocate.
+ *
+ * Kerning and ligatures are not applied, which is fine for the pixel font of
+ * the HUD. Characters the atlas does not hold are skipped.
+ */
+public class GlyphAtlas {
+    // The printable ASCII characters, from the space to the tilde
+    public static final String PRINTABLE_ASCII;
+
+    static {
+        char[] printable = new char['~' - ' ' + 1];
+        for (int i = 0; i < printable.length; i++) {
+            printable[i] = (char) (' ' + i);
+        }
+        PRINTABLE_ASCII = new String(printable);
+    }
+
+    // Glyphs are placed in rows of at most this many pixels, with a margin of
+    // transparent pixels around each, in case antialiasing reaches outside its
+    // pixel bounds
+    private static final int MAX_ROW_WIDTH = 512;
+    private static final int GLYPH_MARGIN = 1;
+
+    private final BufferedImage image;
+    private final int ascent;
+    private final int lineHeight;
+
+    // Index of the glyph of each character, -1 for characters without one
+    private final int[] glyphOf;
+
+    // Per glyph: its area in the image, its offset from the pen position on
+    // the baseline, and how far it moves the pen
+    private final int[] glyphX;
+    private final int[] glyphY;
+    private final int[] glyphWidth;
+    private final int[] glyphHeight;
+    private final int[] glyphOffsetX;
+    private final int[] glyphOffsetY;
+    private final int[] glyphAdvance;
+
+    /**
+     * Constructor for the GlyphAtlas class. The glyph of every character is
+     * measured and then drawn into the image, antialiased.
+     *
+     * @param font       The font to rasterize, at the size it is drawn at.
+     * @param color      The color of the text.
+     * @param characters The characters the atlas holds.
+     */
+    public GlyphAtlas(Font font, Color color, String characters) {
+        FontRenderContext context = new FontRenderContext(null, true, false);
+        LineMetrics metrics = font.getLineMetrics(characters, context);
+        ascent = (int) Math.ceil(metrics.getAscent());
+        lineHeight = (int) Math.ceil(metrics.getAscent() + metrics.getDescent() + metrics.getLeading());
+
+        int maxChar = 0;
+        for (int i = 0; i < characters.length(); i++) {
+            maxChar = Math.max(maxChar, characters.charAt(i));
+        }
+        glyphOf = new int[maxChar + 1];
+        Arrays.fill(glyphOf, -1);
+        int count = characters.length();
+        glyphX = new int[count];
+        glyphY = new int[count];
+        glyphWidth = new int[count];
+        glyphHeight = new int[count];
+        glyphOffsetX = new int[count];
+        glyphOffsetY = new int[count];
+        glyphAdvance = new int[count];
+
+        // Measure every glyph and place it in the rows of the image
+        GlyphVector[] glyphs = new GlyphVector[count];
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        int width = 1;
+        for (int i = 0; i < count; i++) {
+            char c = characters.charAt(i);
+            glyphOf[c] = i;
+            glyphs[i] = font.createGlyphVector(context, new char[] { c });
+            Rectangle bounds = glyphs[i].getPixelBounds(context, 0, 0);
+            glyphAdvance[i] = Math.round(glyphs[i].getGlyphMetrics(0).getAdvance());
+            if (bounds.isEmpty()) {
+                continue;
+            }
+            glyphWidth[i] = bounds.width + GLYPH_MARGIN * 2;
+            glyphHeight[i] = bounds.height + GLYPH_MARGIN * 2;
+            glyphOffsetX[i] = bounds.x - GLYPH_MARGIN;
+            glyphOffsetY[i] = bounds.y - GLYPH_MARGIN;
+            if (x > 0 && x + glyphWidth[i] > MAX_ROW_WIDTH) {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+            glyphX[i] = x;
+            glyphY[i] = y;
+            x += glyphWidth[i];
+            width = Math.max(width, x);
+            rowHeight = Math.max(rowHeight, glyphHeight[i]);
+        }
+
+        image = AssetManager.createCompatibleImage(width, Math.max(1, y + rowHeight), Transparency.TRANSLUCENT);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+            g2d.setColor(color);
+            for (int i = 0; i < count; i++) {
+                if (glyphWidth[i] > 0) {
+                    g2d.drawGlyphVector(glyphs[i], glyphX[i] - glyphOffsetX[i], glyphY[i] - glyphOffsetY[i]);
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    // Returns the image holding the glyphs
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    // Returns the distance from the top of a line to its baseline, in pixels
+    public int getAscent() {
+        return ascent;
+    }
+
+    // Returns the distance between the baselines of two lines, in pixels
+    public int getLineHeight() {
+        return lineHeight;
+    }
+
+    /**
+     * This method is responsible for measuring how far drawing a text moves the
+     * pen, which is the width to center it with.
+     *
+     * @param text The text to measure.
+     * @return The width of the text, in pixels.
+     */
+    public int getWidth(TextBuffer text) {
+        char[] chars = text.getChars();
+        int width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int glyph = glyphOf(chars[i]);
+            if (glyph >= 0) {
+                width += glyphAdvance[glyph];
+            }
+        }
+        return width;
+    }
+
+    /**
+     * This method is responsible for finding the area the glyphs of a text
+     * cover, relative to the start of its baseline.
+     *
+     * @param text   The text to measure.
+     * @param bounds The rectangle to store the area in. It is left empty if no
+     *               character of the text has a visible glyph.
+     */
+    public void getBounds(TextBuffer text, Rectangle bounds) {
+        char[] chars = text.getChars();
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        int x = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int glyph = glyphOf(chars[i]);
+            if (glyph < 0) {
+                continue;
+            }
+            if (glyphWidth[glyph] > 0) {
+                left = Math.min(left, x + glyphOffsetX[glyph]);
+                top = Math.min(top, glyphOffsetY[glyph]);
+                right = Math.max(right, x + glyphOffsetX[glyph] + glyphWidth[glyph]);
+                bottom = Math.max(bottom, glyphOffsetY[glyph] + glyphHeight[glyph]);
+            }
+            x += glyphAdvance[glyph];
+        }
+        if (left > right) {
+            bounds.setBounds(0, 0, 0, 0);
+        } else {
+            bounds.setBounds(left, top, right - left, bottom - top);
+        }
+    }
+
+    /**
+     * This method is responsible for drawing a text, one glyph copy per
+     * character. Like Graphics2D.drawString, the text starts at the given x
+     * coordinate with its baseline at the given y coordinate.
+     *
+     * @param g2d  The Graphics2D object to draw on.
+     * @param text The text to draw.
+     * @param x    The x coordinate of the start of the text.
+     * @param y    The y coordinate of the baseline of the text.
+     */
+    public void draw(Graphics2D g2d, TextBuffer text, int x, int y) {
+        char[] chars = text.getChars();
+        for (int i = 0; i < text.length(); i++) {
+            int glyph = glyphOf(chars[i]);
+            if (glyph < 0) {
+                continue;
+            }
+            if (glyphWidth[glyph] > 0) {
+                int left = x + glyphOffsetX[glyph];
+                int top = y + glyphOffsetY[glyph];
+                int sourceX = glyphX[glyph];
+                int sourceY = glyphY[glyph];
+                g2d.drawImage(image, left, top, left + glyphWidth[glyph], top + glyphHeight[glyph], sourceX,
+                        sourceY, sourceX + glyphWidth[glyph], sourceY + glyphHeight[glyph], null);
+            }
+            x += glyphAdvance[glyph];
+        }
+    }
+
+    private int glyphOf(char c) {
+        return c < glyphOf.length ? glyphOf[c] : -1;
+    }
+}
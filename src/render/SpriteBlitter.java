@@ -0,0 +1,331 @@
+package render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import simulation.RenderSnapshot;
+
+/**
+ * Draws the entities of a snapshot by writing pixels straight into the int
+ * array of an image, without going through Graphics2D.
+ * Every drawImage and drawRect call validates the rendering pipeline and makes
+ * a native call, which is most of the cost of drawing one small sprite. The
+ * blitter unpacks every sprite into an int array once, and then copies it into
+ * the frame with a plain loop: an opaque sprite drawn at its own size is one
+ * array copy per row, any other sprite keeps the pixels whose alpha is at least
+ * half and skips the others. Sprites drawn at another size are sampled with
+ * nearest-neighbour, through a column table computed once per frame.
+ *
+ * With a parallelism above 1 the rows of the frame are split into bands that
+ * are drawn on a fork-join pool. Every band draws all the entities clipped to
+ * its rows, so no two workers write the same pixel and the result is the same
+ * as drawing on one thread.
+ *
+ * The radius circles are not drawn, they are few and are left to Graphics2D,
+ * which draws them before the blitter. WorldRenderer draws the radius of each
+ * tower and of the player right after its sprite, so where a circle crosses an
+ * earlier tower, the player or a bullet, the blitter draws the sprite over the
+ * circle instead of under it. Everything else is drawn in the same order.
+ */
+public class SpriteBlitter {
+    private static final int ALPHA_THRESHOLD = 0x80;
+    private static final int MIN_BAND_ROWS = 16;
+
+    // Colors of the hitbox outlines and of the bullets, like WorldRenderer
+    private static final int PLAYER_HITBOX_COLOR = 0xFFFFFF00;
+    private static final int ENEMY_HITBOX_COLOR = 0xFFFF0000;
+    private static final int BULLET_COLOR = 0xFFFFFFFF;
+    private static final int BULLET_HITBOX_COLOR = 0xFFFFFF00;
+    private static final int BULLET_SIZE = 2;
+
+    // Unpacked sprites, indexed by sprite id
+    private final int[][] spritePixels;
+    private final int[] spriteWidths;
+    private final int[] spriteHeights;
+    private final boolean[] isSpriteOpaque;
+    private final int spriteSize;
+
+    private ForkJoinPool pool;
+
+    // The frame being drawn
+    private int[] pixels;
+    private int width;
+    private int clipLeft;
+    private int clipRight;
+    private RenderSnapshot snapshot;
+    private double originX;
+    private double originY;
+    private double scale;
+    private int drawSize;
+    private int[][] columns;
+
+    /**
+     * Constructor for the SpriteBlitter class.
+     *
+     * @param sprites    The sprite images, indexed by sprite id.
+     * @param spriteSize The size sprites are drawn at, in world pixels.
+     */
+    public SpriteBlitter(BufferedImage[] sprites, int spriteSize) {
+        this.spriteSize = spriteSize;
+        this.spritePixels = new int[sprites.length][];
+        this.spriteWidths = new int[sprites.length];
+        this.spriteHeights = new int[sprites.length];
+        this.isSpriteOpaque = new boolean[sprites.length];
+        this.columns = new int[sprites.length][];
+        for (int i = 0; i < sprites.length; i++) {
+            BufferedImage sprite = sprites[i];
+            int spriteWidth = sprite != null ? sprite.getWidth() : 1;
+            int spriteHeight = sprite != null ? sprite.getHeight() : 1;
+            int[] unpacked = new int[spriteWidth * spriteHeight];
+            if (sprite != null) {
+                sprite.getRGB(0, 0, spriteWidth, spriteHeight, unpacked, 0, spriteWidth);
+            }
+            boolean isOpaque = true;
+            for (int pixel : unpacked) {
+                isOpaque &= pixel >>> 24 == 0xFF;
+            }
+            spritePixels[i] = unpacked;
+            spriteWidths[i] = spriteWidth;
+            spriteHeights[i] = spriteHeight;
+            isSpriteOpaque[i] = isOpaque;
+        }
+    }
+
+    // Returns the number of threads the frame is drawn on
+    public int getParallelism() {
+        return pool != null ? pool.getParallelism() : 1;
+    }
+
+    /**
+     * This method is responsible for choosing the number of threads the frame is
+     * drawn on. A parallelism of 1 or less draws on the calling thread.
+     *
+     * @param parallelism The number of worker threads.
+     */
+    public void setParallelism(int parallelism) {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * This method is responsible for stopping the worker threads.
+     */
+    public void shutdown() {
+        setParallelism(1);
+    }
+
+    /**
+     * This method is responsible for drawing the entities of a snapshot into an
+     * image: the towers, the player, the bullets and the enemies, with their
+     * hitboxes, in the order WorldRenderer draws them. The attack radii are not
+     * drawn; see the class comment.
+     *
+     * @param image    The image to draw into, backed by a DataBufferInt, like the
+     *                 image of a Backbuffer.
+     * @param snapshot The state to draw.
+     * @param originX  The world x coordinate of the left edge of the image.
+     * @param originY  The world y coordinate of the top edge of the image.
+     * @param scale    The number of image pixels per world pixel.
+     */
+    public void draw(BufferedImage image, RenderSnapshot snapshot, double originX, double originY, double scale) {
+        draw(image, snapshot, originX, originY, scale, 0, 0, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * This method is responsible for drawing the entities of a snapshot into a
+     * region of an image. Nothing outside of the region is written.
+     *
+     * @param image      The image to draw into, backed by a DataBufferInt.
+     * @param snapshot   The state to draw.
+     * @param originX    The world x coordinate of the left edge of the image.
+     * @param originY    The world y coordinate of the top edge of the image.
+     * @param scale      The number of image pixels per world pixel.
+     * @param clipX      The left edge of the region, in image pixels.
+     * @param clipY      The top edge of the region, in image pixels.
+     * @param clipWidth  The width of the region, in image pixels.
+     * @param clipHeight The height of the region, in image pixels.
+     */
+    public void draw(BufferedImage image, RenderSnapshot snapshot, double originX, double originY, double scale,
+            int clipX, int clipY, int clipWidth, int clipHeight) {
+        this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        this.width = image.getWidth();
+        this.clipLeft = Math.max(0, clipX);
+        this.clipRight = Math.min(width, clipX + clipWidth);
+        this.snapshot = snapshot;
+        this.originX = originX;
+        this.originY = originY;
+        this.scale = scale;
+        prepareColumns(Math.max(1, (int) Math.round(spriteSize * scale)));
+
+        int top = Math.max(0, clipY);
+        int bottom = Math.min(image.getHeight(), clipY + clipHeight);
+        int rows = bottom - top;
+        int bands = pool != null ? Math.min(pool.getParallelism(), rows / MIN_BAND_ROWS) : 1;
+        if (bands <= 1) {
+            drawBand(top, bottom);
+        } else {
+            pool.invoke(new BandTask(0, bands, bands, top, rows));
+        }
+        this.snapshot = null;
+    }
+
+    // Builds, for every sprite, the source column of every column it is drawn on
+    private void prepareColumns(int size) {
+        if (size == drawSize && columns[0] != null) {
+            return;
+        }
+        drawSize = size;
+        for (int i = 0; i < columns.length; i++) {
+            int[] spriteColumns = new int[size];
+            for (int x = 0; x < size; x++) {
+                spriteColumns[x] = x * spriteWidths[i] / size;
+            }
+            columns[i] = spriteColumns;
+        }
+    }
+
+    private int toImageX(float worldX) {
+        return (int) Math.floor((worldX - originX) * scale);
+    }
+
+    private int toImageY(float worldY) {
+        return (int) Math.floor((worldY - originY) * scale);
+    }
+
+    // Draws everything that falls in the rows from top to bottom - 1
+    private void drawBand(int top, int bottom) {
+        RenderSnapshot snapshot = this.snapshot;
+        for (int i = 0; i < snapshot.towerCount; i++) {
+            blitSprite(RenderSnapshot.SPRITE_TOWER, toImageX(snapshot.towerX[i]), toImageY(snapshot.towerY[i]),
+                    top, bottom);
+        }
+        blitSprite(RenderSnapshot.SPRITE_PLAYER, toImageX(snapshot.playerX), toImageY(snapshot.playerY), top,
+                bottom);
+        for (int i = 0; i < snapshot.bulletCount; i++) {
+            if (snapshot.bulletVisible[i]) {
+                int x = toImageX(snapshot.bulletX[i]);
+                int y = toImageY(snapshot.bulletY[i]);
+                int size = Math.max(1, (int) Math.round(BULLET_SIZE * scale));
+                fillRect(x, y, size, size, BULLET_COLOR, top, bottom);
+            }
+            outlineRect(snapshot.bulletHitboxX[i], snapshot.bulletHitboxY[i], snapshot.bulletHitboxWidth[i],
+                    snapshot.bulletHitboxHeight[i], BULLET_HITBOX_COLOR, top, bottom);
+        }
+        outlineRect(snapshot.playerHitboxX, snapshot.playerHitboxY, snapshot.playerHitboxWidth,
+                snapshot.playerHitboxHeight, PLAYER_HITBOX_COLOR, top, bottom);
+        for (int i = 0; i < snapshot.enemyCount; i++) {
+            blitSprite(snapshot.enemySprite[i], toImageX(snapshot.enemyX[i]), toImageY(snapshot.enemyY[i]), top,
+                    bottom);
+            outlineRect(snapshot.enemyHitboxX[i], snapshot.enemyHitboxY[i], snapshot.enemyHitboxWidth[i],
+                    snapshot.enemyHitboxHeight[i], ENEMY_HITBOX_COLOR, top, bottom);
+        }
+    }
+
+    private void blitSprite(int spriteId, int x, int y, int top, int bottom) {
+        int size = drawSize;
+        int firstRow = Math.max(y, top);
+        int lastRow = Math.min(y + size, bottom);
+        int firstCol = Math.max(x, clipLeft);
+        int lastCol = Math.min(x + size, clipRight);
+        if (firstRow >= lastRow || firstCol >= lastCol) {
+            return;
+        }
+        int[] source = spritePixels[spriteId];
+        int sourceWidth = spriteWidths[spriteId];
+        int sourceHeight = spriteHeights[spriteId];
+        int[] target = pixels;
+        if (size == sourceWidth && size == sourceHeight) {
+            int length = lastCol - firstCol;
+            boolean isOpaque = isSpriteOpaque[spriteId];
+            for (int row = firstRow; row < lastRow; row++) {
+                int from = (row - y) * sourceWidth + firstCol - x;
+                int to = row * width + firstCol;
+                if (isOpaque) {
+                    System.arraycopy(source, from, target, to, length);
+                    continue;
+                }
+                for (int k = 0; k < length; k++) {
+                    int pixel = source[from + k];
+                    if (pixel >>> 24 >= ALPHA_THRESHOLD) {
+                        target[to + k] = pixel;
+                    }
+                }
+            }
+            return;
+        }
+        int[] spriteColumns = columns[spriteId];
+        for (int row = firstRow; row < lastRow; row++) {
+            int sourceRow = (row - y) * sourceHeight / size * sourceWidth;
+            int to = row * width;
+            for (int col = firstCol; col < lastCol; col++) {
+                int pixel = source[sourceRow + spriteColumns[col - x]];
+                if (pixel >>> 24 >= ALPHA_THRESHOLD) {
+                    target[to + col] = pixel;
+                }
+            }
+        }
+    }
+
+    private void fillRect(int x, int y, int rectWidth, int rectHeight, int color, int top, int bottom) {
+        int firstRow = Math.max(y, top);
+        int lastRow = Math.min(y + rectHeight, bottom);
+        int firstCol = Math.max(x, clipLeft);
+        int lastCol = Math.min(x + rectWidth, clipRight);
+        for (int row = firstRow; row < lastRow; row++) {
+            int offset = row * width;
+            for (int col = firstCol; col < lastCol; col++) {
+                pixels[offset + col] = color;
+            }
+        }
+    }
+
+    // Draws the outline of a rectangle given in world pixels, one image pixel wide
+    private void outlineRect(int worldX, int worldY, int worldWidth, int worldHeight, int color, int top,
+            int bottom) {
+        int left = toImageX(worldX);
+        int topEdge = toImageY(worldY);
+        int right = toImageX(worldX + worldWidth);
+        int bottomEdge = toImageY(worldY + worldHeight);
+        fillRect(left, topEdge, right - left + 1, 1, color, top, bottom);
+        fillRect(left, bottomEdge, right - left + 1, 1, color, top, bottom);
+        fillRect(left, topEdge + 1, 1, bottomEdge - topEdge - 1, color, top, bottom);
+        fillRect(right, topEdge + 1, 1, bottomEdge - topEdge - 1, color, top, bottom);
+    }
+
+    // Splits a range of bands in halves until a single band is left
+    private class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int firstBand;
+        private final int lastBand;
+        private final int bands;
+        private final int top;
+        private final int rows;
+
+        BandTask(int firstBand, int lastBand, int bands, int top, int rows) {
+            this.firstBand = firstBand;
+            this.lastBand = lastBand;
+            this.bands = bands;
+            this.top = top;
+            this.rows = rows;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastBand - firstBand == 1) {
+                drawBand(top + firstBand * rows / bands, top + (firstBand + 1) * rows / bands);
+                return;
+            }
+            int middle = (firstBand + lastBand) >>> 1;
+            invokeAll(new BandTask(firstBand, middle, bands, top, rows),
+                    new BandTask(middle, lastBand, bands, top, rows));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package render;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of characters, for text that is built again every frame,
+ * like the counters of the HUD.
+ * Concatenating a string with a number allocates the digits, a builder and
+ * the resulting string each time. A TextBuffer is cleared and filled again
+ * instead: numbers are written straight into its characters, and the array
+ * only grows, so filling it does not allocate once it is large enough.
+ */
+public class TextBuffer {
+    private char[] chars;
+    private int length;
+
+    /**
+     * Constructor for the TextBuffer class.
+     *
+     * @param capacity The number of characters the buffer holds before growing.
+     */
+    public TextBuffer(int capacity) {
+        chars = new char[Math.max(1, capacity)];
+    }
+
+    // Returns the characters of the buffer, of which the first length() are text
+    public char[] getChars() {
+        return chars;
+    }
+
+    // Returns the number of characters in the buffer
+    public int length() {
+        return length;
+    }
+
+    // Empties the buffer, keeping its capacity
+    public TextBuffer clear() {
+        length = 0;
+        return this;
+    }
+
+    // Appends a single character
+    public TextBuffer append(char c) {
+        ensureCapacity(length + 1);
+        chars[length++] = c;
+        return this;
+    }
+
+    // Appends the characters of a string
+    public TextBuffer append(String text) {
+        ensureCapacity(length + text.length());
+        text.getChars(0, text.length(), chars, length);
+        length += text.length();
+        return this;
+    }
+
+    /**
+     * This method is responsible for appending the decimal digits of a number,
+     * with a minus sign if it is negative. The digits are counted first and then
+     * written from the last one, so no intermediate string is made.
+     *
+     * @param value The number to append.
+     * @return This buffer.
+     */
+    public TextBuffer append(long value) {
+        // Negative values are counted down instead, so Long.MIN_VALUE does not
+        // overflow
+        long remaining = value < 0 ? value : -value;
+        int digits = 1;
+        for (long rest = remaining / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = length + digits + (value < 0 ? 1 : 0);
+        ensureCapacity(end);
+        if (value < 0) {
+            chars[length] = '-';
+        }
+        for (int i = end - 1; i >= end - digits; i--) {
+            chars[i] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        length = end;
+        return this;
+    }
+
+    /**
+     * This method is responsible for appending a fixed-point number: the given
+     * value divided by ten to the power of the given number of decimals, e.g.
+     * a duration in microseconds appended as milliseconds with three decimals.
+     * The decimals are always written, with leading zeros, so the numbers of a
+     * column line up.
+     *
+     * @param value    The number to append, scaled by ten to the power of the
+     *                 decimals.
+     * @param decimals The number of digits after the decimal point.
+     * @return This buffer.
+     */
+    public TextBuffer append(long value, int decimals) {
+        if (decimals <= 0) {
+            return append(value);
+        }
+        // Counted down like append(long), so Long.MIN_VALUE does not overflow
+        long remaining = value < 0 ? value : -value;
+        long whole = remaining;
+        for (int i = 0; i < decimals; i++) {
+            whole /= 10;
+        }
+        int wholeDigits = 1;
+        for (long rest = whole / 10; rest != 0; rest /= 10) {
+            wholeDigits++;
+        }
+        int end = length + (value < 0 ? 1 : 0) + wholeDigits + 1 + decimals;
+        ensureCapacity(end);
+        if (value < 0) {
+            chars[length] = '-';
+        }
+        int point = end - decimals - 1;
+        for (int i = end - 1; i > point; i--) {
+            chars[i] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        chars[point] = '.';
+        for (int i = point - 1; i >= point - wholeDigits; i--) {
+            chars[i] = (char) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+        length = end;
+        return this;
+    }
+
+    // Appends spaces until the buffer holds the given number of characters, to
+    // end a column of text aligned to the left
+    public TextBuffer padTo(int newLength) {
+        ensureCapacity(newLength);
+        while (length < newLength) {
+            chars[length++] = ' ';
+        }
+        return this;
+    }
+
+    // Moves the text appended since the given start to the right of a column of
+    // the given width, filling the space before it; text wider than the column
+    // is left as it is
+    public TextBuffer alignRight(int start, int width) {
+        int shift = start + width - length;
+        if (shift <= 0) {
+            return this;
+        }
+        ensureCapacity(length + shift);
+        System.arraycopy(chars, start, chars, start + shift, length - start);
+        Arrays.fill(chars, start, start + shift, ' ');
+        length += shift;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+}
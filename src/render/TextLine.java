@@ -0,0 +1,99 @@
+package render;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+import main.AssetManager;
+
+/**
+ * A line of text drawn from a GlyphAtlas and kept as an image, for text that
+ * is drawn every frame but changes rarely, like the FPS counter, which
+ * changes once a second.
+ * Each frame the text is compared with the one in the image. Only when it
+ * differs are the glyphs copied into the image again; otherwise the line is
+ * drawn as one image copy instead of one per character. The image only grows,
+ * so a line does not allocate once it has held its longest text.
+ */
+public class TextLine {
+    private final GlyphAtlas atlas;
+
+    // The text in the image, and the area of its glyphs relative to the start
+    // of its baseline
+    private final TextBuffer text = new TextBuffer(16);
+    private final Rectangle bounds = new Rectangle();
+    private BufferedImage image;
+
+    /**
+     * Constructor for the TextLine class.
+     *
+     * @param atlas The glyphs to draw the text with.
+     */
+    public TextLine(GlyphAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    /**
+     * This method is responsible for drawing a text, starting at the given x
+     * coordinate with its baseline at the given y coordinate, like
+     * Graphics2D.drawString. The image is drawn again first if the text changed.
+     *
+     * @param g2d     The Graphics2D object to draw on.
+     * @param newText The text to draw.
+     * @param x       The x coordinate of the start of the text.
+     * @param y       The y coordinate of the baseline of the text.
+     */
+    public void draw(Graphics2D g2d, TextBuffer newText, int x, int y) {
+        if (image == null || !isSame(newText)) {
+            redraw(newText);
+        }
+        if (bounds.isEmpty()) {
+            return;
+        }
+        int left = x + bounds.x;
+        int top = y + bounds.y;
+        g2d.drawImage(image, left, top, left + bounds.width, top + bounds.height, 0, 0, bounds.width,
+                bounds.height, null);
+    }
+
+    private boolean isSame(TextBuffer newText) {
+        if (newText.length() != text.length()) {
+            return false;
+        }
+        char[] chars = text.getChars();
+        char[] newChars = newText.getChars();
+        for (int i = 0; i < text.length(); i++) {
+            if (chars[i] != newChars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void redraw(TextBuffer newText) {
+        text.clear();
+        char[] newChars = newText.getChars();
+        for (int i = 0; i < newText.length(); i++) {
+            text.append(newChars[i]);
+        }
+        atlas.getBounds(text, bounds);
+        int width = Math.max(1, bounds.width);
+        int height = Math.max(1, bounds.height);
+        if (image == null || image.getWidth() < width || image.getHeight() < height) {
+            int imageWidth = image == null ? width : Math.max(width, image.getWidth());
+            int imageHeight = image == null ? height : Math.max(height, image.getHeight());
+            image = AssetManager.createCompatibleImage(imageWidth, imageHeight, Transparency.TRANSLUCENT);
+        }
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setComposite(AlphaComposite.Clear);
+            g2d.fillRect(0, 0, width, height);
+            g2d.setComposite(AlphaComposite.SrcOver);
+            atlas.draw(g2d, text, -bounds.x, -bounds.y);
+        } finally {
+            g2d.dispose();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import entity.Enemy;
+import entity.Player;
+import entity.Tower;
+import main.AssetManager;
+import simulation.RenderSnapshot;
+
+public class WorldRenderer {
+    private static final AffineTransform IDENTITY = new AffineTransform();
+    private static final int CIRCLE_CACHE_SIZE = 8;
+
+    private final int tileSize;
+    private final BufferedImage[] sprites;
+
+    // Attack radius outlines, by color and size in device pixels
+    private final BufferedImage[] circles = new BufferedImage[CIRCLE_CACHE_SIZE];
+    private final int[] circleColors = new int[CIRCLE_CACHE_SIZE];
+    private int nextCircle = 0;
+
+    /**
+     * Constructor for the WorldRenderer class.
+     *
+     * @param tileSize The size entity sprites are drawn at.
+     */
+    public WorldRenderer(int tileSize) {
+        this.tileSize = tileSize;
+        this.sprites = new BufferedImage[] {
+                AssetManager.getImage(Player.SPRITE_PATH),
+                AssetManager.getImage(Enemy.SPRITE_PATH),
+                AssetManager.getImage(Tower.SPRITE_PATH)
+        };
+    }
+
+    // Returns the image of the given sprite id
+    public BufferedImage getSprite(int spriteId) {
+        return sprites[spriteId];
+    }
+
+    // Returns the images of every sprite, indexed by sprite id
+    public BufferedImage[] getSprites() {
+        return sprites.clone();
+    }
+
+    // Returns the size sprites are drawn at
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * This method is responsible for drawing the entities of a snapshot.
+     * It draws the towers with their attack radius, the player, the bullets,
+     * its attack radius and its hitbox, and then every enemy with its hitbox. Only the snapshot is read, so it is safe
+     * to call while the world is being ticked on another thread.
+     * Bullets and enemies outside of the clip of the Graphics2D object are
+     * skipped, so drawing a small region of the frame costs little.
+     *
+     * @param g2d      The Graphics2D object to draw on.
+     * @param snapshot The state to draw.
+     */
+    public void draw(Graphics2D g2d, RenderSnapshot snapshot) {
+        drawTowers(g2d, snapshot);
+        drawPlayer(g2d, snapshot);
+        drawEnemies(g2d, snapshot);
+    }
+
+    /**
+     * This method is responsible for drawing only the attack radius of the
+     * towers and of the player, for when the sprites are drawn by a
+     * SpriteBlitter. The radii are drawn before the sprites, under all of them.
+     *
+     * @param g2d      The Graphics2D object to draw on.
+     * @param snapshot The state to draw.
+     */
+    public void drawAttackRadii(Graphics2D g2d, RenderSnapshot snapshot) {
+        for (int i = 0; i < snapshot.towerCount; i++) {
+            drawTowerAttackRadius(g2d, snapshot, i);
+        }
+        drawPlayerAttackRadius(g2d, snapshot);
+    }
+
+    private void drawTowers(Graphics2D g2d, RenderSnapshot snapshot) {
+        for (int i = 0; i < snapshot.towerCount; i++) {
+            g2d.drawImage(sprites[RenderSnapshot.SPRITE_TOWER], (int) snapshot.towerX[i], (int) snapshot.towerY[i],
+                    tileSize, tileSize, null);
+            drawTowerAttackRadius(g2d, snapshot, i);
+        }
+    }
+
+    private void drawTowerAttackRadius(Graphics2D g2d, RenderSnapshot snapshot, int i) {
+        int x = (int) snapshot.towerX[i];
+        int y = (int) snapshot.towerY[i];
+        double attackRadius = snapshot.towerAttackRadius[i];
+        drawCircle(g2d, Color.GRAY, (int) (x - attackRadius + tileSize / 2), (int) (y - attackRadius + tileSize / 2),
+                (int) (2 * attackRadius));
+    }
+
+    private void drawPlayer(Graphics2D g2d, RenderSnapshot snapshot) {
+        g2d.drawImage(sprites[RenderSnapshot.SPRITE_PLAYER], (int) snapshot.playerX, (int) snapshot.playerY,
+                tileSize, tileSize, null);
+
+        drawBullets(g2d, snapshot);
+        drawPlayerAttackRadius(g2d, snapshot);
+
+        // Draw hitbox
+        g2d.setColor(Color.YELLOW);
+        g2d.drawRect(snapshot.playerHitboxX, snapshot.playerHitboxY, snapshot.playerHitboxWidth,
+                snapshot.playerHitboxHeight);
+    }
+
+    private void drawPlayerAttackRadius(Graphics2D g2d, RenderSnapshot snapshot) {
+        double attackRadius = snapshot.playerAttackRadius;
+        drawCircle(g2d, Color.WHITE, (int) (snapshot.playerX - attackRadius + snapshot.playerWidth / 2),
+                (int) (snapshot.playerY - attackRadius + snapshot.playerHeight / 2), (int) (2 * attackRadius));
+    }
+
+    /**
+     * This method is responsible for drawing the outline of a circle, like
+     * drawOval, from an image of the circle drawn once for its color and size.
+     * How Graphics2D strokes an oval depends on the clip, so an oval drawn again
+     * in a small region of the frame would not match the one drawn with the
+     * whole frame; an image is copied the same way whatever the clip. It is also
+     * cheaper than stroking the oval every frame.
+     *
+     * @param g2d      The Graphics2D object to draw on.
+     * @param color    The color of the outline.
+     * @param x        The left edge of the circle.
+     * @param y        The top edge of the circle.
+     * @param diameter The diameter of the circle.
+     */
+    private void drawCircle(Graphics2D g2d, Color color, int x, int y, int diameter) {
+        AffineTransform transform = g2d.getTransform();
+        if (transform.getShearX() != 0 || transform.getShearY() != 0) {
+            g2d.setColor(color);
+            g2d.drawOval(x, y, diameter, diameter);
+            return;
+        }
+        int deviceX = (int) Math.floor(x * transform.getScaleX() + transform.getTranslateX());
+        int deviceY = (int) Math.floor(y * transform.getScaleY() + transform.getTranslateY());
+        int deviceWidth = (int) Math.round(diameter * transform.getScaleX());
+        int deviceHeight = (int) Math.round(diameter * transform.getScaleY());
+        BufferedImage circle = getCircle(color, deviceWidth, deviceHeight);
+        g2d.setTransform(IDENTITY);
+        g2d.drawImage(circle, deviceX, deviceY, null);
+        g2d.setTransform(transform);
+    }
+
+    // Returns the image of a circle outline, drawn the first time it is needed
+    private BufferedImage getCircle(Color color, int width, int height) {
+        int rgb = color.getRGB();
+        for (int i = 0; i < CIRCLE_CACHE_SIZE; i++) {
+            BufferedImage circle = circles[i];
+            if (circle != null && circleColors[i] == rgb && circle.getWidth() == width + 1
+                    && circle.getHeight() == height + 1) {
+                return circle;
+            }
+        }
+        BufferedImage circle = AssetManager.createCompatibleImage(width + 1, height + 1, Transparency.BITMASK);
+        Graphics2D g2d = circle.createGraphics();
+        g2d.setColor(color);
+        g2d.drawOval(0, 0, width, height);
+        g2d.dispose();
+        circles[nextCircle] = circle;
+        circleColors[nextCircle] = rgb;
+        nextCircle = (nextCircle + 1) % CIRCLE_CACHE_SIZE;
+        return circle;
+    }
+
+    private void drawBullets(Graphics2D g2d, RenderSnapshot snapshot) {
+        Rectangle clip = g2d.getClipBounds();
+        for (int i = 0; i < snapshot.bulletCount; i++) {
+            int x = (int) snapshot.bulletX[i];
+            int y = (int) snapshot.bulletY[i];
+            if (isOutside(clip, Math.min(x, snapshot.bulletHitboxX[i]), Math.min(y, snapshot.bulletHitboxY[i]),
+                    Math.max(x + 2, snapshot.bulletHitboxX[i] + snapshot.bulletHitboxWidth[i] + 1),
+                    Math.max(y + 2, snapshot.bulletHitboxY[i] + snapshot.bulletHitboxHeight[i] + 1))) {
+                continue;
+            }
+            if (snapshot.bulletVisible[i]) {
+                g2d.setColor(Color.WHITE);
+                g2d.fillRect(x, y, 2, 2);
+            }
+            // Draw hitbox
+            g2d.setColor(Color.YELLOW);
+            g2d.drawRect(snapshot.bulletHitboxX[i], snapshot.bulletHitboxY[i], snapshot.bulletHitboxWidth[i],
+                    snapshot.bulletHitboxHeight[i]);
+        }
+    }
+
+    private void drawEnemies(Graphics2D g2d, RenderSnapshot snapshot) {
+        Rectangle clip = g2d.getClipBounds();
+        for (int i = 0; i < snapshot.enemyCount; i++) {
+            int x = (int) snapshot.enemyX[i];
+            int y = (int) snapshot.enemyY[i];
+            if (isOutside(clip, Math.min(x, snapshot.enemyHitboxX[i]), Math.min(y, snapshot.enemyHitboxY[i]),
+                    Math.max(x + tileSize, snapshot.enemyHitboxX[i] + snapshot.enemyHitboxWidth[i] + 1),
+                    Math.max(y + tileSize, snapshot.enemyHitboxY[i] + snapshot.enemyHitboxHeight[i] + 1))) {
+                continue;
+            }
+            g2d.drawImage(sprites[snapshot.enemySprite[i]], x, y, tileSize, tileSize, null);
+
+            // Draw hitbox
+            g2d.setColor(Color.RED);
+            g2d.drawRect(snapshot.enemyHitboxX[i], snapshot.enemyHitboxY[i], snapshot.enemyHitboxWidth[i],
+                    snapshot.enemyHitboxHeight[i]);
+        }
+    }
+
+    // Returns true if the given bounds are entirely outside of the clip, or false
+    // if there is no clip. One pixel of slack is kept for stroked outlines.
+    private static boolean isOutside(Rectangle clip, int left, int top, int right, int bottom) {
+        return clip != null && (right < clip.x || bottom < clip.y || left > clip.x + clip.width
+                || top > clip.y + clip.height);
+    }
+}
@@ -0,0 +1,310 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import diagnostics.EventLog;
+import diagnostics.Profiler;
+import entity.Bullet;
+import entity.Enemy;
+import entity.Entity;
+import entity.Player;
+
+/**
+ * Runs the enemy and bullet rules of a World over EntityStores instead of
+ * Enemy and Bullet objects.
+ * The rules are the same as in Enemy, Bullet and Player, written as loops over
+ * the store columns, which lets a world hold far more enemies in the same
+ * frame budget. The player and the towers stay objects.
+ *
+ * In both, the targets are picked by the TargetingSystem of the world and the
+ * bullets are moved by its ProjectileSystem.
+ */
+public class ArraySimulation {
+    // Enemy stats, the same Enemy.setDeafultValues uses
+    private static final int ENEMY_SIZE = Enemy.SIZE;
+    private static final float ENEMY_HEALTH = Enemy.HEALTH;
+    private static final float ENEMY_SPEED = Enemy.SPEED;
+    private static final float ENEMY_DAMAGE = Enemy.DAMAGE;
+    private static final float ENEMY_ATTACK_SPEED = Enemy.ATTACK_SPEED;
+
+    // Bullet stats, the same the Bullet constructor uses
+    private static final int BULLET_SIZE = Bullet.SIZE;
+    private static final float BULLET_SPEED = Bullet.SPEED;
+    private static final int BULLET_TIME_TO_LIVE_SECONDS = Bullet.TIME_TO_LIVE_SECONDS;
+
+    private final World world;
+    private final EntityStore enemies = new EntityStore();
+    private final EntityStore bullets = new EntityStore();
+    private final StoreGrid enemyGrid;
+
+    public ArraySimulation(World world) {
+        this.world = world;
+        this.enemyGrid = new StoreGrid(world.getWidth(), world.getHeight(), world.getTileSize());
+    }
+
+    // Returns the store holding the enemies
+    public EntityStore getEnemies() {
+        return enemies;
+    }
+
+    // Returns the store holding the bullets
+    public EntityStore getBullets() {
+        return bullets;
+    }
+
+    /**
+     * This method is responsible for spawning an enemy on a random edge of the
+     * world, with the same rules as Enemy.setRandomEdgeSpawn.
+     */
+    public void spawnEnemy() {
+        int scale = world.getScale();
+        int tileSize = world.getTileSize();
+        float width = ENEMY_SIZE * scale;
+        float height = ENEMY_SIZE * scale;
+        float x = 0;
+        float y = 0;
+        int randomEdge = world.getRandom().nextInt(4);
+        switch (randomEdge) {
+            case 0: // top
+                x = (int) (world.getRandom().nextDouble() * world.getWidth());
+                y = -height / scale;
+                break;
+            case 1: // right
+                x = world.getWidth() - tileSize + width / scale;
+                y = (int) (world.getRandom().nextDouble() * world.getHeight());
+                break;
+            case 2: // bottom
+                x = (int) (world.getRandom().nextDouble() * world.getWidth());
+                y = world.getHeight() - tileSize + height / scale;
+                break;
+            case 3: // left
+                x = -width / scale;
+                y = (int) (world.getRandom().nextDouble() * world.getHeight());
+                break;
+        }
+
+        int i = enemies.add();
+        enemies.id[i] = world.nextEntityId();
+        enemies.x[i] = x;
+        enemies.y[i] = y;
+        enemies.hitboxWidth[i] = (int) width;
+        enemies.hitboxHeight[i] = (int) height;
+        enemies.health[i] = ENEMY_HEALTH;
+        enemies.speed[i] = ENEMY_SPEED;
+        enemies.damage[i] = ENEMY_DAMAGE;
+        enemies.attackCooldown[i] = (int) (ENEMY_ATTACK_SPEED * world.getTicksPerSecond());
+        enemies.attackReadyTick[i] = world.getTick();
+        enemies.isMoving[i] = true;
+        updateEnemyHitbox(i, tileSize);
+    }
+
+    /**
+     * This method is responsible for updating the player, the shots of the
+     * player and the towers, the bullets and then every enemy, in the same order
+     * World.update uses for objects. Each phase is timed by the profiler of the
+     * world.
+     * The enemies are indexed by position once, and the targeting and the
+     * bullets both query that index.
+     */
+    public void update() {
+        Profiler profiler = world.getProfiler();
+        long start = System.nanoTime();
+        Player player = world.getPlayer();
+        if (!player.isAlive()) {
+            world.gameOver();
+        }
+        long playerEnd = System.nanoTime();
+        profiler.record(Profiler.Phase.PLAYER_UPDATE, start, playerEnd);
+        if (world.isGameOver()) {
+            return;
+        }
+        enemyGrid.build(enemies);
+        world.getTargeting().assign(this, enemyGrid);
+        long targetingEnd = System.nanoTime();
+        profiler.record(Profiler.Phase.TARGETING, playerEnd, targetingEnd);
+        world.getProjectiles().update(bullets, enemies, enemyGrid);
+        long bulletEnd = System.nanoTime();
+        profiler.record(Profiler.Phase.BULLET_UPDATE, targetingEnd, bulletEnd);
+        updateEnemies();
+        profiler.record(Profiler.Phase.ENEMY_UPDATE, bulletEnd, System.nanoTime());
+    }
+
+    /**
+     * This method is responsible for firing a bullet from the player or a tower
+     * at an enemy, with the same rules as Bullet.reset.
+     *
+     * @param shooter The player or the tower.
+     * @param enemy   The index of the target.
+     */
+    void fireBullet(Entity shooter, int enemy) {
+        int scale = world.getScale();
+        int i = bullets.add();
+        bullets.id[i] = world.nextEntityId();
+        bullets.target[i] = enemies.handleAt(enemy);
+        bullets.targetX[i] = enemies.x[enemy] + enemies.hitboxWidth[enemy] / 2 * scale;
+        bullets.targetY[i] = enemies.y[enemy] + enemies.hitboxHeight[enemy] / 2 * scale;
+        bullets.x[i] = shooter.getX() + shooter.getWidth() / 2;
+        bullets.y[i] = shooter.getY() + shooter.getHeight() / 2;
+        bullets.speed[i] = BULLET_SPEED;
+        bullets.damage[i] = shooter.getDamage();
+        bullets.timeToLive[i] = BULLET_TIME_TO_LIVE_SECONDS * world.getTicksPerSecond();
+        bullets.hitboxX[i] = (int) bullets.x[i];
+        bullets.hitboxY[i] = (int) bullets.y[i];
+        bullets.hitboxWidth[i] = BULLET_SIZE;
+        bullets.hitboxHeight[i] = BULLET_SIZE;
+    }
+
+    private void updateEnemies() {
+        Player player = world.getPlayer();
+        float px = player.getX();
+        float py = player.getY();
+        int tileSize = world.getTileSize();
+        int playerX = player.getHitbox().x;
+        int playerY = player.getHitbox().y;
+        int playerWidth = player.getHitbox().width;
+        int playerHeight = player.getHitbox().height;
+        float[] ex = enemies.x;
+        float[] ey = enemies.y;
+        long tick = world.getTick();
+
+        int i = 0;
+        while (i < enemies.size()) {
+            if (enemies.health[i] <= 0) {
+                EventLog.log(EventLog.Event.ENEMY_REMOVED, enemies.id[i]);
+                enemies.remove(i);
+                world.recordKill();
+                continue;
+            }
+            if (enemies.isMoving[i]) {
+                float dx = px - ex[i];
+                float dy = py - ey[i];
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                if (distance > 0) {
+                    dx /= distance;
+                    dy /= distance;
+                }
+                enemies.vx[i] = dx * enemies.speed[i];
+                enemies.vy[i] = dy * enemies.speed[i];
+                ex[i] += enemies.vx[i];
+                ey[i] += enemies.vy[i];
+            }
+            updateEnemyHitbox(i, tileSize);
+            if (EntityStore.intersects(enemies.hitboxX[i], enemies.hitboxY[i], enemies.hitboxWidth[i],
+                    enemies.hitboxHeight[i], playerX, playerY, playerWidth, playerHeight)) {
+                enemies.isMoving[i] = false;
+                enemies.vx[i] = 0;
+                enemies.vy[i] = 0;
+                if (tick >= enemies.attackReadyTick[i]) {
+                    player.setHealth(player.getHealth() - enemies.damage[i]);
+                    if (player.isAlive()) {
+                        world.getListener().onEnemyAttack();
+                    }
+                    EventLog.log(EventLog.Event.PLAYER_HEALTH, player.getId(), player.getHealth());
+                    enemies.attackReadyTick[i] = tick + enemies.attackCooldown[i];
+                }
+            }
+            i++;
+        }
+    }
+
+    /**
+     * This method is responsible for copying the enemies and bullets of the
+     * stores into a save state, in the same layout World uses for objects.
+     *
+     * @param state The save state to fill.
+     */
+    public void writeSaveState(SaveState state) {
+        int enemyCount = enemies.size();
+        state.ensureEnemyCapacity(enemyCount);
+        System.arraycopy(enemies.id, 0, state.enemyId, 0, enemyCount);
+        System.arraycopy(enemies.x, 0, state.enemyX, 0, enemyCount);
+        System.arraycopy(enemies.y, 0, state.enemyY, 0, enemyCount);
+        System.arraycopy(enemies.health, 0, state.enemyHealth, 0, enemyCount);
+        System.arraycopy(enemies.speed, 0, state.enemySpeed, 0, enemyCount);
+        System.arraycopy(enemies.damage, 0, state.enemyDamage, 0, enemyCount);
+        System.arraycopy(enemies.attackCooldown, 0, state.enemyAttackCooldown, 0, enemyCount);
+        for (int i = 0; i < enemyCount; i++) {
+            state.enemyAttackCounter[i] = World.attackCounter(world.getTick(), enemies.attackReadyTick[i],
+                    enemies.attackCooldown[i]);
+        }
+        System.arraycopy(enemies.isMoving, 0, state.enemyMoving, 0, enemyCount);
+        Arrays.fill(state.enemyAttackSpeed, 0, enemyCount, ENEMY_ATTACK_SPEED);
+        state.enemyCount = enemyCount;
+
+        int bulletCount = bullets.size();
+        state.ensureBulletCapacity(bulletCount);
+        for (int i = 0; i < bulletCount; i++) {
+            int target = enemies.indexOf(bullets.target[i]);
+            state.bulletId[i] = bullets.id[i];
+            state.bulletTargetId[i] = target >= 0 ? enemies.id[target] : 0;
+            state.bulletX[i] = bullets.x[i];
+            state.bulletY[i] = bullets.y[i];
+            state.bulletTargetX[i] = bullets.targetX[i];
+            state.bulletTargetY[i] = bullets.targetY[i];
+            state.bulletSpeed[i] = bullets.speed[i];
+            state.bulletDamage[i] = bullets.damage[i];
+            state.bulletVisible[i] = true;
+            state.bulletTimeToLive[i] = bullets.timeToLive[i];
+        }
+        state.bulletCount = bulletCount;
+    }
+
+    /**
+     * This method is responsible for filling the stores from a save state. The
+     * stores must be empty. Bullets whose target is not in the save are dropped,
+     * and the damage of the others is committed to their targets again.
+     *
+     * @param state The save state to restore.
+     */
+    public void readSaveState(SaveState state) {
+        int scale = world.getScale();
+        int tileSize = world.getTileSize();
+        Map<Long, Integer> enemyIndices = new HashMap<Long, Integer>(state.enemyCount * 2);
+        for (int j = 0; j < state.enemyCount; j++) {
+            int i = enemies.add();
+            enemies.id[i] = state.enemyId[j];
+            enemies.x[i] = state.enemyX[j];
+            enemies.y[i] = state.enemyY[j];
+            enemies.health[i] = state.enemyHealth[j];
+            enemies.speed[i] = state.enemySpeed[j];
+            enemies.damage[i] = state.enemyDamage[j];
+            enemies.attackCooldown[i] = state.enemyAttackCooldown[j];
+            enemies.attackReadyTick[i] = World.attackReadyTick(state.tick, state.enemyAttackCounter[j],
+                    state.enemyAttackCooldown[j]);
+            enemies.isMoving[i] = state.enemyMoving[j];
+            enemies.hitboxWidth[i] = ENEMY_SIZE * scale;
+            enemies.hitboxHeight[i] = ENEMY_SIZE * scale;
+            updateEnemyHitbox(i, tileSize);
+            enemyIndices.put(enemies.id[i], i);
+        }
+
+        for (int j = 0; j < state.bulletCount; j++) {
+            Integer target = enemyIndices.get(state.bulletTargetId[j]);
+            if (target == null) {
+                continue;
+            }
+            int i = bullets.add();
+            bullets.id[i] = state.bulletId[j];
+            bullets.target[i] = enemies.handleAt(target);
+            bullets.x[i] = state.bulletX[j];
+            bullets.y[i] = state.bulletY[j];
+            bullets.targetX[i] = state.bulletTargetX[j];
+            bullets.targetY[i] = state.bulletTargetY[j];
+            bullets.speed[i] = state.bulletSpeed[j];
+            bullets.damage[i] = state.bulletDamage[j];
+            bullets.timeToLive[i] = state.bulletTimeToLive[j];
+            bullets.hitboxX[i] = (int) bullets.x[i];
+            bullets.hitboxY[i] = (int) bullets.y[i];
+            bullets.hitboxWidth[i] = BULLET_SIZE;
+            bullets.hitboxHeight[i] = BULLET_SIZE;
+            enemies.committedDamage[target] += bullets.damage[i];
+        }
+    }
+
+    private void updateEnemyHitbox(int i, int tileSize) {
+        enemies.hitboxX[i] = (int) (enemies.x[i] + tileSize / 2 - enemies.hitboxWidth[i] / 2f);
+        enemies.hitboxY[i] = (int) (enemies.y[i] + tileSize / 2 - enemies.hitboxHeight[i] / 2f);
+    }
+}
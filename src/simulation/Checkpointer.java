@@ -0,0 +1,116 @@
+package simulation;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves a world in the background.
+ * A checkpoint copies the world into a SaveState on the game thread, which is
+ * a plain copy of primitive values, and hands it to a writer thread that puts
+ * it in the SaveFile. If the previous checkpoint is still being written the new
+ * one is skipped, so the game thread never waits for the disk.
+ */
+public class Checkpointer {
+    private final World world;
+    private final SaveFile saveFile;
+    private final SaveState state = new SaveState();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Checkpointer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean isWriting = false;
+
+    // Statistics
+    private volatile long checkpoints = 0;
+    private volatile long skipped = 0;
+    private volatile long lastWriteTime = 0;
+
+    /**
+     * Constructor for the Checkpointer class.
+     *
+     * @param world    The world to save.
+     * @param saveFile The file to save it in.
+     */
+    public Checkpointer(World world, SaveFile saveFile) {
+        this.world = world;
+        this.saveFile = saveFile;
+    }
+
+    // Returns the file the world is saved in
+    public SaveFile getSaveFile() {
+        return saveFile;
+    }
+
+    // Returns the number of checkpoints written
+    public long getCheckpoints() {
+        return checkpoints;
+    }
+
+    // Returns the number of checkpoints skipped because the writer was busy
+    public long getSkipped() {
+        return skipped;
+    }
+
+    // Returns how long the last checkpoint took to write, in nanoseconds
+    public long getLastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * This method is responsible for starting a checkpoint. It must be called on
+     * the thread that ticks the world, between two ticks.
+     *
+     * @return True if a checkpoint was started, false if the previous one is
+     *         still being written.
+     */
+    public boolean checkpoint() {
+        if (isWriting) {
+            skipped++;
+            return false;
+        }
+        capture();
+        isWriting = true;
+        writer.execute(this::write);
+        return true;
+    }
+
+    /**
+     * This method is responsible for writing a last checkpoint and stopping the
+     * writer thread. It waits for the checkpoint to be on disk.
+     *
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        capture();
+        saveFile.write(state);
+        saveFile.close();
+        checkpoints++;
+    }
+
+    private void capture() {
+        world.writeSaveState(state);
+        state.savedAt = System.currentTimeMillis();
+    }
+
+    private void write() {
+        long start = System.nanoTime();
+        try {
+            saveFile.write(state);
+            checkpoints++;
+        } catch (IOException e) {
+            System.err.println("Error writing checkpoint: " + e.getMessage());
+        } finally {
+            lastWriteTime = System.nanoTime() - start;
+            isWriting = false;
+        }
+    }
+}
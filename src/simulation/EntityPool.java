@@ -0,0 +1,103 @@
+package simulation;
+
+/**
+ * Keeps entities that are no longer used so they can be reinitialized and
+ * used again instead of allocating new ones.
+ * The pool does not know how to build or reset an entity: acquire returns a
+ * recycled entity or null, and the caller either resets the recycled entity
+ * or creates a new one. Either way the entity counts as in use until it is
+ * released, which is what the high-water mark measures.
+ */
+public class EntityPool<T> {
+    private final Object[] free;
+    private int freeCount = 0;
+
+    // Statistics
+    private long hits = 0;
+    private long misses = 0;
+    private long dropped = 0;
+    private int inUse = 0;
+    private int highWaterMark = 0;
+
+    /**
+     * Constructor for the EntityPool class.
+     *
+     * @param capacity The maximum number of unused entities the pool keeps.
+     *                 Entities released while the pool is full are left to the
+     *                 garbage collector.
+     */
+    public EntityPool(int capacity) {
+        this.free = new Object[Math.max(0, capacity)];
+    }
+
+    /**
+     * This method is responsible for handing out an unused entity.
+     *
+     * @return A recycled entity that the caller must reinitialize, or null if
+     *         the pool is empty and the caller must create a new one.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        inUse++;
+        highWaterMark = Math.max(highWaterMark, inUse);
+        if (freeCount == 0) {
+            misses++;
+            return null;
+        }
+        hits++;
+        T entity = (T) free[--freeCount];
+        free[freeCount] = null;
+        return entity;
+    }
+
+    /**
+     * This method is responsible for taking back an entity that is no longer
+     * used. The entity must not be referenced by the game after this call.
+     *
+     * @param entity The entity to recycle.
+     */
+    public void release(T entity) {
+        inUse--;
+        if (freeCount == free.length) {
+            dropped++;
+            return;
+        }
+        free[freeCount++] = entity;
+    }
+
+    // Returns the maximum number of unused entities the pool keeps
+    public int getCapacity() {
+        return free.length;
+    }
+
+    // Returns the number of unused entities waiting in the pool
+    public int getFreeCount() {
+        return freeCount;
+    }
+
+    // Returns the number of entities currently in use
+    public int getInUse() {
+        return inUse;
+    }
+
+    // Returns the highest number of entities in use at the same time
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    // Returns the number of acquisitions served by a recycled entity
+    public long getHits() {
+        return hits;
+    }
+
+    // Returns the number of acquisitions that needed a new entity
+    public long getMisses() {
+        return misses;
+    }
+
+    // Returns the number of released entities thrown away because the pool was
+    // full
+    public long getDropped() {
+        return dropped;
+    }
+}
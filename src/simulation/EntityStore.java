@@ -0,0 +1,250 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * Stores many entities as parallel primitive arrays instead of one object per
+ * entity.
+ * Entity i is made of x[i], y[i], health[i] and so on, and the live entities
+ * always occupy indices 0 to size() - 1, so systems can walk them with plain
+ * loops over contiguous memory. Removing an entity moves the last one into its
+ * place, so indices change; code that needs to remember an entity keeps its
+ * handle instead, and turns it back into an index with indexOf.
+ */
+public class EntityStore {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Columns
+    public float[] x;
+    public float[] y;
+    public float[] vx;
+    public float[] vy;
+    public float[] speed;
+    public float[] health;
+    public float[] damage;
+    public float[] committedDamage;
+    public int[] attackCooldown;
+    public long[] attackReadyTick;
+    public int[] hitboxX;
+    public int[] hitboxY;
+    public int[] hitboxWidth;
+    public int[] hitboxHeight;
+    public boolean[] isMoving;
+    public float[] targetX;
+    public float[] targetY;
+    public long[] target;
+    public int[] timeToLive;
+    public long[] id;
+
+    // Handles
+    private long[] handles;
+    private int[] denseIndex;
+    private int[] generations;
+    private int[] freeSlots;
+    private int freeCount = 0;
+    private int slotCount = 0;
+
+    private int size = 0;
+
+    public EntityStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EntityStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        speed = new float[capacity];
+        health = new float[capacity];
+        damage = new float[capacity];
+        committedDamage = new float[capacity];
+        attackCooldown = new int[capacity];
+        attackReadyTick = new long[capacity];
+        hitboxX = new int[capacity];
+        hitboxY = new int[capacity];
+        hitboxWidth = new int[capacity];
+        hitboxHeight = new int[capacity];
+        isMoving = new boolean[capacity];
+        targetX = new float[capacity];
+        targetY = new float[capacity];
+        target = new long[capacity];
+        timeToLive = new int[capacity];
+        id = new long[capacity];
+        handles = new long[capacity];
+        denseIndex = new int[capacity];
+        generations = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    // Returns the number of live entities
+    public int size() {
+        return size;
+    }
+
+    // Returns the number of entities the store can hold before growing
+    public int capacity() {
+        return x.length;
+    }
+
+    // Returns the handle of the entity at the given index
+    public long handleAt(int index) {
+        return handles[index];
+    }
+
+    /**
+     * This method is responsible for turning a handle back into an index.
+     *
+     * @param handle A handle returned by add.
+     * @return The current index of the entity, or -1 if it has been removed.
+     */
+    public int indexOf(long handle) {
+        int slot = (int) handle;
+        int generation = (int) (handle >>> 32);
+        if (slot < 0 || slot >= slotCount || generations[slot] != generation) {
+            return -1;
+        }
+        return denseIndex[slot];
+    }
+
+    /**
+     * This method is responsible for adding an entity at the end of the store.
+     * Every column of the new index is zeroed, the caller fills in the values.
+     *
+     * @return The index of the new entity.
+     */
+    public int add() {
+        if (size == x.length) {
+            grow(size * 2);
+        }
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+        int index = size++;
+        handles[index] = ((long) generations[slot] << 32) | slot;
+        denseIndex[slot] = index;
+        clear(index);
+        return index;
+    }
+
+    /**
+     * This method is responsible for removing the entity at the given index.
+     * The last entity is moved into the freed index, so a loop that removes while
+     * iterating must visit the same index again.
+     *
+     * @param index The index of the entity to remove.
+     */
+    public void remove(int index) {
+        int slot = (int) handles[index];
+        generations[slot]++;
+        freeSlots[freeCount++] = slot;
+
+        int last = --size;
+        if (index != last) {
+            copy(last, index);
+            denseIndex[(int) handles[index]] = index;
+        }
+    }
+
+    // Removes every entity
+    public void clear() {
+        for (int i = size - 1; i >= 0; i--) {
+            remove(i);
+        }
+    }
+
+    private void clear(int i) {
+        x[i] = 0;
+        y[i] = 0;
+        vx[i] = 0;
+        vy[i] = 0;
+        speed[i] = 0;
+        health[i] = 0;
+        damage[i] = 0;
+        committedDamage[i] = 0;
+        attackCooldown[i] = 0;
+        attackReadyTick[i] = 0;
+        hitboxX[i] = 0;
+        hitboxY[i] = 0;
+        hitboxWidth[i] = 0;
+        hitboxHeight[i] = 0;
+        isMoving[i] = false;
+        targetX[i] = 0;
+        targetY[i] = 0;
+        target[i] = -1;
+        timeToLive[i] = 0;
+        id[i] = 0;
+    }
+
+    private void copy(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        speed[to] = speed[from];
+        health[to] = health[from];
+        damage[to] = damage[from];
+        committedDamage[to] = committedDamage[from];
+        attackCooldown[to] = attackCooldown[from];
+        attackReadyTick[to] = attackReadyTick[from];
+        hitboxX[to] = hitboxX[from];
+        hitboxY[to] = hitboxY[from];
+        hitboxWidth[to] = hitboxWidth[from];
+        hitboxHeight[to] = hitboxHeight[from];
+        isMoving[to] = isMoving[from];
+        targetX[to] = targetX[from];
+        targetY[to] = targetY[from];
+        target[to] = target[from];
+        timeToLive[to] = timeToLive[from];
+        id[to] = id[from];
+        handles[to] = handles[from];
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        health = Arrays.copyOf(health, capacity);
+        damage = Arrays.copyOf(damage, capacity);
+        committedDamage = Arrays.copyOf(committedDamage, capacity);
+        attackCooldown = Arrays.copyOf(attackCooldown, capacity);
+        attackReadyTick = Arrays.copyOf(attackReadyTick, capacity);
+        hitboxX = Arrays.copyOf(hitboxX, capacity);
+        hitboxY = Arrays.copyOf(hitboxY, capacity);
+        hitboxWidth = Arrays.copyOf(hitboxWidth, capacity);
+        hitboxHeight = Arrays.copyOf(hitboxHeight, capacity);
+        isMoving = Arrays.copyOf(isMoving, capacity);
+        targetX = Arrays.copyOf(targetX, capacity);
+        targetY = Arrays.copyOf(targetY, capacity);
+        target = Arrays.copyOf(target, capacity);
+        timeToLive = Arrays.copyOf(timeToLive, capacity);
+        id = Arrays.copyOf(id, capacity);
+        handles = Arrays.copyOf(handles, capacity);
+        denseIndex = Arrays.copyOf(denseIndex, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+
+    /**
+     * This method is responsible for checking whether the hitboxes of two
+     * entities overlap, with the same rules as Rectangle.intersects.
+     *
+     * @param i     The index of the first entity.
+     * @param other The store of the second entity.
+     * @param j     The index of the second entity.
+     * @return True if the hitboxes overlap.
+     */
+    public boolean intersects(int i, EntityStore other, int j) {
+        return intersects(hitboxX[i], hitboxY[i], hitboxWidth[i], hitboxHeight[i],
+                other.hitboxX[j], other.hitboxY[j], other.hitboxWidth[j], other.hitboxHeight[j]);
+    }
+
+    // Returns true if the two rectangles overlap, like Rectangle.intersects
+    public static boolean intersects(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        if (aw <= 0 || ah <= 0 || bw <= 0 || bh <= 0) {
+            return false;
+        }
+        return ax < bx + bw && ay < by + bh && bx < ax + aw && by < ay + ah;
+    }
+}
@@ -0,0 +1,54 @@
+package simulation;
+
+/**
+ * The random number generator of a World.
+ * Every random decision of the game goes through the generator of its world,
+ * so a world created with the same seed and given the same inputs always plays
+ * out the same way. The generator is SplitMix64: its whole state is one long,
+ * which makes it cheap to save and to restore, and its output does not depend
+ * on the JVM.
+ */
+public class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long state;
+
+    /**
+     * Constructor for the GameRandom class.
+     *
+     * @param seed The seed of the sequence.
+     */
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    // Returns the state of the generator, to save or record it
+    public long getState() {
+        return state;
+    }
+
+    // Sets the state of the generator, to continue a saved or recorded sequence
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    // Returns the next random long
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Returns a random double between 0 (inclusive) and 1 (exclusive), like
+    // Math.random
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    // Returns a random int between 0 (inclusive) and bound (exclusive)
+    public int nextInt(int bound) {
+        return (int) (nextDouble() * bound);
+    }
+}
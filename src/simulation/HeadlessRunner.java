@@ -0,0 +1,89 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import diagnostics.EventLog;
+
+public class HeadlessRunner {
+    private static final long NANOSECONDS_IN_SECOND = 1_000_000_000L;
+
+    // Default world settings, the same the game window uses
+    private static final int ORIGINAL_TILE_SIZE = 16;
+    private static final int SCALE = 2;
+    private static final int MAX_COLS = 21;
+    private static final int MAX_ROWS = 21;
+    private static final int TICKS_PER_SECOND = 60;
+
+    /**
+     * This method runs a world without a window, a display or audio.
+     * The world is ticked as fast as the CPU allows until the player dies or the
+     * requested number of ticks has been simulated, then a summary is printed.
+     *
+     * Usage: HeadlessRunner [ticks] [ticksPerSecond] [objects|arrays] [threads]
+     * [replayFile]
+     *
+     * @param args The optional number of ticks to simulate, the number of ticks
+     *             that make a second of game time, whether the entities are
+     *             stored as objects or in an EntityStore, the number of threads
+     *             that update the enemies (0 for the game thread only), and a
+     *             file to record the run in, to play it again with ReplayRunner.
+     * @throws IOException If the replay cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        long ticks = args.length > 0 ? Long.parseLong(args[0]) : 60L * 60 * TICKS_PER_SECOND;
+        int ticksPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : TICKS_PER_SECOND;
+        boolean useEntityStore = args.length > 2 && args[2].equals("arrays");
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        String replayFile = args.length > 4 ? args[4] : null;
+
+        World world = new World(ORIGINAL_TILE_SIZE, SCALE, MAX_COLS, MAX_ROWS, ticksPerSecond, useEntityStore);
+        world.setEnemyUpdateParallelism(threads);
+        ReplayRecorder recorder = replayFile != null ? new ReplayRecorder(world) : null;
+        long start = System.nanoTime();
+        if (recorder != null) {
+            for (long i = 0; i < ticks && !world.isGameOver(); i++) {
+                recorder.tick();
+            }
+        } else {
+            run(world, ticks);
+        }
+        long elapsed = System.nanoTime() - start;
+        world.setEnemyUpdateParallelism(0);
+        EventLog.get().drain();
+
+        double seconds = (double) elapsed / NANOSECONDS_IN_SECOND;
+        System.out.println("Ticks simulated: " + world.getTick());
+        System.out.println("Game time: " + world.getTick() / ticksPerSecond + " s");
+        System.out.println("Wall time: " + String.format("%.3f", seconds) + " s");
+        System.out.println("Ticks per second: " + String.format("%.0f", world.getTick() / Math.max(seconds, 1e-9)));
+        System.out.println("Enemies killed: " + world.getEnemiesKilled());
+        System.out.println("Enemies alive: " + world.getEnemyCount());
+        System.out.println("Player health: " + world.getPlayer().getHealth());
+        System.out.println("Game over: " + world.isGameOver());
+        System.out.println("Enemy pool: " + world.getEnemyPool().getHits() + " reused, "
+                + world.getEnemyPool().getMisses() + " created, high-water mark "
+                + world.getEnemyPool().getHighWaterMark());
+        System.out.println("Bullet pool: " + world.getBulletPool().getHits() + " reused, "
+                + world.getBulletPool().getMisses() + " created, high-water mark "
+                + world.getBulletPool().getHighWaterMark());
+        if (recorder != null) {
+            recorder.write(Paths.get(replayFile));
+            System.out.println("Replay: " + recorder.getReplay().getTickCount() + " ticks recorded in " + replayFile);
+        }
+    }
+
+    /**
+     * This method is responsible for ticking a world without any pacing.
+     * It stops early if the game is over.
+     *
+     * @param world The world to advance.
+     * @param ticks The maximum number of ticks to simulate.
+     */
+    public static void run(World world, long ticks) {
+        for (long i = 0; i < ticks && !world.isGameOver(); i++) {
+            world.tick();
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package simulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import entity.Bullet;
+import entity.Enemy;
+import entity.Player;
+import entity.Tower;
+
+/**
+ * Advances a world over the time the game was closed.
+ * Short gaps are simulated tick by tick. Longer gaps are estimated in constant
+ * time from the spawn waves, the enemy stats and the stats of the player, so
+ * hours of absence cost no more than a few seconds.
+ *
+ * The estimate treats the enemies as a queue. Enemies join it when they walk
+ * into the attack radius, one spawn interval apart, and the player removes them
+ * one every hitsPerKill shots. Each wave spawns at its average rate, its burst
+ * size over its interval, from its first burst to its last, so the spawn rate
+ * changes at most twice per wave. Every enemy waiting in the queue is assumed
+ * to be hitting the player. When the player kills faster than enemies spawn the
+ * queue drains, and only the enemies that reach the player before dying deal
+ * damage. When enemies spawn faster, the queue and the damage per tick grow
+ * linearly, so the damage taken grows with the square of the time. Enemies do
+ * not arrive exactly one spawn interval apart, so a small queue that never
+ * drains is added on top unless the player is much faster than the spawns.
+ *
+ * The estimate does not know where the entities are, so after it is applied
+ * the surviving enemies start again from the edges of the world. The queue of
+ * a wave whose bursts grow does not change linearly, so while such a wave
+ * spawns, every gap is simulated.
+ */
+public class OfflineProgression {
+    // Gaps of up to this much game time are simulated tick by tick
+    public static final int DEFAULT_EXACT_SECONDS = 60;
+
+    // Points sampled on every edge to average the spawn distance
+    private static final int EDGE_SAMPLES = 256;
+
+    private final World world;
+    private long exactTickLimit;
+
+    /**
+     * Constructor for the OfflineProgression class.
+     *
+     * @param world The world to advance.
+     */
+    public OfflineProgression(World world) {
+        this.world = world;
+        this.exactTickLimit = (long) DEFAULT_EXACT_SECONDS * world.getTicksPerSecond();
+    }
+
+    // Returns the longest gap, in ticks, that is simulated tick by tick
+    public long getExactTickLimit() {
+        return exactTickLimit;
+    }
+
+    // Sets the longest gap, in ticks, that is simulated tick by tick
+    public void setExactTickLimit(long exactTickLimit) {
+        this.exactTickLimit = exactTickLimit;
+    }
+
+    /**
+     * This method is responsible for advancing the world by the given number of
+     * ticks. Gaps up to the exact tick limit are simulated, longer ones are
+     * estimated and the estimate is applied to the world. Gaps in which a wave
+     * with growing bursts spawns are always simulated.
+     *
+     * @param ticks The number of ticks that passed.
+     * @return What happened during the gap.
+     */
+    public Result advance(long ticks) {
+        if (ticks <= exactTickLimit || countSpawns(world.getTick(), world.getTick() + ticks) < 0) {
+            return simulate(ticks);
+        }
+        Result result = estimate(ticks);
+        apply(result);
+        return result;
+    }
+
+    /**
+     * This method is responsible for ticking the world through the gap, stopping
+     * early if the player dies.
+     *
+     * @param ticks The number of ticks that passed.
+     * @return What happened during the gap.
+     */
+    public Result simulate(long ticks) {
+        Player player = world.getPlayer();
+        long startTick = world.getTick();
+        long startKills = world.getEnemiesKilled();
+        float startHealth = player.getHealth();
+        long startAlive = world.getEnemyCount();
+
+        HeadlessRunner.run(world, ticks);
+
+        // Enemies only leave the world by being killed
+        long elapsed = world.getTick() - startTick;
+        long killed = world.getEnemiesKilled() - startKills;
+        long alive = world.getEnemyCount();
+        return new Result(ticks, elapsed, alive - startAlive + killed, killed, alive,
+                startHealth - player.getHealth(), !world.isGameOver(), true);
+    }
+
+    /**
+     * This method is responsible for estimating what happens during the gap
+     * without changing the world.
+     *
+     * @param ticks The number of ticks that passed.
+     * @return The estimated outcome of the gap.
+     * @throws IllegalStateException If a wave with growing bursts spawns during
+     *                               the gap.
+     */
+    public Result estimate(long ticks) {
+        Player player = world.getPlayer();
+        int ticksPerSecond = world.getTicksPerSecond();
+        long startTick = world.getTick();
+        if (countSpawns(startTick, startTick + ticks) < 0) {
+            throw new IllegalStateException("The spawns of a growing wave cannot be estimated");
+        }
+
+        // Rates, per tick
+        int hitsPerKill = player.getDamage() > 0 ? (int) Math.ceil(Enemy.HEALTH / player.getDamage()) : 0;
+        int shotInterval = Math.max(1, player.getAttackCooldown());
+        double killRate = hitsPerKill > 0 ? 1.0 / ((double) hitsPerKill * shotInterval) : 0;
+        killRate += towerKillRate();
+        int enemyAttackInterval = Math.max(1, (int) (Enemy.ATTACK_SPEED * ticksPerSecond));
+        double enemyDamageRate = Enemy.DAMAGE / enemyAttackInterval;
+
+        // Distances, in ticks of enemy walking
+        double[] spawnDistances = spawnDistances();
+        double spawnDistance = spawnDistances[0];
+        double radius = Math.min(player.getAttackRadius(), spawnDistance);
+        double contactDistance = (world.getTileSize() + Enemy.SIZE * world.getScale()) / 2.0;
+        double radiusArrival = (spawnDistance - radius) / Enemy.SPEED;
+        double walkInRadius = Math.max(0, radius - contactDistance) / Enemy.SPEED;
+        double contactArrival = radiusArrival + walkInRadius;
+
+        // When the player keeps up, an enemy still hits the player if the last
+        // bullet lands after the enemy has reached it
+        double lastShotDistance = Math.max(contactDistance,
+                radius - Enemy.SPEED * (double) (hitsPerKill - 1) * shotInterval);
+        double killTime = (hitsPerKill - 1) * (double) shotInterval + lastShotDistance / Bullet.SPEED;
+        double contactTime = killTime - walkInRadius;
+        double attacksPerEnemy = contactTime > 0 ? Math.ceil(contactTime / enemyAttackInterval) : 0;
+
+        // Enemies from the corners walk further than enemies from the middle of
+        // an edge, so they do not arrive exactly one spawn interval apart. Unless
+        // the player kills much faster than enemies spawn, the early arrivals
+        // form a small queue that never drains, about half the arrivals over the
+        // spread of the walking times
+        double arrivalSpread = (spawnDistances[2] - spawnDistances[1]) / Enemy.SPEED;
+
+        // Integrate the damage over the pieces where the queue changes linearly.
+        // Enemies spawned at a time of the gap join the queue radiusArrival
+        // later and reach the player contactArrival later; the enemies alive
+        // at the start are the backlog
+        double[] rateChanges = spawnRateChanges(startTick, ticks);
+        double health = player.getHealth();
+        double backlog = world.getEnemyCount();
+        double queue = backlog;
+        double damage = 0;
+        double time = 0;
+        boolean survived = true;
+        while (time < ticks) {
+            double arrivalRate = spawnRate(startTick, time - radiusArrival);
+            double contactRate = spawnRate(startTick, time - contactArrival);
+            double slope = arrivalRate - killRate;
+            double constant = killRate >= contactRate ? contactRate * attacksPerEnemy * Enemy.DAMAGE : 0;
+            constant += Math.max(0, (2 * contactRate - killRate) * arrivalSpread / 2) * enemyDamageRate;
+            double end = ticks;
+            for (double change : rateChanges) {
+                if (change + radiusArrival > time) {
+                    end = Math.min(end, change + radiusArrival);
+                }
+                if (change + contactArrival > time) {
+                    end = Math.min(end, change + contactArrival);
+                }
+            }
+            boolean drains = false;
+            if (queue <= 0 && slope <= 0) {
+                queue = 0;
+                slope = 0;
+            } else if (slope < 0 && time + queue / -slope < end) {
+                end = time + queue / -slope;
+                drains = true;
+            }
+            double duration = end - time;
+
+            // damage(s) = a * s^2 + b * s over this piece
+            double a = enemyDamageRate * slope / 2;
+            double b = enemyDamageRate * queue + constant;
+            double pieceDamage = a * duration * duration + b * duration;
+            if (health > 0 && damage + pieceDamage >= health) {
+                double remaining = health - damage;
+                duration = a == 0 ? remaining / b
+                        : (-b + Math.sqrt(Math.max(0, b * b + 4 * a * remaining))) / (2 * a);
+                time += duration;
+                queue += slope * duration;
+                damage = health;
+                survived = false;
+                break;
+            }
+            damage += pieceDamage;
+            queue = drains ? 0 : queue + slope * duration;
+            time = end;
+        }
+        if (health <= 0) {
+            time = 0;
+            survived = false;
+        }
+
+        // The world notices the death on the tick after the last hit
+        long elapsed = survived ? ticks : Math.min(ticks, (long) Math.ceil(time) + 1);
+        long spawned = countSpawns(startTick, startTick + elapsed);
+        double arrived = averageSpawns(startTick, time - radiusArrival);
+        long killed = (long) Math.max(0, Math.min(backlog + spawned, Math.floor(backlog + arrived - queue)));
+        long alive = (long) backlog + spawned - killed;
+        float damageTaken = survived ? (float) (Math.floor(damage / Enemy.DAMAGE) * Enemy.DAMAGE) : (float) health;
+        return new Result(ticks, elapsed, spawned, killed, alive, damageTaken, survived, false);
+    }
+
+    /**
+     * This method is responsible for applying an estimate to the world. The
+     * clock, the kills and the player health are updated, and the enemies are
+     * replaced by the estimated number of survivors, spawned at the edges.
+     *
+     * @param result The estimate to apply.
+     */
+    public void apply(Result result) {
+        Player player = world.getPlayer();
+        world.clearEntities();
+        world.skipTicks(result.getElapsedTicks(), result.getEnemiesKilled());
+        player.setHealth(player.getHealth() - result.getDamageTaken());
+        for (long i = 0; i < result.getEnemiesAlive(); i++) {
+            world.spawnEnemy();
+        }
+        if (!result.isSurvived()) {
+            world.gameOver();
+        }
+    }
+
+    /**
+     * This method is responsible for counting the enemies the waves of the world
+     * spawn on the ticks from one tick up to another, from the number of bursts
+     * of each wave that fall between them.
+     *
+     * @param fromTick The first tick, included.
+     * @param toTick   The last tick, excluded.
+     * @return The number of enemies spawned, or -1 if a wave whose bursts grow
+     *         spawns between the ticks.
+     */
+    long countSpawns(long fromTick, long toTick) {
+        long total = 0;
+        for (SpawnWave wave : world.getWaves()) {
+            long bursts = burstsBefore(wave, toTick) - burstsBefore(wave, fromTick);
+            if (bursts <= 0) {
+                continue;
+            }
+            if (wave.getRamp() != 0) {
+                return -1;
+            }
+            total += bursts * wave.getBurstSize();
+        }
+        return total;
+    }
+
+    // Returns the number of bursts of a wave on the ticks before the given one
+    private static long burstsBefore(SpawnWave wave, long tick) {
+        long bursts = tick <= wave.getStartTick() ? 0
+                : (tick - wave.getStartTick() + wave.getInterval() - 1) / wave.getInterval();
+        return wave.getBurstCount() > 0 ? Math.min(bursts, wave.getBurstCount()) : bursts;
+    }
+
+    // Returns the tick a wave stops spawning, or Long.MAX_VALUE if it never does
+    private static long endTick(SpawnWave wave) {
+        return wave.getBurstCount() > 0 ? wave.getStartTick() + wave.getBurstCount() * wave.getInterval()
+                : Long.MAX_VALUE;
+    }
+
+    // Returns the average number of enemies spawned per tick at a time of the
+    // gap, 0 before the gap
+    private double spawnRate(long startTick, double time) {
+        if (time < 0) {
+            return 0;
+        }
+        double tick = startTick + time;
+        double rate = 0;
+        for (SpawnWave wave : world.getWaves()) {
+            if (tick >= wave.getStartTick() && tick < endTick(wave)) {
+                rate += (double) wave.getBurstSize() / wave.getInterval();
+            }
+        }
+        return rate;
+    }
+
+    // Returns the number of enemies spawned at the average rates from the start
+    // of the gap up to a time of it
+    private double averageSpawns(long startTick, double time) {
+        double total = 0;
+        for (SpawnWave wave : world.getWaves()) {
+            double from = Math.max(0, wave.getStartTick() - startTick);
+            double to = Math.min(time, (double) endTick(wave) - startTick);
+            if (to > from) {
+                total += (to - from) * wave.getBurstSize() / wave.getInterval();
+            }
+        }
+        return total;
+    }
+
+    // Returns the times of the gap at which the spawn rate changes, including
+    // its start
+    private double[] spawnRateChanges(long startTick, long ticks) {
+        List<SpawnWave> waves = world.getWaves();
+        double[] changes = new double[1 + 2 * waves.size()];
+        int count = 1;
+        for (SpawnWave wave : waves) {
+            long start = wave.getStartTick() - startTick;
+            long end = endTick(wave) == Long.MAX_VALUE ? Long.MAX_VALUE : endTick(wave) - startTick;
+            if (start > 0 && start < ticks) {
+                changes[count++] = start;
+            }
+            if (end > 0 && end < ticks) {
+                changes[count++] = end;
+            }
+        }
+        return Arrays.copyOf(changes, count);
+    }
+
+    // Returns the enemies killed per tick by the towers that reach the player,
+    // where the queued enemies stand. The towers are assumed to shoot at them
+    // as soon as their attack is ready, like the player.
+    private double towerKillRate() {
+        Player player = world.getPlayer();
+        double rate = 0;
+        for (Tower tower : world.getTowers()) {
+            double dx = player.getX() - tower.getX();
+            double dy = player.getY() - tower.getY();
+            if (tower.getDamage() <= 0 || dx * dx + dy * dy > tower.getAttackRadius() * tower.getAttackRadius()) {
+                continue;
+            }
+            int hitsPerKill = (int) Math.ceil(Enemy.HEALTH / tower.getDamage());
+            rate += 1.0 / ((double) hitsPerKill * Math.max(1, tower.getAttackCooldown()));
+        }
+        return rate;
+    }
+
+    // Returns the average, shortest and longest distance between a spawn point
+    // and the player
+    private double[] spawnDistances() {
+        Player player = world.getPlayer();
+        double px = player.getX();
+        double py = player.getY();
+        int width = world.getWidth();
+        int height = world.getHeight();
+        int tileSize = world.getTileSize();
+        double edgeOffset = Enemy.SIZE;
+        double total = 0;
+        double min = Double.MAX_VALUE;
+        double max = 0;
+        double[] edges = new double[4];
+        for (int i = 0; i < EDGE_SAMPLES; i++) {
+            double along = (i + 0.5) / EDGE_SAMPLES;
+            edges[0] = Math.hypot(along * width - px, -edgeOffset - py); // top
+            edges[1] = Math.hypot(width - tileSize + edgeOffset - px, along * height - py); // right
+            edges[2] = Math.hypot(along * width - px, height - tileSize + edgeOffset - py); // bottom
+            edges[3] = Math.hypot(-edgeOffset - px, along * height - py); // left
+            for (double distance : edges) {
+                total += distance;
+                min = Math.min(min, distance);
+                max = Math.max(max, distance);
+            }
+        }
+        return new double[] { total / (4 * EDGE_SAMPLES), min, max };
+    }
+
+    /**
+     * What happened, or is estimated to have happened, while the game was
+     * closed.
+     */
+    public static class Result {
+        private final long ticks;
+        private final long elapsedTicks;
+        private final long enemiesSpawned;
+        private final long enemiesKilled;
+        private final long enemiesAlive;
+        private final float damageTaken;
+        private final boolean survived;
+        private final boolean exact;
+
+        Result(long ticks, long elapsedTicks, long enemiesSpawned, long enemiesKilled, long enemiesAlive,
+                float damageTaken, boolean survived, boolean exact) {
+            this.ticks = ticks;
+            this.elapsedTicks = elapsedTicks;
+            this.enemiesSpawned = enemiesSpawned;
+            this.enemiesKilled = enemiesKilled;
+            this.enemiesAlive = enemiesAlive;
+            this.damageTaken = damageTaken;
+            this.survived = survived;
+            this.exact = exact;
+        }
+
+        // Returns the length of the gap in ticks
+        public long getTicks() {
+            return ticks;
+        }
+
+        // Returns the number of ticks the world ran, less than the gap if the
+        // player died
+        public long getElapsedTicks() {
+            return elapsedTicks;
+        }
+
+        // Returns the number of enemies spawned during the gap
+        public long getEnemiesSpawned() {
+            return enemiesSpawned;
+        }
+
+        // Returns the number of enemies killed during the gap
+        public long getEnemiesKilled() {
+            return enemiesKilled;
+        }
+
+        // Returns the number of enemies alive at the end of the gap
+        public long getEnemiesAlive() {
+            return enemiesAlive;
+        }
+
+        // Returns the health the player lost during the gap
+        public float getDamageTaken() {
+            return damageTaken;
+        }
+
+        // Returns true if the player was still alive at the end of the gap
+        public boolean isSurvived() {
+            return survived;
+        }
+
+        // Returns true if the gap was simulated tick by tick
+        public boolean isExact() {
+            return exact;
+        }
+
+        @Override
+        public String toString() {
+            return (exact ? "Simulated " : "Estimated ") + elapsedTicks + "/" + ticks + " ticks: " + enemiesSpawned
+                    + " spawned, " + enemiesKilled + " killed, " + enemiesAlive + " alive, " + damageTaken
+                    + " damage taken, " + (survived ? "survived" : "died");
+        }
+    }
+}
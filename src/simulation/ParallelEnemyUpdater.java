@@ -0,0 +1,121 @@
+package simulation;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import entity.Enemy;
+
+/**
+ * Updates the enemies of a world on a fork-join pool.
+ * Moving an enemy and checking its collision only touch that enemy, so the
+ * enemies are split into fixed size chunks that advance in parallel. Attacks
+ * change the player, so they are not applied by the workers: every chunk
+ * records which of its enemies attack, and once all chunks are done the attacks
+ * are applied on the calling thread in enemy order.
+ * The chunks do not depend on the number of threads and the attacks are
+ * applied in the same order as a sequential update, so the result is the same
+ * as calling Enemy.update on every enemy, bit for bit.
+ */
+public class ParallelEnemyUpdater {
+    private static final int CHUNK_SIZE = 512;
+
+    private final ForkJoinPool pool;
+
+    // Attacking enemy indices; chunk c writes from c * CHUNK_SIZE onwards
+    private int[] attackers = new int[CHUNK_SIZE];
+    private int[] attackerCounts = new int[1];
+
+    /**
+     * Constructor for the ParallelEnemyUpdater class.
+     *
+     * @param parallelism The number of worker threads.
+     */
+    public ParallelEnemyUpdater(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    // Returns the number of worker threads
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * This method is responsible for advancing every enemy and then applying
+     * their attacks in order.
+     *
+     * @param enemies The enemies to update. The list must not change until the
+     *                method returns.
+     */
+    public void update(List<Enemy> enemies) {
+        int count = enemies.size();
+        if (count == 0) {
+            return;
+        }
+        int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (attackers.length < chunks * CHUNK_SIZE) {
+            attackers = new int[chunks * CHUNK_SIZE];
+        }
+        if (attackerCounts.length < chunks) {
+            attackerCounts = new int[chunks];
+        }
+
+        if (chunks == 1) {
+            advanceChunk(enemies, 0);
+        } else {
+            pool.invoke(new AdvanceTask(enemies, 0, chunks));
+        }
+
+        // Merge the attacks in chunk order, which is enemy order
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int start = chunk * CHUNK_SIZE;
+            for (int i = 0; i < attackerCounts[chunk]; i++) {
+                enemies.get(attackers[start + i]).attackPlayer();
+            }
+        }
+    }
+
+    private void advanceChunk(List<Enemy> enemies, int chunk) {
+        int start = chunk * CHUNK_SIZE;
+        int end = Math.min(start + CHUNK_SIZE, enemies.size());
+        int attackerCount = 0;
+        for (int i = start; i < end; i++) {
+            if (enemies.get(i).advance()) {
+                attackers[start + attackerCount++] = i;
+            }
+        }
+        attackerCounts[chunk] = attackerCount;
+    }
+
+    /**
+     * This method is responsible for stopping the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Splits a range of chunks in halves until a single chunk is left
+    private class AdvanceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Enemy> enemies;
+        private final int firstChunk;
+        private final int lastChunk;
+
+        AdvanceTask(List<Enemy> enemies, int firstChunk, int lastChunk) {
+            this.enemies = enemies;
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk == 1) {
+                advanceChunk(enemies, firstChunk);
+                return;
+            }
+            int middle = (firstChunk + lastChunk) >>> 1;
+            invokeAll(new AdvanceTask(enemies, firstChunk, middle), new AdvanceTask(enemies, middle, lastChunk));
+        }
+    }
+}
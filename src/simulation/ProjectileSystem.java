@@ -0,0 +1,263 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import diagnostics.EventLog;
+import entity.Bullet;
+import entity.Enemy;
+
+/**
+ * Moves the bullets of a world and ends their flight.
+ *
+ * Every tick, each bullet goes through the same steps, for objects and for
+ * entity stores alike:
+ * 1. A bullet whose target is dead or was removed is dropped: the enemy it was
+ *    fired at no longer needs it.
+ * 2. A bullet that has flown for its whole time to live is dropped.
+ * 3. The bullet moves towards the point it was fired at, and past it in a
+ *    straight line.
+ * 4. The bullet hits its target if it touches it, or else the first enemy it
+ *    touches, found with a broad phase over a grid of the enemies. Ties go to
+ *    the lowest id, so both storage modes hit the same enemy.
+ * 5. A bullet that left the world is dropped.
+ * So every bullet ends within its time to live, and no bullet can fly forever
+ * towards an enemy that is gone.
+ *
+ * The bullets are processed as one batch: removed bullets are compacted out of
+ * the list in a single pass, and entity store bullets are all moved in one
+ * tight loop over the arrays before the hits are resolved. A bullet deals the
+ * damage of the player or tower that fired it.
+ */
+public class ProjectileSystem {
+    private final World world;
+
+    // Broad phase for objects
+    private final List<Enemy> overlaps = new ArrayList<Enemy>();
+
+    // Statistics
+    private long hits = 0;
+    private long orphaned = 0;
+    private long expired = 0;
+    private long outOfBounds = 0;
+
+    /**
+     * Constructor for the ProjectileSystem class.
+     *
+     * @param world The world whose bullets are moved.
+     */
+    public ProjectileSystem(World world) {
+        this.world = world;
+    }
+
+    // Returns the number of bullets that hit an enemy
+    public long getHits() {
+        return hits;
+    }
+
+    // Returns the number of bullets dropped because their target was gone
+    public long getOrphaned() {
+        return orphaned;
+    }
+
+    // Returns the number of bullets dropped at the end of their time to live
+    public long getExpired() {
+        return expired;
+    }
+
+    // Returns the number of bullets dropped because they left the world
+    public long getOutOfBounds() {
+        return outOfBounds;
+    }
+
+    /**
+     * This method is responsible for updating the bullets of the player.
+     * Bullets that end their flight are returned to the bullet pool.
+     *
+     * @param bullets The bullets to update.
+     */
+    public void update(List<Bullet> bullets) {
+        int count = bullets.size();
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            Bullet bullet = bullets.get(i);
+            if (advance(bullet)) {
+                bullets.set(kept++, bullet);
+            } else {
+                if (!bullet.isTargetGone()) {
+                    Enemy enemy = bullet.getEnemy();
+                    enemy.setCommittedDamage(enemy.getCommittedDamage() - bullet.getDamage());
+                }
+                world.getBulletPool().release(bullet);
+                EventLog.log(EventLog.Event.BULLET_REMOVED, bullet.getId());
+            }
+        }
+        if (kept < count) {
+            bullets.subList(kept, count).clear();
+        }
+    }
+
+    // Moves a bullet by one tick, and returns false if its flight is over
+    private boolean advance(Bullet bullet) {
+        if (!bullet.isTargetAlive()) {
+            orphaned++;
+            return false;
+        }
+        int timeToLive = bullet.getTimeToLive() - 1;
+        bullet.setTimeToLive(timeToLive);
+        if (timeToLive < 0) {
+            expired++;
+            return false;
+        }
+        bullet.setVisible(!bullet.isColliding(world.getPlayer()));
+        bullet.moveToTarget();
+        bullet.updateHitboxPosition();
+
+        Enemy hit = bullet.getEnemy();
+        if (!bullet.isColliding(hit)) {
+            hit = null;
+            world.getEnemyGrid().queryOverlap(bullet.getHitbox(), overlaps);
+            for (int i = 0; i < overlaps.size(); i++) {
+                Enemy enemy = overlaps.get(i);
+                if (enemy.isAlive() && (hit == null || enemy.getId() < hit.getId())) {
+                    hit = enemy;
+                }
+            }
+        }
+        if (hit != null) {
+            hit.setHealth(hit.getHealth() - bullet.getDamage());
+            hits++;
+            EventLog.log(EventLog.Event.BULLET_HIT, bullet.getId());
+            EventLog.log(EventLog.Event.ENEMY_HEALTH, hit.getId(), hit.getHealth());
+            return false;
+        }
+        if (bullet.isOutOfBounds(world.getWidth(), world.getHeight())) {
+            outOfBounds++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * This method is responsible for updating bullets kept in an entity store.
+     * All the bullets are moved first, in one loop over the arrays, and then
+     * their hits are resolved against the grid of the enemies built for the
+     * tick.
+     *
+     * @param bullets   The bullets to update.
+     * @param enemies   The enemies the bullets can hit.
+     * @param enemyGrid The enemies indexed by position.
+     */
+    void update(EntityStore bullets, EntityStore enemies, StoreGrid enemyGrid) {
+        if (bullets.size() == 0) {
+            return;
+        }
+        move(bullets);
+
+        int width = world.getWidth();
+        int height = world.getHeight();
+        int i = 0;
+        while (i < bullets.size()) {
+            int target = enemies.indexOf(bullets.target[i]);
+            if (target < 0) {
+                orphaned++;
+                EventLog.log(EventLog.Event.BULLET_REMOVED, bullets.id[i]);
+                bullets.remove(i);
+                continue;
+            }
+            if (enemies.health[target] <= 0) {
+                orphaned++;
+                retire(bullets, i, enemies, target);
+                continue;
+            }
+            if (bullets.timeToLive[i] < 0) {
+                expired++;
+                retire(bullets, i, enemies, target);
+                continue;
+            }
+            int hit = bullets.intersects(i, enemies, target) ? target : findHit(bullets, i, enemies, enemyGrid);
+            if (hit >= 0) {
+                enemies.health[hit] -= bullets.damage[i];
+                hits++;
+                EventLog.log(EventLog.Event.BULLET_HIT, bullets.id[i]);
+                EventLog.log(EventLog.Event.ENEMY_HEALTH, enemies.id[hit], enemies.health[hit]);
+                retire(bullets, i, enemies, target);
+                continue;
+            }
+            float x = bullets.x[i];
+            float y = bullets.y[i];
+            if (x < 0 || x > width || y < 0 || y > height) {
+                outOfBounds++;
+                retire(bullets, i, enemies, target);
+                continue;
+            }
+            i++;
+        }
+    }
+
+    // Removes a bullet and releases the damage it committed to its target
+    private static void retire(EntityStore bullets, int i, EntityStore enemies, int target) {
+        enemies.committedDamage[target] -= bullets.damage[i];
+        EventLog.log(EventLog.Event.BULLET_REMOVED, bullets.id[i]);
+        bullets.remove(i);
+    }
+
+    // Moves every bullet that has time to live left, like Bullet.moveToTarget
+    private void move(EntityStore bullets) {
+        float[] bx = bullets.x;
+        float[] by = bullets.y;
+        float[] tx = bullets.targetX;
+        float[] ty = bullets.targetY;
+        int[] timeToLive = bullets.timeToLive;
+        for (int i = 0, n = bullets.size(); i < n; i++) {
+            if (--timeToLive[i] < 0) {
+                continue;
+            }
+            float speed = bullets.speed[i];
+            float dx = tx[i] - bx[i];
+            float dy = ty[i] - by[i];
+            float distance = (float) Math.sqrt(dx * dx + dy * dy);
+            if (distance > 0) {
+                dx /= distance;
+                dy /= distance;
+                if (distance <= speed) {
+                    tx[i] += dx * speed * timeToLive[i];
+                    ty[i] += dy * speed * timeToLive[i];
+                }
+            }
+            bullets.vx[i] = dx * speed;
+            bullets.vy[i] = dy * speed;
+            bx[i] += bullets.vx[i];
+            by[i] += bullets.vy[i];
+            bullets.hitboxX[i] = (int) bx[i];
+            bullets.hitboxY[i] = (int) by[i];
+        }
+    }
+
+    // Returns the enemy with the lowest id that the bullet touches, or -1. Like
+    // SpatialGrid.queryOverlap, the cells above and to the left are checked too
+    // because a hitbox can reach into the next cell.
+    private int findHit(EntityStore bullets, int i, EntityStore enemies, StoreGrid enemyGrid) {
+        int cellSize = enemyGrid.getCellSize();
+        int x = bullets.hitboxX[i];
+        int y = bullets.hitboxY[i];
+        int minCol = enemyGrid.cellCol(x - cellSize);
+        int maxCol = enemyGrid.cellCol(x + bullets.hitboxWidth[i]);
+        int minRow = enemyGrid.cellRow(y - cellSize);
+        int maxRow = enemyGrid.cellRow(y + bullets.hitboxHeight[i]);
+        int hit = -1;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = enemyGrid.cell(col, row);
+                for (int k = enemyGrid.cellStart(cell), end = enemyGrid.cellEnd(cell); k < end; k++) {
+                    int enemy = enemyGrid.entityAt(k);
+                    if (enemies.health[enemy] > 0 && bullets.intersects(i, enemies, enemy)
+                            && (hit < 0 || enemies.id[enemy] < enemies.id[hit])) {
+                        hit = enemy;
+                    }
+                }
+            }
+        }
+        return hit;
+    }
+}
@@ -0,0 +1,130 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * A copy of everything the renderer needs to draw one frame.
+ * The game thread fills a snapshot at the end of a tick and hands it to the
+ * renderer through a SnapshotBuffer, so the renderer never reads the live
+ * entities while they are being updated.
+ * The arrays are reused from frame to frame and only grow, so filling a
+ * snapshot does not allocate once the world has reached its usual size.
+ */
+public class RenderSnapshot {
+    // Sprite ids
+    public static final int SPRITE_PLAYER = 0;
+    public static final int SPRITE_ENEMY = 1;
+    public static final int SPRITE_TOWER = 2;
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Game state
+    public long tick;
+    public boolean isGameOver;
+    public long enemiesKilled;
+
+    // View statistics, filled in by the view that publishes the snapshot
+    public long fps;
+    public long averageOvershoot;
+    public long maxOvershoot;
+
+    // Player
+    public float playerX;
+    public float playerY;
+    public float playerWidth;
+    public float playerHeight;
+    public float playerHealth;
+    public double playerAttackRadius;
+    public int playerHitboxX;
+    public int playerHitboxY;
+    public int playerHitboxWidth;
+    public int playerHitboxHeight;
+
+    // Towers
+    public int towerCount;
+    public float[] towerX = new float[DEFAULT_CAPACITY];
+    public float[] towerY = new float[DEFAULT_CAPACITY];
+    public double[] towerAttackRadius = new double[DEFAULT_CAPACITY];
+
+    // Enemies
+    public int enemyCount;
+    public long[] enemyId = new long[DEFAULT_CAPACITY];
+    public float[] enemyX = new float[DEFAULT_CAPACITY];
+    public float[] enemyY = new float[DEFAULT_CAPACITY];
+    public float[] enemyHealth = new float[DEFAULT_CAPACITY];
+    public int[] enemySprite = new int[DEFAULT_CAPACITY];
+    public int[] enemyHitboxX = new int[DEFAULT_CAPACITY];
+    public int[] enemyHitboxY = new int[DEFAULT_CAPACITY];
+    public int[] enemyHitboxWidth = new int[DEFAULT_CAPACITY];
+    public int[] enemyHitboxHeight = new int[DEFAULT_CAPACITY];
+
+    // Bullets
+    public int bulletCount;
+    public long[] bulletId = new long[DEFAULT_CAPACITY];
+    public float[] bulletX = new float[DEFAULT_CAPACITY];
+    public float[] bulletY = new float[DEFAULT_CAPACITY];
+    public boolean[] bulletVisible = new boolean[DEFAULT_CAPACITY];
+    public int[] bulletHitboxX = new int[DEFAULT_CAPACITY];
+    public int[] bulletHitboxY = new int[DEFAULT_CAPACITY];
+    public int[] bulletHitboxWidth = new int[DEFAULT_CAPACITY];
+    public int[] bulletHitboxHeight = new int[DEFAULT_CAPACITY];
+
+    /**
+     * This method is responsible for making room for the given number of enemies.
+     * Existing values are kept.
+     *
+     * @param count The number of enemies the snapshot must hold.
+     */
+    public void ensureEnemyCapacity(int count) {
+        if (count <= enemyX.length) {
+            return;
+        }
+        int capacity = Math.max(count, enemyX.length * 2);
+        enemyId = Arrays.copyOf(enemyId, capacity);
+        enemyX = Arrays.copyOf(enemyX, capacity);
+        enemyY = Arrays.copyOf(enemyY, capacity);
+        enemyHealth = Arrays.copyOf(enemyHealth, capacity);
+        enemySprite = Arrays.copyOf(enemySprite, capacity);
+        enemyHitboxX = Arrays.copyOf(enemyHitboxX, capacity);
+        enemyHitboxY = Arrays.copyOf(enemyHitboxY, capacity);
+        enemyHitboxWidth = Arrays.copyOf(enemyHitboxWidth, capacity);
+        enemyHitboxHeight = Arrays.copyOf(enemyHitboxHeight, capacity);
+    }
+
+    /**
+     * This method is responsible for making room for the given number of bullets.
+     * Existing values are kept.
+     *
+     * @param count The number of bullets the snapshot must hold.
+     */
+    public void ensureBulletCapacity(int count) {
+        if (count <= bulletX.length) {
+            return;
+        }
+        int capacity = Math.max(count, bulletX.length * 2);
+        bulletId = Arrays.copyOf(bulletId, capacity);
+        bulletX = Arrays.copyOf(bulletX, capacity);
+        bulletY = Arrays.copyOf(bulletY, capacity);
+        bulletVisible = Arrays.copyOf(bulletVisible, capacity);
+        bulletHitboxX = Arrays.copyOf(bulletHitboxX, capacity);
+        bulletHitboxY = Arrays.copyOf(bulletHitboxY, capacity);
+        bulletHitboxWidth = Arrays.copyOf(bulletHitboxWidth, capacity);
+        bulletHitboxHeight = Arrays.copyOf(bulletHitboxHeight, capacity);
+    }
+
+    /**
+     * This method is responsible for making room for the given number of towers.
+     * Existing values are kept.
+     *
+     * @param count The number of towers the snapshot must hold.
+     */
+    public void ensureTowerCapacity(int count) {
+        if (count <= towerX.length) {
+            return;
+        }
+        int capacity = Math.max(count, towerX.length * 2);
+        towerX = Arrays.copyOf(towerX, capacity);
+        towerY = Arrays.copyOf(towerY, capacity);
+        towerAttackRadius = Arrays.copyOf(towerAttackRadius, capacity);
+    }
+}
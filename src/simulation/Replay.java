@@ -0,0 +1,246 @@
+package simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recorded game session: the settings and the seed of the world, every input
+ * given to it from outside and the tick it was given on, and a hash of the
+ * state of the world after every tick.
+ * The world counts time in ticks and draws every random number from its seeded
+ * GameRandom, so this is all that is needed to play the session again, and the
+ * hashes tell on which tick a replay stopped matching the recording.
+ *
+ * The file is a small header followed by the inputs and by one 32 bit hash per
+ * tick, so an hour at 60 ticks per second takes under a megabyte.
+ */
+public class Replay {
+    // Format
+    public static final int MAGIC = 0x49444C52; // "IDLR"
+    // Version 2 hashes the ticks until an entity can attack instead of the
+    // attack counters and the spawn timer, and version 3 also hashes the
+    // lifetime of the bullets. The hashes of an older recording cannot be
+    // computed from the state of a world any more, so those recordings are
+    // refused instead of failing on their first tick.
+    public static final int VERSION = 3;
+
+    /**
+     * Things done to a world from outside its tick.
+     */
+    public enum Input {
+        SPAWN_ENEMY {
+            @Override
+            public void apply(World world, long value) {
+                world.spawnEnemy();
+            }
+        },
+        // The column is in the high 32 bits of the value and the row in the low ones
+        PLACE_TOWER {
+            @Override
+            public void apply(World world, long value) {
+                world.addTower((int) (value >>> 32), (int) value);
+            }
+        };
+
+        // Applies the input to a world
+        public abstract void apply(World world, long value);
+    }
+
+    private static final Input[] INPUTS = Input.values();
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // World settings
+    private final int originalTileSize;
+    private final int scale;
+    private final int maxCols;
+    private final int maxRows;
+    private final int ticksPerSecond;
+    private final boolean useEntityStore;
+    private final long seed;
+
+    // Inputs
+    private int inputCount = 0;
+    private long[] inputTicks = new long[16];
+    private byte[] inputTypes = new byte[16];
+    private long[] inputValues = new long[16];
+
+    // One hash per tick
+    private int tickCount = 0;
+    private int[] hashes = new int[DEFAULT_CAPACITY];
+
+    /**
+     * Constructor for the Replay class.
+     *
+     * @param originalTileSize The size of a tile in the sprite sheets.
+     * @param scale            The factor applied to the original tile size.
+     * @param maxCols          The number of tile columns of the world.
+     * @param maxRows          The number of tile rows of the world.
+     * @param ticksPerSecond   The number of ticks that make a second of game time.
+     * @param useEntityStore   True if the world stores its entities as arrays.
+     * @param seed             The state of the random generator on tick 0.
+     */
+    public Replay(int originalTileSize, int scale, int maxCols, int maxRows, int ticksPerSecond,
+            boolean useEntityStore, long seed) {
+        this.originalTileSize = originalTileSize;
+        this.scale = scale;
+        this.maxCols = maxCols;
+        this.maxRows = maxRows;
+        this.ticksPerSecond = ticksPerSecond;
+        this.useEntityStore = useEntityStore;
+        this.seed = seed;
+    }
+
+    /**
+     * This method is responsible for creating a world in the state the recording
+     * started from: the same settings, the same seed, and tick 0.
+     *
+     * @return A new world.
+     */
+    public World createWorld() {
+        World world = new World(originalTileSize, scale, maxCols, maxRows, ticksPerSecond, useEntityStore);
+        world.setRandom(new GameRandom(seed));
+        return world;
+    }
+
+    // Returns the state of the random generator on tick 0
+    public long getSeed() {
+        return seed;
+    }
+
+    // Returns the number of ticks recorded
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    // Returns the number of inputs recorded
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    // Returns the tick the input at the given index was given on
+    public long getInputTick(int index) {
+        return inputTicks[index];
+    }
+
+    // Returns the input at the given index
+    public Input getInput(int index) {
+        return INPUTS[inputTypes[index]];
+    }
+
+    // Returns the value of the input at the given index
+    public long getInputValue(int index) {
+        return inputValues[index];
+    }
+
+    // Returns the hash of the state after the given tick, counting from 0
+    public int getHash(int tick) {
+        return hashes[tick];
+    }
+
+    // Returns the 32 bit hash stored for a state hash of the world
+    public static int foldHash(long stateHash) {
+        return (int) (stateHash ^ stateHash >>> 32);
+    }
+
+    /**
+     * This method is responsible for recording an input.
+     *
+     * @param tick  The tick of the world when the input was given.
+     * @param input The input.
+     * @param value The value of the input.
+     */
+    public void addInput(long tick, Input input, long value) {
+        if (inputCount == inputTicks.length) {
+            int capacity = inputCount * 2;
+            inputTicks = Arrays.copyOf(inputTicks, capacity);
+            inputTypes = Arrays.copyOf(inputTypes, capacity);
+            inputValues = Arrays.copyOf(inputValues, capacity);
+        }
+        inputTicks[inputCount] = tick;
+        inputTypes[inputCount] = (byte) input.ordinal();
+        inputValues[inputCount] = value;
+        inputCount++;
+    }
+
+    // Records the state hash of the world after the next tick
+    public void addHash(long stateHash) {
+        if (tickCount == hashes.length) {
+            hashes = Arrays.copyOf(hashes, tickCount * 2);
+        }
+        hashes[tickCount++] = foldHash(stateHash);
+    }
+
+    /**
+     * This method is responsible for writing the replay to a file.
+     *
+     * @param path The path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(originalTileSize);
+            out.writeInt(scale);
+            out.writeInt(maxCols);
+            out.writeInt(maxRows);
+            out.writeInt(ticksPerSecond);
+            out.writeBoolean(useEntityStore);
+            out.writeLong(seed);
+            out.writeInt(inputCount);
+            for (int i = 0; i < inputCount; i++) {
+                out.writeLong(inputTicks[i]);
+                out.writeByte(inputTypes[i]);
+                out.writeLong(inputValues[i]);
+            }
+            out.writeInt(tickCount);
+            for (int i = 0; i < tickCount; i++) {
+                out.writeInt(hashes[i]);
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for reading a replay from a file.
+     *
+     * @param path The path of the file.
+     * @return The replay.
+     * @throws IOException If the file cannot be read, is not a replay or has an
+     *                     unsupported version.
+     */
+    public static Replay read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a replay file: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version + " in " + path);
+            }
+            Replay replay = new Replay(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                    in.readBoolean(), in.readLong());
+            int inputCount = in.readInt();
+            for (int i = 0; i < inputCount; i++) {
+                long tick = in.readLong();
+                int type = in.readByte();
+                if (type < 0 || type >= INPUTS.length) {
+                    throw new IOException("Unknown input " + type + " in " + path);
+                }
+                replay.addInput(tick, INPUTS[type], in.readLong());
+            }
+            int tickCount = in.readInt();
+            replay.hashes = new int[Math.max(DEFAULT_CAPACITY, tickCount)];
+            for (int i = 0; i < tickCount; i++) {
+                replay.hashes[i] = in.readInt();
+            }
+            replay.tickCount = tickCount;
+            return replay;
+        }
+    }
+}
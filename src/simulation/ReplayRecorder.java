@@ -0,0 +1,71 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Records a game session into a Replay.
+ * The recorder is created with a world on tick 0; from then on the world must
+ * be ticked and given inputs through the recorder, which logs every input and
+ * the state hash after every tick.
+ */
+public class ReplayRecorder {
+    private final World world;
+    private final Replay replay;
+
+    /**
+     * Constructor for the ReplayRecorder class.
+     *
+     * @param world The world to record. It must not have been ticked yet.
+     * @throws IllegalStateException If the world has already been ticked.
+     */
+    public ReplayRecorder(World world) {
+        if (world.getTick() != 0) {
+            throw new IllegalStateException("A replay must start on tick 0");
+        }
+        this.world = world;
+        this.replay = new Replay(world.getOriginalTileSize(), world.getScale(), world.getMaxCols(),
+                world.getMaxRows(), world.getTicksPerSecond(), world.getArraySimulation() != null,
+                world.getRandom().getState());
+    }
+
+    // Returns the replay recorded so far
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * This method is responsible for giving an input to the world and logging
+     * it.
+     *
+     * @param input The input.
+     * @param value The value of the input.
+     */
+    public void input(Replay.Input input, long value) {
+        replay.addInput(world.getTick(), input, value);
+        input.apply(world, value);
+    }
+
+    /**
+     * This method is responsible for ticking the world and logging the hash of
+     * its new state. Once the game is over the world no longer ticks, and
+     * nothing is logged.
+     */
+    public void tick() {
+        long before = world.getTick();
+        world.tick();
+        if (world.getTick() != before) {
+            replay.addHash(world.stateHash());
+        }
+    }
+
+    /**
+     * This method is responsible for writing the replay recorded so far.
+     *
+     * @param path The path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        replay.write(path);
+    }
+}
@@ -0,0 +1,79 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import diagnostics.EventLog;
+
+public class ReplayRunner {
+    private static final long NANOSECONDS_IN_SECOND = 1_000_000_000L;
+
+    /**
+     * This method plays a recorded session again without a window, a display or
+     * audio, as fast as the CPU allows, and checks the state of the world against
+     * the recording after every tick. It prints how fast the session replayed,
+     * so a set of recordings doubles as a performance regression corpus, and
+     * exits with status 1 if the replay stopped matching the recording.
+     *
+     * Usage: ReplayRunner replayFile [threads]
+     *
+     * @param args The replay file to play, and the optional number of threads
+     *             that update the enemies (0 for the game thread only).
+     * @throws IOException If the replay cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayRunner replayFile [threads]");
+            System.exit(2);
+        }
+        Replay replay = Replay.read(Paths.get(args[0]));
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+
+        World world = replay.createWorld();
+        world.setEnemyUpdateParallelism(threads);
+        long start = System.nanoTime();
+        int mismatch = run(replay, world);
+        long elapsed = System.nanoTime() - start;
+        world.setEnemyUpdateParallelism(0);
+        EventLog.get().drain();
+
+        double seconds = (double) elapsed / NANOSECONDS_IN_SECOND;
+        System.out.println("Ticks replayed: " + world.getTick() + " of " + replay.getTickCount());
+        System.out.println("Wall time: " + String.format("%.3f", seconds) + " s");
+        System.out.println("Ticks per second: " + String.format("%.0f", world.getTick() / Math.max(seconds, 1e-9)));
+        System.out.println("Enemies killed: " + world.getEnemiesKilled());
+        System.out.println("Enemies alive: " + world.getEnemyCount());
+        if (mismatch >= 0) {
+            System.out.println("State differs from the recording after tick " + (mismatch + 1));
+            System.exit(1);
+        }
+        System.out.println("State matches the recording on every tick");
+    }
+
+    /**
+     * This method is responsible for playing a replay on a world created by
+     * Replay.createWorld. Inputs are given on the tick they were recorded on, and
+     * the state hash is compared after every tick. The replay stops at the first
+     * tick that does not match.
+     *
+     * @param replay The recording to play.
+     * @param world  The world to play it on.
+     * @return The index of the first tick whose state does not match, or -1 if
+     *         every tick matches.
+     */
+    public static int run(Replay replay, World world) {
+        int input = 0;
+        for (int tick = 0; tick < replay.getTickCount(); tick++) {
+            while (input < replay.getInputCount() && replay.getInputTick(input) <= world.getTick()) {
+                replay.getInput(input).apply(world, replay.getInputValue(input));
+                input++;
+            }
+            world.tick();
+            if (Replay.foldHash(world.stateHash()) != replay.getHash(tick)) {
+                return tick;
+            }
+        }
+        return -1;
+    }
+}
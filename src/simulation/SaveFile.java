@@ -0,0 +1,550 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import entity.Bullet;
+
+/**
+ * Reads and writes SaveStates in a versioned binary file through a memory
+ * mapping.
+ *
+ * The file starts with a header page, followed by two slots of the same size.
+ * Checkpoints alternate between the slots, so the slot holding the latest
+ * complete checkpoint is never written to. A slot is a world block with the
+ * clock, the timers and the player, then a fixed size record per enemy, per
+ * bullet and per tower. Every checkpoint overwrites the older slot in place,
+ * and a record is only written if it differs from what the slot already holds,
+ * so entities that did not change since that checkpoint leave their pages
+ * untouched.
+ * Once the records are flushed, the slot descriptor in the header is updated
+ * with a new generation and a CRC32C of the slot. Reading picks the slot with
+ * the highest generation whose CRC matches, so a checkpoint interrupted half way
+ * falls back to the one before it.
+ *
+ * All values are little endian. The slots are sized for a number of entities;
+ * when a world outgrows them, the file is rebuilt with twice the room in a
+ * temporary file that then replaces the old one. A file of an older version is
+ * still read, and the next checkpoint rebuilds it in the current format.
+ */
+public class SaveFile {
+    // Format
+    public static final int MAGIC = 0x49444C54; // "IDLT"
+    public static final int VERSION = 3;
+
+    // Version 2 had no towers and no bullet damage, and version 1 had no random
+    // generator state either; both are still read
+    private static final int OLDEST_VERSION = 1;
+    private static final int TOWERS_VERSION = 3;
+
+    private static final int HEADER_BYTES = 4096;
+    private static final int WORLD_BYTES = 256;
+    private static final int ENEMY_BYTES = 48;
+    private static final int BULLET_BYTES = 48;
+    private static final int OLD_BULLET_BYTES = 40;
+    private static final int TOWER_BYTES = 40;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MIN_TOWER_CAPACITY = 64;
+
+    // Header
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int ENEMY_CAPACITY_OFFSET = 8;
+    private static final int BULLET_CAPACITY_OFFSET = 12;
+    private static final int TOWER_CAPACITY_OFFSET = 16;
+    private static final int DESCRIPTOR_OFFSET = 64;
+    private static final int DESCRIPTOR_BYTES = 64;
+
+    // Slot descriptor
+    private static final int GENERATION_OFFSET = 0;
+    private static final int ENEMY_COUNT_OFFSET = 8;
+    private static final int BULLET_COUNT_OFFSET = 12;
+    private static final int CRC_OFFSET = 16;
+    private static final int TOWER_COUNT_OFFSET = 24;
+
+    private static final int FLAG_MOVING = 1;
+    private static final int FLAG_VISIBLE = 1;
+
+    // The bits above the flags of a bullet hold its time to live plus one, so
+    // the zero of older saves reads as a bullet without one
+    private static final int TIME_TO_LIVE_SHIFT = 8;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private Layout layout;
+    private int latestSlot = -1;
+    private long generation = 0;
+
+    private final ByteBuffer record = ByteBuffer.allocate(ENEMY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    // Statistics of the last checkpoint
+    private int recordsWritten = 0;
+    private int recordsUnchanged = 0;
+
+    /**
+     * The version of a file and the number of entities its slots have room for,
+     * from which the place of every record follows.
+     */
+    private static final class Layout {
+        final int version;
+        final int enemyCapacity;
+        final int bulletCapacity;
+        final int towerCapacity;
+        final int bulletBytes;
+
+        Layout(int version, int enemyCapacity, int bulletCapacity, int towerCapacity) {
+            this.version = version;
+            this.enemyCapacity = enemyCapacity;
+            this.bulletCapacity = bulletCapacity;
+            this.towerCapacity = towerCapacity;
+            this.bulletBytes = version >= TOWERS_VERSION ? BULLET_BYTES : OLD_BULLET_BYTES;
+        }
+
+        long slotBytes() {
+            return WORLD_BYTES + (long) enemyCapacity * ENEMY_BYTES + (long) bulletCapacity * bulletBytes
+                    + (long) towerCapacity * TOWER_BYTES;
+        }
+
+        int slotOffset(int slot) {
+            return HEADER_BYTES + slot * (int) slotBytes();
+        }
+
+        int enemiesOffset(int slot) {
+            return slotOffset(slot) + WORLD_BYTES;
+        }
+
+        int bulletsOffset(int slot) {
+            return enemiesOffset(slot) + enemyCapacity * ENEMY_BYTES;
+        }
+
+        int towersOffset(int slot) {
+            return bulletsOffset(slot) + bulletCapacity * bulletBytes;
+        }
+    }
+
+    /**
+     * Constructor for the SaveFile class. Nothing is opened until the first
+     * read or write.
+     *
+     * @param path The path of the save file.
+     */
+    public SaveFile(Path path) {
+        this.path = path;
+    }
+
+    // Returns the path of the save file
+    public Path getPath() {
+        return path;
+    }
+
+    // Returns true if the save file exists
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    // Returns the number of records the last checkpoint had to write
+    public int getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    // Returns the number of records the last checkpoint left untouched
+    public int getRecordsUnchanged() {
+        return recordsUnchanged;
+    }
+
+    /**
+     * This method is responsible for writing a checkpoint. It must not be called
+     * from two threads at the same time.
+     *
+     * @param state The state to save.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(SaveState state) throws IOException {
+        if (map == null && Files.exists(path)) {
+            openExisting();
+        }
+        if (map == null || state.enemyCount > layout.enemyCapacity || state.bulletCount > layout.bulletCapacity
+                || state.towerCount > layout.towerCapacity) {
+            rebuild(state);
+            return;
+        }
+        writeSlot(state, latestSlot < 0 ? 0 : 1 - latestSlot);
+    }
+
+    /**
+     * This method is responsible for reading the latest complete checkpoint.
+     *
+     * @return The saved state.
+     * @throws IOException If the file cannot be read, is not a save file, has an
+     *                     unsupported version or holds no complete checkpoint.
+     */
+    public SaveState read() throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (in.size() < HEADER_BYTES) {
+                throw new IOException("Not a save file: " + path);
+            }
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            Layout layout = checkHeader(buffer, in.size());
+            int slot = findLatestSlot(buffer, layout);
+            if (slot < 0) {
+                throw new IOException("No complete checkpoint in " + path);
+            }
+            return readSlot(buffer, slot, layout);
+        }
+    }
+
+    /**
+     * This method is responsible for closing the file. The next write opens it
+     * again.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = null;
+        map = null;
+        latestSlot = -1;
+    }
+
+    private void openExisting() throws IOException {
+        FileChannel existing = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (existing.size() < HEADER_BYTES) {
+                existing.close();
+                return;
+            }
+            MappedByteBuffer buffer = existing.map(FileChannel.MapMode.READ_WRITE, 0, existing.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            Layout layout = checkHeader(buffer, existing.size());
+            if (layout.version != VERSION) {
+                // Rebuilt in the current format by the next checkpoint
+                existing.close();
+                return;
+            }
+            this.channel = existing;
+            this.map = buffer;
+            this.layout = layout;
+            this.latestSlot = findLatestSlot(buffer, layout);
+            this.generation = latestSlot < 0 ? 0 : buffer.getLong(descriptorOffset(latestSlot) + GENERATION_OFFSET);
+        } catch (IOException e) {
+            // An unreadable file is replaced by the next checkpoint
+            existing.close();
+        }
+    }
+
+    // Writes the state into a new file with room for twice as many entities and
+    // moves it over the old one
+    private void rebuild(SaveState state) throws IOException {
+        close();
+        int enemyCapacity = Math.max(MIN_CAPACITY, state.enemyCount * 2);
+        int bulletCapacity = Math.max(MIN_CAPACITY, state.bulletCount * 2);
+        int towerCapacity = Math.max(MIN_TOWER_CAPACITY, state.towerCount * 2);
+        Layout layout = new Layout(VERSION, enemyCapacity, bulletCapacity, towerCapacity);
+        long size = HEADER_BYTES + 2 * layout.slotBytes();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Save too large: " + size + " bytes");
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel created = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = created.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(ENEMY_CAPACITY_OFFSET, enemyCapacity);
+            buffer.putInt(BULLET_CAPACITY_OFFSET, bulletCapacity);
+            buffer.putInt(TOWER_CAPACITY_OFFSET, towerCapacity);
+            this.channel = created;
+            this.map = buffer;
+            this.layout = layout;
+            writeSlot(state, 0);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        // The mapping stays valid once the file is renamed
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeSlot(SaveState state, int slot) {
+        int base = layout.slotOffset(slot);
+        ByteBuffer out = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        out.position(base);
+        writeWorld(out, state);
+
+        recordsWritten = 0;
+        recordsUnchanged = 0;
+        int enemies = layout.enemiesOffset(slot);
+        for (int i = 0; i < state.enemyCount; i++) {
+            record.clear();
+            record.putLong(state.enemyId[i]);
+            record.putFloat(state.enemyX[i]);
+            record.putFloat(state.enemyY[i]);
+            record.putFloat(state.enemyHealth[i]);
+            record.putFloat(state.enemySpeed[i]);
+            record.putFloat(state.enemyDamage[i]);
+            record.putFloat(state.enemyAttackSpeed[i]);
+            record.putInt(state.enemyAttackCooldown[i]);
+            record.putInt(state.enemyAttackCounter[i]);
+            record.putInt(state.enemyMoving[i] ? FLAG_MOVING : 0);
+            record.putInt(0);
+            copyIfChanged(enemies + i * ENEMY_BYTES, ENEMY_BYTES);
+        }
+        int bullets = layout.bulletsOffset(slot);
+        for (int i = 0; i < state.bulletCount; i++) {
+            record.clear();
+            record.putLong(state.bulletId[i]);
+            record.putLong(state.bulletTargetId[i]);
+            record.putFloat(state.bulletX[i]);
+            record.putFloat(state.bulletY[i]);
+            record.putFloat(state.bulletTargetX[i]);
+            record.putFloat(state.bulletTargetY[i]);
+            record.putFloat(state.bulletSpeed[i]);
+            record.putInt((state.bulletVisible[i] ? FLAG_VISIBLE : 0)
+                    | (Math.max(0, state.bulletTimeToLive[i]) + 1) << TIME_TO_LIVE_SHIFT);
+            record.putFloat(state.bulletDamage[i]);
+            record.putInt(0);
+            copyIfChanged(bullets + i * BULLET_BYTES, BULLET_BYTES);
+        }
+        int towers = layout.towersOffset(slot);
+        for (int i = 0; i < state.towerCount; i++) {
+            record.clear();
+            record.putLong(state.towerId[i]);
+            record.putInt(state.towerCol[i]);
+            record.putInt(state.towerRow[i]);
+            record.putFloat(state.towerDamage[i]);
+            record.putFloat(state.towerAttackSpeed[i]);
+            record.putInt(state.towerAttackCooldown[i]);
+            record.putInt(state.towerAttackCounter[i]);
+            record.putDouble(state.towerAttackRadius[i]);
+            copyIfChanged(towers + i * TOWER_BYTES, TOWER_BYTES);
+        }
+        map.force();
+
+        // Commit the slot
+        long checksum = checksum(map, slot, layout, state.enemyCount, state.bulletCount, state.towerCount);
+        int descriptor = descriptorOffset(slot);
+        map.putLong(descriptor + GENERATION_OFFSET, ++generation);
+        map.putInt(descriptor + ENEMY_COUNT_OFFSET, state.enemyCount);
+        map.putInt(descriptor + BULLET_COUNT_OFFSET, state.bulletCount);
+        map.putInt(descriptor + TOWER_COUNT_OFFSET, state.towerCount);
+        map.putLong(descriptor + CRC_OFFSET, checksum);
+        map.force();
+        latestSlot = slot;
+    }
+
+    // Copies the record into the map at the given offset unless it is already
+    // there. Records are a whole number of longs.
+    private void copyIfChanged(int offset, int length) {
+        for (int i = 0; i < length; i += Long.BYTES) {
+            if (map.getLong(offset + i) != record.getLong(i)) {
+                for (int j = 0; j < length; j += Long.BYTES) {
+                    map.putLong(offset + j, record.getLong(j));
+                }
+                recordsWritten++;
+                return;
+            }
+        }
+        recordsUnchanged++;
+    }
+
+    private static void writeWorld(ByteBuffer out, SaveState state) {
+        out.putInt(state.ticksPerSecond);
+        out.putInt(state.tileSize);
+        out.putInt(state.maxCols);
+        out.putInt(state.maxRows);
+        out.putLong(state.savedAt);
+        out.putLong(state.tick);
+        out.putLong(state.enemiesKilled);
+        out.putLong(state.nextEntityId);
+        out.putInt(state.enemySpawnTimer);
+        out.putInt(state.isGameOver ? 1 : 0);
+        out.putLong(state.playerId);
+        out.putFloat(state.playerX);
+        out.putFloat(state.playerY);
+        out.putFloat(state.playerHealth);
+        out.putFloat(state.playerDamage);
+        out.putFloat(state.playerAttackSpeed);
+        out.putInt(state.playerAttackCooldown);
+        out.putInt(state.playerAttackCounter);
+        out.putDouble(state.playerAttackRadius);
+        out.putLong(state.randomState);
+    }
+
+    private static void readWorld(ByteBuffer in, SaveState state, int version) {
+        state.ticksPerSecond = in.getInt();
+        state.tileSize = in.getInt();
+        state.maxCols = in.getInt();
+        state.maxRows = in.getInt();
+        state.savedAt = in.getLong();
+        state.tick = in.getLong();
+        state.enemiesKilled = in.getLong();
+        state.nextEntityId = in.getLong();
+        state.enemySpawnTimer = in.getInt();
+        state.isGameOver = in.getInt() != 0;
+        state.playerId = in.getLong();
+        state.playerX = in.getFloat();
+        state.playerY = in.getFloat();
+        state.playerHealth = in.getFloat();
+        state.playerDamage = in.getFloat();
+        state.playerAttackSpeed = in.getFloat();
+        state.playerAttackCooldown = in.getInt();
+        state.playerAttackCounter = in.getInt();
+        state.playerAttackRadius = in.getDouble();
+        state.randomState = version >= 2 ? in.getLong() : System.nanoTime();
+    }
+
+    private SaveState readSlot(ByteBuffer buffer, int slot, Layout layout) {
+        int descriptor = descriptorOffset(slot);
+        int enemyCount = buffer.getInt(descriptor + ENEMY_COUNT_OFFSET);
+        int bulletCount = buffer.getInt(descriptor + BULLET_COUNT_OFFSET);
+        int towerCount = towerCount(buffer, slot, layout);
+
+        SaveState state = new SaveState();
+        ByteBuffer in = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        in.position(layout.slotOffset(slot));
+        readWorld(in, state, layout.version);
+
+        state.ensureEnemyCapacity(enemyCount);
+        in.position(layout.enemiesOffset(slot));
+        for (int i = 0; i < enemyCount; i++) {
+            state.enemyId[i] = in.getLong();
+            state.enemyX[i] = in.getFloat();
+            state.enemyY[i] = in.getFloat();
+            state.enemyHealth[i] = in.getFloat();
+            state.enemySpeed[i] = in.getFloat();
+            state.enemyDamage[i] = in.getFloat();
+            state.enemyAttackSpeed[i] = in.getFloat();
+            state.enemyAttackCooldown[i] = in.getInt();
+            state.enemyAttackCounter[i] = in.getInt();
+            state.enemyMoving[i] = (in.getInt() & FLAG_MOVING) != 0;
+            in.getInt();
+        }
+        state.enemyCount = enemyCount;
+
+        state.ensureBulletCapacity(bulletCount);
+        in.position(layout.bulletsOffset(slot));
+        for (int i = 0; i < bulletCount; i++) {
+            state.bulletId[i] = in.getLong();
+            state.bulletTargetId[i] = in.getLong();
+            state.bulletX[i] = in.getFloat();
+            state.bulletY[i] = in.getFloat();
+            state.bulletTargetX[i] = in.getFloat();
+            state.bulletTargetY[i] = in.getFloat();
+            state.bulletSpeed[i] = in.getFloat();
+            int flags = in.getInt();
+            int timeToLive = (flags >>> TIME_TO_LIVE_SHIFT) - 1;
+            state.bulletVisible[i] = (flags & FLAG_VISIBLE) != 0;
+            state.bulletTimeToLive[i] = timeToLive >= 0 ? timeToLive
+                    : Bullet.TIME_TO_LIVE_SECONDS * state.ticksPerSecond;
+            if (layout.version >= TOWERS_VERSION) {
+                state.bulletDamage[i] = in.getFloat();
+                in.getInt();
+            } else {
+                // Only the player could shoot
+                state.bulletDamage[i] = state.playerDamage;
+            }
+        }
+        state.bulletCount = bulletCount;
+
+        state.ensureTowerCapacity(towerCount);
+        in.position(layout.towersOffset(slot));
+        for (int i = 0; i < towerCount; i++) {
+            state.towerId[i] = in.getLong();
+            state.towerCol[i] = in.getInt();
+            state.towerRow[i] = in.getInt();
+            state.towerDamage[i] = in.getFloat();
+            state.towerAttackSpeed[i] = in.getFloat();
+            state.towerAttackCooldown[i] = in.getInt();
+            state.towerAttackCounter[i] = in.getInt();
+            state.towerAttackRadius[i] = in.getDouble();
+        }
+        state.towerCount = towerCount;
+        return state;
+    }
+
+    // Returns the layout of a file after checking its header
+    private Layout checkHeader(ByteBuffer buffer, long size) throws IOException {
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("Not a save file: " + path);
+        }
+        int version = buffer.getInt(VERSION_OFFSET);
+        if (version < OLDEST_VERSION || version > VERSION) {
+            throw new IOException("Unsupported save version " + version + " in " + path);
+        }
+        Layout layout = new Layout(version, buffer.getInt(ENEMY_CAPACITY_OFFSET), buffer.getInt(BULLET_CAPACITY_OFFSET),
+                version >= TOWERS_VERSION ? buffer.getInt(TOWER_CAPACITY_OFFSET) : 0);
+        if (layout.enemyCapacity < 0 || layout.bulletCapacity < 0 || layout.towerCapacity < 0
+                || size < HEADER_BYTES + 2 * layout.slotBytes()) {
+            throw new IOException("Truncated save file: " + path);
+        }
+        return layout;
+    }
+
+    // Returns the number of towers of a slot; older files have none
+    private static int towerCount(ByteBuffer buffer, int slot, Layout layout) {
+        if (layout.version < TOWERS_VERSION) {
+            return 0;
+        }
+        return buffer.getInt(descriptorOffset(slot) + TOWER_COUNT_OFFSET);
+    }
+
+    // Returns the slot holding the newest checkpoint whose checksum matches, or
+    // -1 if there is none
+    private static int findLatestSlot(ByteBuffer buffer, Layout layout) {
+        int latest = -1;
+        long latestGeneration = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            int descriptor = descriptorOffset(slot);
+            long generation = buffer.getLong(descriptor + GENERATION_OFFSET);
+            int enemyCount = buffer.getInt(descriptor + ENEMY_COUNT_OFFSET);
+            int bulletCount = buffer.getInt(descriptor + BULLET_COUNT_OFFSET);
+            int towerCount = towerCount(buffer, slot, layout);
+            if (generation <= latestGeneration || enemyCount < 0 || enemyCount > layout.enemyCapacity
+                    || bulletCount < 0 || bulletCount > layout.bulletCapacity || towerCount < 0
+                    || towerCount > layout.towerCapacity) {
+                continue;
+            }
+            long checksum = buffer.getLong(descriptor + CRC_OFFSET);
+            if (checksum(buffer, slot, layout, enemyCount, bulletCount, towerCount) == checksum) {
+                latest = slot;
+                latestGeneration = generation;
+            }
+        }
+        return latest;
+    }
+
+    // Returns the CRC32C of the used part of a slot
+    private static long checksum(ByteBuffer buffer, int slot, Layout layout, int enemyCount, int bulletCount,
+            int towerCount) {
+        int base = layout.slotOffset(slot);
+        int bullets = layout.bulletsOffset(slot);
+        int towers = layout.towersOffset(slot);
+        CRC32C crc = new CRC32C();
+        ByteBuffer view = buffer.duplicate();
+        view.limit(base + WORLD_BYTES + enemyCount * ENEMY_BYTES).position(base);
+        crc.update(view);
+        view.limit(bullets + bulletCount * layout.bulletBytes).position(bullets);
+        crc.update(view);
+        view.limit(towers + towerCount * TOWER_BYTES).position(towers);
+        crc.update(view);
+        return crc.getValue();
+    }
+
+    private static int descriptorOffset(int slot) {
+        return DESCRIPTOR_OFFSET + slot * DESCRIPTOR_BYTES;
+    }
+}
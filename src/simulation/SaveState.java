@@ -0,0 +1,144 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * A copy of everything needed to resume a world: the clock and the timers, the
+ * player, the towers, and every enemy and bullet.
+ * The game thread fills a save state between two ticks, which is a plain copy
+ * of primitive values, and a SaveFile writes it on another thread.
+ * The arrays are reused from save to save and only grow.
+ */
+public class SaveState {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // World settings, to refuse a save made for another world
+    public int ticksPerSecond;
+    public int tileSize;
+    public int maxCols;
+    public int maxRows;
+
+    // Game state
+    public long savedAt;
+    public long tick;
+    public long enemiesKilled;
+    public long nextEntityId;
+    public int enemySpawnTimer;
+    public boolean isGameOver;
+    public long randomState;
+
+    // Player
+    public long playerId;
+    public float playerX;
+    public float playerY;
+    public float playerHealth;
+    public float playerDamage;
+    public float playerAttackSpeed;
+    public int playerAttackCooldown;
+    public int playerAttackCounter;
+    public double playerAttackRadius;
+
+    // Towers
+    public int towerCount;
+    public long[] towerId = new long[DEFAULT_CAPACITY];
+    public int[] towerCol = new int[DEFAULT_CAPACITY];
+    public int[] towerRow = new int[DEFAULT_CAPACITY];
+    public float[] towerDamage = new float[DEFAULT_CAPACITY];
+    public float[] towerAttackSpeed = new float[DEFAULT_CAPACITY];
+    public int[] towerAttackCooldown = new int[DEFAULT_CAPACITY];
+    public int[] towerAttackCounter = new int[DEFAULT_CAPACITY];
+    public double[] towerAttackRadius = new double[DEFAULT_CAPACITY];
+
+    // Enemies
+    public int enemyCount;
+    public long[] enemyId = new long[DEFAULT_CAPACITY];
+    public float[] enemyX = new float[DEFAULT_CAPACITY];
+    public float[] enemyY = new float[DEFAULT_CAPACITY];
+    public float[] enemyHealth = new float[DEFAULT_CAPACITY];
+    public float[] enemySpeed = new float[DEFAULT_CAPACITY];
+    public float[] enemyDamage = new float[DEFAULT_CAPACITY];
+    public float[] enemyAttackSpeed = new float[DEFAULT_CAPACITY];
+    public int[] enemyAttackCooldown = new int[DEFAULT_CAPACITY];
+    public int[] enemyAttackCounter = new int[DEFAULT_CAPACITY];
+    public boolean[] enemyMoving = new boolean[DEFAULT_CAPACITY];
+
+    // Bullets
+    public int bulletCount;
+    public long[] bulletId = new long[DEFAULT_CAPACITY];
+    public long[] bulletTargetId = new long[DEFAULT_CAPACITY];
+    public float[] bulletX = new float[DEFAULT_CAPACITY];
+    public float[] bulletY = new float[DEFAULT_CAPACITY];
+    public float[] bulletTargetX = new float[DEFAULT_CAPACITY];
+    public float[] bulletTargetY = new float[DEFAULT_CAPACITY];
+    public float[] bulletSpeed = new float[DEFAULT_CAPACITY];
+    public float[] bulletDamage = new float[DEFAULT_CAPACITY];
+    public boolean[] bulletVisible = new boolean[DEFAULT_CAPACITY];
+    public int[] bulletTimeToLive = new int[DEFAULT_CAPACITY];
+
+    /**
+     * This method is responsible for making room for the given number of enemies.
+     * Existing values are kept.
+     *
+     * @param count The number of enemies the state must hold.
+     */
+    public void ensureEnemyCapacity(int count) {
+        if (count <= enemyX.length) {
+            return;
+        }
+        int capacity = Math.max(count, enemyX.length * 2);
+        enemyId = Arrays.copyOf(enemyId, capacity);
+        enemyX = Arrays.copyOf(enemyX, capacity);
+        enemyY = Arrays.copyOf(enemyY, capacity);
+        enemyHealth = Arrays.copyOf(enemyHealth, capacity);
+        enemySpeed = Arrays.copyOf(enemySpeed, capacity);
+        enemyDamage = Arrays.copyOf(enemyDamage, capacity);
+        enemyAttackSpeed = Arrays.copyOf(enemyAttackSpeed, capacity);
+        enemyAttackCooldown = Arrays.copyOf(enemyAttackCooldown, capacity);
+        enemyAttackCounter = Arrays.copyOf(enemyAttackCounter, capacity);
+        enemyMoving = Arrays.copyOf(enemyMoving, capacity);
+    }
+
+    /**
+     * This method is responsible for making room for the given number of bullets.
+     * Existing values are kept.
+     *
+     * @param count The number of bullets the state must hold.
+     */
+    public void ensureBulletCapacity(int count) {
+        if (count <= bulletX.length) {
+            return;
+        }
+        int capacity = Math.max(count, bulletX.length * 2);
+        bulletId = Arrays.copyOf(bulletId, capacity);
+        bulletTargetId = Arrays.copyOf(bulletTargetId, capacity);
+        bulletX = Arrays.copyOf(bulletX, capacity);
+        bulletY = Arrays.copyOf(bulletY, capacity);
+        bulletTargetX = Arrays.copyOf(bulletTargetX, capacity);
+        bulletTargetY = Arrays.copyOf(bulletTargetY, capacity);
+        bulletSpeed = Arrays.copyOf(bulletSpeed, capacity);
+        bulletDamage = Arrays.copyOf(bulletDamage, capacity);
+        bulletVisible = Arrays.copyOf(bulletVisible, capacity);
+        bulletTimeToLive = Arrays.copyOf(bulletTimeToLive, capacity);
+    }
+
+    /**
+     * This method is responsible for making room for the given number of towers.
+     * Existing values are kept.
+     *
+     * @param count The number of towers the state must hold.
+     */
+    public void ensureTowerCapacity(int count) {
+        if (count <= towerId.length) {
+            return;
+        }
+        int capacity = Math.max(count, towerId.length * 2);
+        towerId = Arrays.copyOf(towerId, capacity);
+        towerCol = Arrays.copyOf(towerCol, capacity);
+        towerRow = Arrays.copyOf(towerRow, capacity);
+        towerDamage = Arrays.copyOf(towerDamage, capacity);
+        towerAttackSpeed = Arrays.copyOf(towerAttackSpeed, capacity);
+        towerAttackCooldown = Arrays.copyOf(towerAttackCooldown, capacity);
+        towerAttackCounter = Arrays.copyOf(towerAttackCounter, capacity);
+        towerAttackRadius = Arrays.copyOf(towerAttackRadius, capacity);
+    }
+}
@@ -0,0 +1,58 @@
+package simulation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands RenderSnapshots from one writer thread to one reader thread without
+ * locks.
+ * There are three snapshots: the writer owns one, the reader owns one, and the
+ * third is the latest published snapshot. Publishing swaps the writer's
+ * snapshot with the published one, and acquiring swaps the reader's snapshot
+ * with it if a newer one was published. Both swaps are a single atomic
+ * exchange, so neither thread ever waits for the other, and the reader always
+ * sees a complete snapshot.
+ */
+public class SnapshotBuffer {
+    private static final int INDEX_MASK = 0b11;
+    private static final int FRESH = 0b100;
+
+    private final RenderSnapshot[] snapshots = { new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot() };
+    private final AtomicInteger published = new AtomicInteger(1);
+    private int writeIndex = 0;
+    private int readIndex = 2;
+
+    /**
+     * This method is responsible for returning the snapshot the writer can fill.
+     * It still holds the data of an older frame, so every field must be written.
+     * Only the writer thread may call it.
+     *
+     * @return The snapshot owned by the writer.
+     */
+    public RenderSnapshot beginWrite() {
+        return snapshots[writeIndex];
+    }
+
+    /**
+     * This method is responsible for publishing the snapshot returned by
+     * beginWrite. The writer gets another snapshot to fill next time.
+     * Only the writer thread may call it.
+     */
+    public void publish() {
+        writeIndex = published.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * This method is responsible for returning the latest published snapshot.
+     * If nothing was published since the last call, the same snapshot is returned
+     * again. The snapshot stays valid until the next call.
+     * Only the reader thread may call it.
+     *
+     * @return The snapshot owned by the reader.
+     */
+    public RenderSnapshot acquire() {
+        if ((published.get() & FRESH) != 0) {
+            readIndex = published.getAndSet(readIndex) & INDEX_MASK;
+        }
+        return snapshots[readIndex];
+    }
+}
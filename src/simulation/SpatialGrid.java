@@ -0,0 +1,321 @@
+package simulation;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import entity.Entity;
+
+/**
+ * A uniform grid of square cells that indexes entities by their position.
+ * Every entity is stored in the cell that contains its (x, y) point, and it is
+ * only moved to another cell when it crosses a cell border, so keeping the grid
+ * up to date costs a couple of comparisons per moved entity.
+ * Queries only visit the cells around the query point, so their cost depends
+ * on how crowded that area is, not on how many entities exist.
+ *
+ * The cell and the slot of an entity are stored in the entity itself, so the
+ * same entity can only be in one grid at a time.
+ */
+public class SpatialGrid<T extends Entity> {
+    private final int cellSize;
+    private final int originX;
+    private final int originY;
+    private final int cols;
+    private final int rows;
+    private final List<List<T>> cells;
+    private int size = 0;
+
+    /**
+     * Constructor for the SpatialGrid class.
+     * The grid covers the given area plus a border of one cell on every side.
+     * Entities outside of it are kept in the nearest border cell.
+     *
+     * @param width    The width of the indexed area.
+     * @param height   The height of the indexed area.
+     * @param cellSize The size of a cell, usually the tile size.
+     */
+    public SpatialGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.originX = -cellSize;
+        this.originY = -cellSize;
+        this.cols = (width + cellSize - 1) / cellSize + 2;
+        this.rows = (height + cellSize - 1) / cellSize + 2;
+        this.cells = new ArrayList<List<T>>(cols * rows);
+        for (int i = 0; i < cols * rows; i++) {
+            cells.add(new ArrayList<T>());
+        }
+    }
+
+    private int cellCol(float x) {
+        int col = (int) Math.floor((x - originX) / cellSize);
+        return Math.max(0, Math.min(cols - 1, col));
+    }
+
+    private int cellRow(float y) {
+        int row = (int) Math.floor((y - originY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    // Returns the number of entities in the grid
+    public int size() {
+        return size;
+    }
+
+    // Returns the size of a cell
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * This method is responsible for adding an entity to the cell that contains
+     * its position.
+     *
+     * @param entity The entity to add.
+     */
+    public void insert(T entity) {
+        int cell = cellRow(entity.getY()) * cols + cellCol(entity.getX());
+        List<T> list = cells.get(cell);
+        entity.setGridCell(cell);
+        entity.setGridSlot(list.size());
+        list.add(entity);
+        size++;
+    }
+
+    /**
+     * This method is responsible for removing an entity from the grid.
+     * The last entity of the cell takes its slot, so removal does not shift the
+     * cell contents.
+     *
+     * @param entity The entity to remove.
+     */
+    public void remove(T entity) {
+        int cell = entity.getGridCell();
+        if (cell < 0) {
+            return;
+        }
+        List<T> list = cells.get(cell);
+        int slot = entity.getGridSlot();
+        T last = list.remove(list.size() - 1);
+        if (last != entity) {
+            list.set(slot, last);
+            last.setGridSlot(slot);
+        }
+        entity.setGridCell(-1);
+        entity.setGridSlot(-1);
+        size--;
+    }
+
+    /**
+     * This method is responsible for moving an entity to a new cell after its
+     * position changed. Nothing happens if it is still in the same cell.
+     *
+     * @param entity The entity that moved.
+     */
+    public void update(T entity) {
+        int cell = cellRow(entity.getY()) * cols + cellCol(entity.getX());
+        if (cell != entity.getGridCell()) {
+            remove(entity);
+            insert(entity);
+        }
+    }
+
+    // Removes every entity from the grid
+    public void clear() {
+        for (List<T> list : cells) {
+            for (T entity : list) {
+                entity.setGridCell(-1);
+                entity.setGridSlot(-1);
+            }
+            list.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * This method is responsible for finding the entity closest to a point.
+     * Cells are visited in rings of growing distance around the point, and the
+     * search stops as soon as no unvisited cell can hold a closer entity.
+     * Ties are broken by the lowest entity id, so the result does not depend on
+     * the order of the entities inside the cells.
+     *
+     * @param x         The x coordinate of the point.
+     * @param y         The y coordinate of the point.
+     * @param maxRadius The maximum distance of the result.
+     * @return The closest entity within maxRadius, or null if there is none.
+     */
+    public T nearest(float x, float y, double maxRadius) {
+        int centerCol = cellCol(x);
+        int centerRow = cellRow(y);
+        int maxRing = ringsFor(maxRadius);
+        T closest = null;
+        double closestDistance = maxRadius * maxRadius;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (closest != null && ringDistance(ring) > closestDistance) {
+                break;
+            }
+            int minRow = centerRow - ring;
+            int maxRow = centerRow + ring;
+            for (int row = Math.max(0, minRow); row <= Math.min(rows - 1, maxRow); row++) {
+                boolean edgeRow = row == minRow || row == maxRow;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int col = centerCol - ring; col <= centerCol + ring; col += Math.max(1, step)) {
+                    if (col < 0 || col >= cols) {
+                        continue;
+                    }
+                    for (T entity : cells.get(row * cols + col)) {
+                        double dx = entity.getX() - x;
+                        double dy = entity.getY() - y;
+                        double distance = dx * dx + dy * dy;
+                        if (distance < closestDistance || distance == closestDistance
+                                && (closest == null || entity.getId() < closest.getId())) {
+                            closest = entity;
+                            closestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * This method is responsible for finding the k entities closest to a point.
+     * The result is sorted from the closest to the farthest, ties broken by the
+     * lowest entity id.
+     *
+     * @param x         The x coordinate of the point.
+     * @param y         The y coordinate of the point.
+     * @param k         The maximum number of entities to find.
+     * @param maxRadius The maximum distance of the results.
+     * @param out       The list that receives the results. It is cleared first.
+     */
+    public void kNearest(float x, float y, int k, double maxRadius, List<T> out) {
+        out.clear();
+        if (k <= 0) {
+            return;
+        }
+        int centerCol = cellCol(x);
+        int centerRow = cellRow(y);
+        int maxRing = ringsFor(maxRadius);
+        double maxDistance = maxRadius * maxRadius;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (out.size() == k && ringDistance(ring) > distanceTo(out.get(k - 1), x, y)) {
+                break;
+            }
+            int minRow = centerRow - ring;
+            int maxRow = centerRow + ring;
+            for (int row = Math.max(0, minRow); row <= Math.min(rows - 1, maxRow); row++) {
+                boolean edgeRow = row == minRow || row == maxRow;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int col = centerCol - ring; col <= centerCol + ring; col += Math.max(1, step)) {
+                    if (col < 0 || col >= cols) {
+                        continue;
+                    }
+                    for (T entity : cells.get(row * cols + col)) {
+                        double distance = distanceTo(entity, x, y);
+                        if (distance <= maxDistance) {
+                            insertSorted(out, entity, distance, k, x, y);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void insertSorted(List<T> out, T entity, double distance, int k, float x, float y) {
+        int index = out.size();
+        while (index > 0) {
+            T other = out.get(index - 1);
+            double otherDistance = distanceTo(other, x, y);
+            if (otherDistance < distance || otherDistance == distance && other.getId() < entity.getId()) {
+                break;
+            }
+            index--;
+        }
+        if (index >= k) {
+            return;
+        }
+        out.add(index, entity);
+        if (out.size() > k) {
+            out.remove(out.size() - 1);
+        }
+    }
+
+    /**
+     * This method is responsible for finding every entity within a distance of a
+     * point. The results are in no particular order.
+     *
+     * @param x      The x coordinate of the point.
+     * @param y      The y coordinate of the point.
+     * @param radius The maximum distance.
+     * @param out    The list that receives the results. It is cleared first.
+     */
+    public void queryRadius(float x, float y, double radius, List<T> out) {
+        out.clear();
+        double maxDistance = radius * radius;
+        int minCol = cellCol((float) (x - radius));
+        int maxCol = cellCol((float) (x + radius));
+        int minRow = cellRow((float) (y - radius));
+        int maxRow = cellRow((float) (y + radius));
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                for (T entity : cells.get(row * cols + col)) {
+                    if (distanceTo(entity, x, y) <= maxDistance) {
+                        out.add(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for finding every entity whose hitbox overlaps a
+     * rectangle. The results are in no particular order.
+     * Hitboxes may extend up to one cell to the right of and below the entity
+     * position, so the cells just above and to the left of the rectangle are
+     * checked as well.
+     *
+     * @param area The rectangle to test.
+     * @param out  The list that receives the results. It is cleared first.
+     */
+    public void queryOverlap(Rectangle area, List<T> out) {
+        out.clear();
+        int minCol = cellCol(area.x - cellSize);
+        int maxCol = cellCol(area.x + area.width);
+        int minRow = cellRow(area.y - cellSize);
+        int maxRow = cellRow(area.y + area.height);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                for (T entity : cells.get(row * cols + col)) {
+                    if (entity.getHitbox().intersects(area)) {
+                        out.add(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    private static double distanceTo(Entity entity, float x, float y) {
+        double dx = entity.getX() - x;
+        double dy = entity.getY() - y;
+        return dx * dx + dy * dy;
+    }
+
+    // Returns the squared distance that every entity of the ring is at least at
+    private double ringDistance(int ring) {
+        double distance = (double) (ring - 1) * cellSize;
+        return ring <= 1 ? 0 : distance * distance;
+    }
+
+    // Returns the number of rings to visit to cover a radius
+    private int ringsFor(double radius) {
+        int maxRing = Math.max(cols, rows);
+        if (radius >= (double) maxRing * cellSize) {
+            return maxRing;
+        }
+        return (int) Math.ceil(radius / cellSize) + 1;
+    }
+}
@@ -0,0 +1,83 @@
+package simulation;
+
+/**
+ * A wave of enemies: bursts of enemies that spawn at a fixed interval, from a
+ * given tick on. Each burst can spawn more enemies than the one before it, so
+ * a wave can ramp up over time.
+ * A wave is only a definition. The world schedules its next burst on a
+ * TimerWheel, and because the bursts fall on fixed ticks the next one can
+ * always be found from the current tick, e.g. after loading a save.
+ */
+public class SpawnWave {
+    private final long startTick;
+    private final int interval;
+    private final int burstSize;
+    private final float ramp;
+    private final long burstCount;
+
+    /**
+     * Constructor for the SpawnWave class.
+     *
+     * @param startTick  The tick of the first burst.
+     * @param interval   The number of ticks between two bursts.
+     * @param burstSize  The number of enemies of the first burst.
+     * @param ramp       The number of enemies added to each burst after the
+     *                   first, e.g. 0.5 adds an enemy every other burst.
+     * @param burstCount The number of bursts, or 0 for a wave that never ends.
+     */
+    public SpawnWave(long startTick, int interval, int burstSize, float ramp, long burstCount) {
+        if (startTick < 0 || interval < 1 || burstSize < 0 || ramp < 0 || burstCount < 0) {
+            throw new IllegalArgumentException("Invalid spawn wave");
+        }
+        this.startTick = startTick;
+        this.interval = interval;
+        this.burstSize = burstSize;
+        this.ramp = ramp;
+        this.burstCount = burstCount;
+    }
+
+    // Returns the tick of the first burst
+    public long getStartTick() {
+        return startTick;
+    }
+
+    // Returns the number of ticks between two bursts
+    public int getInterval() {
+        return interval;
+    }
+
+    // Returns the number of enemies of the first burst
+    public int getBurstSize() {
+        return burstSize;
+    }
+
+    // Returns the number of enemies added to each burst after the first
+    public float getRamp() {
+        return ramp;
+    }
+
+    // Returns the number of bursts, or 0 if the wave never ends
+    public long getBurstCount() {
+        return burstCount;
+    }
+
+    // Returns the number of enemies spawned by the burst on the given tick
+    public int getBurstSize(long tick) {
+        return burstSize + (int) (ramp * ((tick - startTick) / interval));
+    }
+
+    /**
+     * This method is responsible for finding the first burst on or after the
+     * given tick.
+     *
+     * @param tick The tick to start looking from.
+     * @return The tick of the burst, or -1 if the wave is over by then.
+     */
+    public long getNextBurstTick(long tick) {
+        long burst = tick <= startTick ? 0 : (tick - startTick + interval - 1) / interval;
+        if (burstCount > 0 && burst >= burstCount) {
+            return -1;
+        }
+        return startTick + burst * interval;
+    }
+}
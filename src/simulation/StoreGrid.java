@@ -0,0 +1,119 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the entities of an EntityStore, the array counterpart of
+ * SpatialGrid.
+ * Like SpatialGrid, every entity is in the cell that contains its (x, y) point,
+ * the grid covers the world plus a border of one cell on every side, and
+ * entities outside of it are kept in the nearest border cell.
+ * Entities move every tick and change index when others are removed, so the
+ * grid is not kept up to date: it is rebuilt from scratch with a counting sort,
+ * which only takes two passes over the positions. The indices of the entities
+ * of a cell are then contiguous in one array.
+ */
+class StoreGrid {
+    private final int cellSize;
+    private final int originX;
+    private final int originY;
+    private final int cols;
+    private final int rows;
+
+    // cellStart[cell] to cellStart[cell + 1] - 1 are the positions in entities
+    // of the entities of the cell
+    private final int[] cellStart;
+    private int[] entityCells = new int[64];
+    private int[] entities = new int[64];
+    private int size = 0;
+
+    /**
+     * Constructor for the StoreGrid class.
+     *
+     * @param width    The width of the indexed area.
+     * @param height   The height of the indexed area.
+     * @param cellSize The size of a cell, usually the tile size.
+     */
+    StoreGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.originX = -cellSize;
+        this.originY = -cellSize;
+        this.cols = (width + cellSize - 1) / cellSize + 2;
+        this.rows = (height + cellSize - 1) / cellSize + 2;
+        this.cellStart = new int[cols * rows + 1];
+    }
+
+    // Returns the size of a cell
+    int getCellSize() {
+        return cellSize;
+    }
+
+    // Returns the number of indexed entities
+    int size() {
+        return size;
+    }
+
+    int cellCol(float x) {
+        int col = (int) Math.floor((x - originX) / cellSize);
+        return Math.max(0, Math.min(cols - 1, col));
+    }
+
+    int cellRow(float y) {
+        int row = (int) Math.floor((y - originY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    // Returns the cell at the given column and row
+    int cell(int col, int row) {
+        return row * cols + col;
+    }
+
+    // Returns the first position of the entities of a cell
+    int cellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    // Returns the position after the last entity of a cell
+    int cellEnd(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    // Returns the store index of the entity at the given position
+    int entityAt(int position) {
+        return entities[position];
+    }
+
+    /**
+     * This method is responsible for indexing every entity of a store by its
+     * current position.
+     *
+     * @param store The store to index.
+     */
+    void build(EntityStore store) {
+        size = store.size();
+        if (entities.length < size) {
+            int capacity = Math.max(size, entities.length * 2);
+            entities = new int[capacity];
+            entityCells = new int[capacity];
+        }
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < size; i++) {
+            int cell = cellRow(store.y[i]) * cols + cellCol(store.x[i]);
+            entityCells[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        int cellCount = cols * rows;
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        // cellStart[cell] is used as the insertion point, which leaves it at the
+        // start of the next cell; shifting it back restores it
+        for (int i = 0; i < size; i++) {
+            entities[cellStart[entityCells[i]]++] = i;
+        }
+        for (int cell = cellCount; cell > 0; cell--) {
+            cellStart[cell] = cellStart[cell - 1];
+        }
+        cellStart[0] = 0;
+    }
+}
@@ -0,0 +1,180 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import entity.Enemy;
+import entity.Entity;
+import entity.Player;
+import entity.Tower;
+
+/**
+ * Picks the targets of the player and of the towers, once per tick, as one
+ * batch.
+ *
+ * Every shooter whose attack is ready runs one radius query against the shared
+ * index of the enemies: the SpatialGrid of the world for objects, or the
+ * StoreGrid the ArraySimulation builds once per tick for entity stores. So the
+ * cost of a tick grows with the number of towers plus the enemies around them,
+ * not with towers times enemies, and shooters that are not ready cost nothing
+ * but a comparison.
+ *
+ * Each enemy keeps the damage of the bullets already flying towards it. A
+ * shooter picks the closest enemy in its radius that this damage does not
+ * already kill, ties broken by the lowest id, so two towers never spend their
+ * shots on an enemy that is about to die anyway. The damage is committed when a
+ * bullet is fired and released by the ProjectileSystem when the bullet ends. A
+ * shooter that finds no such enemy keeps its attack ready for the next tick.
+ *
+ * The player shoots first, then the towers in the order they were placed, so
+ * the assignment is the same on every run.
+ */
+public class TargetingSystem {
+    private final World world;
+
+    // Results of the radius queries, reused every tick
+    private final List<Enemy> candidates = new ArrayList<Enemy>();
+
+    // Statistics
+    private long shots = 0;
+    private long heldShots = 0;
+
+    /**
+     * Constructor for the TargetingSystem class.
+     *
+     * @param world The world whose player and towers shoot.
+     */
+    public TargetingSystem(World world) {
+        this.world = world;
+    }
+
+    // Returns the number of bullets fired
+    public long getShots() {
+        return shots;
+    }
+
+    // Returns the number of times a ready shooter found nothing worth shooting
+    public long getHeldShots() {
+        return heldShots;
+    }
+
+    /**
+     * This method is responsible for letting every ready shooter fire at the
+     * enemies kept as objects.
+     */
+    public void assign() {
+        if (world.getEnemies().isEmpty()) {
+            return;
+        }
+        long tick = world.getTick();
+        Player player = world.getPlayer();
+        if (tick >= player.getAttackReadyTick()) {
+            shoot(player, player.getAttackRadius());
+        }
+        List<Tower> towers = world.getTowers();
+        for (int i = 0; i < towers.size(); i++) {
+            Tower tower = towers.get(i);
+            if (tick >= tower.getAttackReadyTick()) {
+                shoot(tower, tower.getAttackRadius());
+            }
+        }
+    }
+
+    private void shoot(Entity shooter, double radius) {
+        float x = shooter.getX();
+        float y = shooter.getY();
+        world.getEnemyGrid().queryRadius(x, y, radius, candidates);
+        Enemy target = null;
+        double targetDistance = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Enemy enemy = candidates.get(i);
+            if (enemy.getHealth() - enemy.getCommittedDamage() <= 0) {
+                continue;
+            }
+            double dx = enemy.getX() - x;
+            double dy = enemy.getY() - y;
+            double distance = dx * dx + dy * dy;
+            if (target == null || distance < targetDistance
+                    || distance == targetDistance && enemy.getId() < target.getId()) {
+                target = enemy;
+                targetDistance = distance;
+            }
+        }
+        if (target == null) {
+            heldShots++;
+            return;
+        }
+        world.fireBullet(shooter, target);
+        target.setCommittedDamage(target.getCommittedDamage() + shooter.getDamage());
+        shooter.setAttackReadyTick(world.getTick() + shooter.getAttackCooldown());
+        shots++;
+    }
+
+    /**
+     * This method is responsible for letting every ready shooter fire at the
+     * enemies kept in an entity store.
+     *
+     * @param simulation The simulation that holds the enemies and the bullets.
+     * @param enemyGrid  The enemies indexed by position.
+     */
+    void assign(ArraySimulation simulation, StoreGrid enemyGrid) {
+        if (simulation.getEnemies().size() == 0) {
+            return;
+        }
+        long tick = world.getTick();
+        Player player = world.getPlayer();
+        if (tick >= player.getAttackReadyTick()) {
+            shoot(simulation, enemyGrid, player, player.getAttackRadius());
+        }
+        List<Tower> towers = world.getTowers();
+        for (int i = 0; i < towers.size(); i++) {
+            Tower tower = towers.get(i);
+            if (tick >= tower.getAttackReadyTick()) {
+                shoot(simulation, enemyGrid, tower, tower.getAttackRadius());
+            }
+        }
+    }
+
+    private void shoot(ArraySimulation simulation, StoreGrid enemyGrid, Entity shooter, double radius) {
+        EntityStore enemies = simulation.getEnemies();
+        float x = shooter.getX();
+        float y = shooter.getY();
+        double maxDistance = radius * radius;
+        int minCol = enemyGrid.cellCol((float) (x - radius));
+        int maxCol = enemyGrid.cellCol((float) (x + radius));
+        int minRow = enemyGrid.cellRow((float) (y - radius));
+        int maxRow = enemyGrid.cellRow((float) (y + radius));
+        int target = -1;
+        double targetDistance = 0;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = enemyGrid.cell(col, row);
+                for (int k = enemyGrid.cellStart(cell), end = enemyGrid.cellEnd(cell); k < end; k++) {
+                    int enemy = enemyGrid.entityAt(k);
+                    if (enemies.health[enemy] - enemies.committedDamage[enemy] <= 0) {
+                        continue;
+                    }
+                    double dx = enemies.x[enemy] - x;
+                    double dy = enemies.y[enemy] - y;
+                    double distance = dx * dx + dy * dy;
+                    if (distance > maxDistance) {
+                        continue;
+                    }
+                    if (target < 0 || distance < targetDistance
+                            || distance == targetDistance && enemies.id[enemy] < enemies.id[target]) {
+                        target = enemy;
+                        targetDistance = distance;
+                    }
+                }
+            }
+        }
+        if (target < 0) {
+            heldShots++;
+            return;
+        }
+        simulation.fireBullet(shooter, target);
+        enemies.committedDamage[target] += shooter.getDamage();
+        shooter.setAttackReadyTick(world.getTick() + shooter.getAttackCooldown());
+        shots++;
+    }
+}
@@ -0,0 +1,264 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * Schedules things that must happen on a given tick, like the bursts of a
+ * spawn wave, so the tick does not have to poll a counter for each of them.
+ *
+ * This is a hashed timing wheel: a ring of slots, one per tick, where a timer
+ * due on tick t waits in slot t modulo the number of slots. Advancing the
+ * wheel by a tick only visits one slot, so the cost of a tick depends on the
+ * timers that fire and not on the timers that wait. Timers due more than one
+ * turn of the wheel ahead simply stay in their slot until their turn comes.
+ *
+ * A timer is a type, a target and a deadline, kept in parallel arrays like an
+ * EntityStore, so scheduling does not allocate once the arrays have grown.
+ * Timers due on the same tick fire in the order they were scheduled, which
+ * keeps the world deterministic.
+ */
+public class TimerWheel {
+    /**
+     * Receives the timers that fire.
+     */
+    public interface Handler {
+        // Called when a timer fires; the handler may schedule and cancel timers
+        void onTimer(int type, long target, long tick);
+    }
+
+    public static final int DEFAULT_SLOTS = 256;
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int NONE = -1;
+    private static final int FIRING = -2;
+    private static final int CANCELLED = -3;
+
+    private final int mask;
+    private final int[] heads;
+    private final int[] tails;
+
+    // Timers
+    private long[] deadlines;
+    private int[] types;
+    private long[] targets;
+    private int[] next;
+    private int[] previous;
+    private int[] slots;
+    private int[] generations;
+    private int freeHead = NONE;
+    private int timerCount = 0;
+    private int size = 0;
+
+    // The next tick to fire
+    private long currentTick = 0;
+
+    public TimerWheel() {
+        this(DEFAULT_SLOTS);
+    }
+
+    /**
+     * Constructor for the TimerWheel class.
+     *
+     * @param slotCount The number of slots, rounded up to a power of two. Timers
+     *                  due within this many ticks never wait a full turn.
+     */
+    public TimerWheel(int slotCount) {
+        int slotsPowerOfTwo = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        mask = slotsPowerOfTwo - 1;
+        heads = new int[slotsPowerOfTwo];
+        tails = new int[slotsPowerOfTwo];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+        deadlines = new long[DEFAULT_CAPACITY];
+        types = new int[DEFAULT_CAPACITY];
+        targets = new long[DEFAULT_CAPACITY];
+        next = new int[DEFAULT_CAPACITY];
+        previous = new int[DEFAULT_CAPACITY];
+        slots = new int[DEFAULT_CAPACITY];
+        generations = new int[DEFAULT_CAPACITY];
+    }
+
+    // Returns the number of scheduled timers
+    public int size() {
+        return size;
+    }
+
+    // Returns the next tick the wheel will fire
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * This method is responsible for scheduling a timer. A deadline that has
+     * already passed fires on the next tick the wheel advances to.
+     *
+     * @param deadline The tick the timer fires on.
+     * @param type     What the timer is for, passed back to the handler.
+     * @param target   What the timer applies to, passed back to the handler.
+     * @return A handle to cancel the timer with.
+     */
+    public long schedule(long deadline, int type, long target) {
+        deadline = Math.max(deadline, currentTick);
+        int timer = allocate();
+        deadlines[timer] = deadline;
+        types[timer] = type;
+        targets[timer] = target;
+        int slot = (int) (deadline & mask);
+        slots[timer] = slot;
+        next[timer] = NONE;
+        previous[timer] = tails[slot];
+        if (tails[slot] == NONE) {
+            heads[slot] = timer;
+        } else {
+            next[tails[slot]] = timer;
+        }
+        tails[slot] = timer;
+        size++;
+        return (long) generations[timer] << 32 | timer;
+    }
+
+    /**
+     * This method is responsible for cancelling a timer that has not fired yet.
+     * Cancelling a timer that already fired or was cancelled does nothing.
+     *
+     * @param handle The handle returned by schedule.
+     * @return True if the timer was cancelled.
+     */
+    public boolean cancel(long handle) {
+        int timer = (int) handle;
+        if (timer < 0 || timer >= timerCount || generations[timer] != (int) (handle >>> 32)) {
+            return false;
+        }
+        if (slots[timer] == FIRING) {
+            // Already taken out of its slot to fire on this tick
+            slots[timer] = CANCELLED;
+            size--;
+            return true;
+        }
+        if (slots[timer] < 0) {
+            return false;
+        }
+        unlink(timer);
+        release(timer);
+        size--;
+        return true;
+    }
+
+    /**
+     * This method is responsible for firing every timer due up to and including
+     * the given tick, in the order of their deadlines and then in the order they
+     * were scheduled. It is meant to be called once per tick; after a jump in
+     * time use reset instead.
+     *
+     * @param tick    The tick to advance to.
+     * @param handler Receives the timers that fire.
+     */
+    public void advance(long tick, Handler handler) {
+        while (currentTick <= tick) {
+            // Moved on first, so a timer the handler schedules for the tick
+            // that is firing goes to the next one instead of a turn later
+            long firing = currentTick++;
+            fire(firing, handler);
+        }
+    }
+
+    // Fires the timers of one tick. They are taken out of the slot first, so the
+    // handler can schedule and cancel timers freely.
+    private void fire(long tick, Handler handler) {
+        int slot = (int) (tick & mask);
+        int dueHead = NONE;
+        int dueTail = NONE;
+        int timer = heads[slot];
+        while (timer != NONE) {
+            int following = next[timer];
+            if (deadlines[timer] <= tick) {
+                unlink(timer);
+                slots[timer] = FIRING;
+                next[timer] = NONE;
+                if (dueTail == NONE) {
+                    dueHead = timer;
+                } else {
+                    next[dueTail] = timer;
+                }
+                dueTail = timer;
+            }
+            timer = following;
+        }
+
+        timer = dueHead;
+        while (timer != NONE) {
+            int following = next[timer];
+            boolean isCancelled = slots[timer] == CANCELLED;
+            int type = types[timer];
+            long target = targets[timer];
+            release(timer);
+            if (!isCancelled) {
+                size--;
+                handler.onTimer(type, target, tick);
+            }
+            timer = following;
+        }
+    }
+
+    /**
+     * This method is responsible for dropping every timer and moving the wheel
+     * to the given tick, e.g. after the clock jumped forward or was restored.
+     *
+     * @param tick The next tick the wheel will fire.
+     */
+    public void reset(long tick) {
+        for (int slot = 0; slot <= mask; slot++) {
+            int timer = heads[slot];
+            while (timer != NONE) {
+                int following = next[timer];
+                release(timer);
+                timer = following;
+            }
+            heads[slot] = NONE;
+            tails[slot] = NONE;
+        }
+        size = 0;
+        currentTick = tick;
+    }
+
+    private void unlink(int timer) {
+        int slot = slots[timer];
+        if (previous[timer] == NONE) {
+            heads[slot] = next[timer];
+        } else {
+            next[previous[timer]] = next[timer];
+        }
+        if (next[timer] == NONE) {
+            tails[slot] = previous[timer];
+        } else {
+            previous[next[timer]] = previous[timer];
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int timer = freeHead;
+            freeHead = next[timer];
+            return timer;
+        }
+        if (timerCount == deadlines.length) {
+            int capacity = timerCount * 2;
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            types = Arrays.copyOf(types, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        return timerCount++;
+    }
+
+    // Returns a timer to the free list; the new generation makes old handles
+    // stale
+    private void release(int timer) {
+        generations[timer]++;
+        slots[timer] = NONE;
+        next[timer] = freeHead;
+        freeHead = timer;
+    }
+}
@@ -0,0 +1,906 @@
+package simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import diagnostics.EventLog;
+import diagnostics.Profiler;
+import entity.Bullet;
+import entity.Enemy;
+import entity.Entity;
+import entity.Player;
+import entity.Tower;
+
+public class World {
+
+    // World settings
+    protected final int originalTileSize;
+    protected final int scale;
+    protected final int tileSize;
+    protected final int maxCols;
+    protected final int maxRows;
+    protected final int width;
+    protected final int height;
+    protected final int ticksPerSecond;
+
+    // Spawning
+    protected final int enemySpawnCooldown;
+    protected List<SpawnWave> waves = new ArrayList<SpawnWave>();
+
+    // Timers
+    private static final int TIMER_SPAWN_WAVE = 0;
+    protected TimerWheel timers = new TimerWheel();
+    private final TimerWheel.Handler timerHandler = this::onTimer;
+
+    // Game state
+    private long tick = 0;
+    private long enemiesKilled = 0;
+    private long nextEntityId = 1;
+    private boolean isGameOver = false;
+    private WorldListener listener = new WorldListener() {
+    };
+    private GameRandom random = new GameRandom(System.nanoTime());
+
+    // Entities
+    protected Player player;
+    protected List<Enemy> enemies = new ArrayList<Enemy>();
+    protected List<Tower> towers = new ArrayList<Tower>();
+    protected SpatialGrid<Enemy> enemyGrid;
+    protected ArraySimulation arraySimulation;
+    protected ParallelEnemyUpdater parallelEnemyUpdater;
+    protected TargetingSystem targeting = new TargetingSystem(this);
+    protected ProjectileSystem projectiles = new ProjectileSystem(this);
+
+    // Pools
+    private static final int DEFAULT_POOL_CAPACITY = 1024;
+    protected EntityPool<Enemy> enemyPool = new EntityPool<Enemy>(DEFAULT_POOL_CAPACITY);
+    protected EntityPool<Bullet> bulletPool = new EntityPool<Bullet>(DEFAULT_POOL_CAPACITY);
+
+    // Diagnostics
+    protected Profiler profiler = new Profiler();
+
+    /**
+     * Constructor for the World class.
+     * All distances are measured in scaled pixels and all durations in ticks, so
+     * the same world can be driven by a 60 Hz window or by a headless loop that
+     * runs as fast as possible.
+     *
+     * @param originalTileSize The size of a tile in the sprite sheets.
+     * @param scale            The factor applied to the original tile size.
+     * @param maxCols          The number of tile columns of the world.
+     * @param maxRows          The number of tile rows of the world.
+     * @param ticksPerSecond   The number of ticks that make a second of game time.
+     */
+    public World(int originalTileSize, int scale, int maxCols, int maxRows, int ticksPerSecond) {
+        this.originalTileSize = originalTileSize;
+        this.scale = scale;
+        this.tileSize = originalTileSize * scale;
+        this.maxCols = maxCols;
+        this.maxRows = maxRows;
+        this.width = maxCols * tileSize;
+        this.height = maxRows * tileSize;
+        this.ticksPerSecond = ticksPerSecond;
+        this.enemySpawnCooldown = ticksPerSecond;
+        this.enemyGrid = new SpatialGrid<Enemy>(width, height, tileSize);
+        this.player = new Player(this);
+        this.player.setId(nextEntityId());
+        addWave(new SpawnWave(enemySpawnCooldown - 1, enemySpawnCooldown, 1, 0, 0));
+    }
+
+    /**
+     * Constructor for a World that can keep its enemies and bullets in
+     * EntityStores instead of objects.
+     * With the entity store, the enemy list and the spatial grid stay empty and
+     * the entities are only reachable through getArraySimulation().
+     *
+     * @param originalTileSize The size of a tile in the sprite sheets.
+     * @param scale            The factor applied to the original tile size.
+     * @param maxCols          The number of tile columns of the world.
+     * @param maxRows          The number of tile rows of the world.
+     * @param ticksPerSecond   The number of ticks that make a second of game time.
+     * @param useEntityStore   True to store enemies and bullets as arrays.
+     */
+    public World(int originalTileSize, int scale, int maxCols, int maxRows, int ticksPerSecond,
+            boolean useEntityStore) {
+        this(originalTileSize, scale, maxCols, maxRows, ticksPerSecond);
+        if (useEntityStore) {
+            this.arraySimulation = new ArraySimulation(this);
+        }
+    }
+
+    /**
+     * Getter methods for the World class.
+     */
+
+    // Returns the scale of the world
+    public int getScale() {
+        return scale;
+    }
+
+    // Returns the original size of the tiles
+    public int getOriginalTileSize() {
+        return originalTileSize;
+    }
+
+    // Returns the scaled size of the tiles
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    // Returns the number of tile columns
+    public int getMaxCols() {
+        return maxCols;
+    }
+
+    // Returns the number of tile rows
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    // Returns the width of the world in scaled pixels
+    public int getWidth() {
+        return width;
+    }
+
+    // Returns the height of the world in scaled pixels
+    public int getHeight() {
+        return height;
+    }
+
+    // Returns the number of ticks in a second of game time
+    public int getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    // Returns the number of ticks simulated so far
+    public long getTick() {
+        return tick;
+    }
+
+    // Returns the number of enemies killed so far
+    public long getEnemiesKilled() {
+        return enemiesKilled;
+    }
+
+    // Returns the player object
+    public Player getPlayer() {
+        return player;
+    }
+
+    // Returns the list of enemies
+    public List<Enemy> getEnemies() {
+        return enemies;
+    }
+
+    // Returns the spatial index of the enemies
+    public SpatialGrid<Enemy> getEnemyGrid() {
+        return enemyGrid;
+    }
+
+    // Returns the array based simulation, or null if entities are objects
+    public ArraySimulation getArraySimulation() {
+        return arraySimulation;
+    }
+
+    // Returns the towers, in the order they were placed
+    public List<Tower> getTowers() {
+        return towers;
+    }
+
+    // Returns the system that picks the targets of the player and the towers
+    public TargetingSystem getTargeting() {
+        return targeting;
+    }
+
+    // Returns the system that moves the bullets
+    public ProjectileSystem getProjectiles() {
+        return projectiles;
+    }
+
+    // Returns the pool of removed enemies
+    public EntityPool<Enemy> getEnemyPool() {
+        return enemyPool;
+    }
+
+    // Returns the pool of removed bullets
+    public EntityPool<Bullet> getBulletPool() {
+        return bulletPool;
+    }
+
+    /**
+     * This method is responsible for replacing the entity pools with pools of the
+     * given capacity. It should be called before the first tick.
+     *
+     * @param enemyCapacity  The number of removed enemies kept for reuse.
+     * @param bulletCapacity The number of removed bullets kept for reuse.
+     */
+    public void setPoolCapacity(int enemyCapacity, int bulletCapacity) {
+        enemyPool = new EntityPool<Enemy>(enemyCapacity);
+        bulletPool = new EntityPool<Bullet>(bulletCapacity);
+    }
+
+    // Returns the profiler timing the phases of a tick
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    // Returns the parallel enemy updater, or null if enemies update one by one
+    public ParallelEnemyUpdater getParallelEnemyUpdater() {
+        return parallelEnemyUpdater;
+    }
+
+    /**
+     * This method is responsible for switching the enemy update between the
+     * sequential loop and a fork-join pool. Both give the same results.
+     *
+     * @param parallelism The number of worker threads, or 0 to update the enemies
+     *                    one by one.
+     */
+    public void setEnemyUpdateParallelism(int parallelism) {
+        if (parallelEnemyUpdater != null) {
+            parallelEnemyUpdater.shutdown();
+            parallelEnemyUpdater = null;
+        }
+        if (parallelism > 0) {
+            parallelEnemyUpdater = new ParallelEnemyUpdater(parallelism);
+        }
+    }
+
+    // Returns the number of live enemies, whichever way they are stored
+    public int getEnemyCount() {
+        return arraySimulation != null ? arraySimulation.getEnemies().size() : enemies.size();
+    }
+
+    // Returns true once the player has died
+    public boolean isGameOver() {
+        return isGameOver;
+    }
+
+    // Returns the generator behind every random decision of the world
+    public GameRandom getRandom() {
+        return random;
+    }
+
+    // Sets the generator behind every random decision of the world, e.g. a
+    // seeded one to make a run reproducible
+    public void setRandom(GameRandom random) {
+        this.random = random;
+    }
+
+    // Returns the spawn waves of the world
+    public List<SpawnWave> getWaves() {
+        return waves;
+    }
+
+    // Returns the scheduler of the spawn waves
+    public TimerWheel getTimers() {
+        return timers;
+    }
+
+    /**
+     * This method is responsible for adding a spawn wave and scheduling its
+     * next burst. A new world starts with one wave that spawns an enemy every
+     * second of game time.
+     *
+     * @param wave The wave to add.
+     */
+    public void addWave(SpawnWave wave) {
+        waves.add(wave);
+        scheduleWave(waves.size() - 1);
+    }
+
+    // Removes every spawn wave, e.g. to replace the default one
+    public void clearWaves() {
+        waves.clear();
+        timers.reset(tick);
+    }
+
+    // Schedules the next burst of a wave, if it has one left
+    private void scheduleWave(int index) {
+        long next = waves.get(index).getNextBurstTick(tick);
+        if (next >= 0) {
+            timers.schedule(next, TIMER_SPAWN_WAVE, index);
+        }
+    }
+
+    // Schedules every wave again from the current tick, after the clock jumped
+    private void rescheduleWaves() {
+        timers.reset(tick);
+        for (int i = 0; i < waves.size(); i++) {
+            scheduleWave(i);
+        }
+    }
+
+    // Returns the number of ticks since the default wave last spawned, as the
+    // spawn timer of older saves counted them
+    public int getEnemySpawnTimer() {
+        return (int) (tick % enemySpawnCooldown);
+    }
+
+    // Returns the listener notified of the world events
+    public WorldListener getListener() {
+        return listener;
+    }
+
+    // Sets the listener notified of the world events
+    public void setListener(WorldListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * This method is responsible for advancing the world by one tick.
+     * It updates the entities and then fires the timers due on this tick, which
+     * spawn the bursts of the waves. Once the game is over the world does not
+     * change anymore.
+     */
+    public void tick() {
+        if (isGameOver) {
+            return;
+        }
+        update();
+        long spawnStart = System.nanoTime();
+        timers.advance(tick, timerHandler);
+        profiler.record(Profiler.Phase.SPAWNING, spawnStart, System.nanoTime());
+        tick++;
+    }
+
+    // Called by the timer wheel for every timer that fires
+    private void onTimer(int type, long target, long tick) {
+        if (type == TIMER_SPAWN_WAVE) {
+            int index = (int) target;
+            SpawnWave wave = waves.get(index);
+            for (int i = wave.getBurstSize(tick); i > 0; i--) {
+                spawnEnemy();
+            }
+            long next = wave.getNextBurstTick(tick + 1);
+            if (next >= 0) {
+                timers.schedule(next, TIMER_SPAWN_WAVE, index);
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for spawning a new enemy in the world.
+     * It takes an Enemy object from the pool, or creates one if the pool is empty,
+     * and adds it to the list of enemies and to the spatial grid.
+     */
+    public void spawnEnemy() {
+        if (arraySimulation != null) {
+            arraySimulation.spawnEnemy();
+            return;
+        }
+        Enemy enemy = enemyPool.acquire();
+        if (enemy == null) {
+            enemy = new Enemy(this);
+        } else {
+            enemy.reset();
+        }
+        enemy.setId(nextEntityId());
+        enemies.add(enemy);
+        enemyGrid.insert(enemy);
+    }
+
+    /**
+     * This method is responsible for placing a tower on a tile. A tile can only
+     * hold one tower, and no tower can be placed on the player.
+     *
+     * @param col The tile column.
+     * @param row The tile row.
+     * @return The new tower, or null if the tile is outside the world or taken.
+     */
+    public Tower addTower(int col, int row) {
+        if (col < 0 || col >= maxCols || row < 0 || row >= maxRows) {
+            return null;
+        }
+        Tower tower = new Tower(this, col, row);
+        if (tower.getHitbox().intersects(player.getHitbox())) {
+            return null;
+        }
+        for (int i = 0; i < towers.size(); i++) {
+            if (towers.get(i).getCol() == col && towers.get(i).getRow() == row) {
+                return null;
+            }
+        }
+        tower.setId(nextEntityId());
+        towers.add(tower);
+        return tower;
+    }
+
+    /**
+     * This method is responsible for firing a bullet from the player or a tower
+     * at an enemy kept as an object. The bullet is taken from the pool, or
+     * created if the pool is empty.
+     *
+     * @param shooter The player or the tower.
+     * @param target  The enemy to fire at.
+     */
+    public void fireBullet(Entity shooter, Enemy target) {
+        Bullet bullet = bulletPool.acquire();
+        if (bullet == null) {
+            bullet = new Bullet(this, shooter, target);
+        } else {
+            bullet.reset(shooter, target);
+        }
+        bullet.setId(nextEntityId());
+        player.getBullets().add(bullet);
+    }
+
+    /**
+     * This method is responsible for updating the state of the world.
+     * It updates the player's state, lets the player and the towers shoot, moves
+     * the bullets, and then updates the state of each enemy, in parallel if a
+     * parallel enemy updater is set. Each phase is timed by the profiler.
+     * Enemies that moved are moved in the spatial grid as well, and if an enemy
+     * is no longer alive, it is removed from the world and returned to the pool.
+     */
+    public void update() {
+        if (arraySimulation != null) {
+            arraySimulation.update();
+            return;
+        }
+        long start = System.nanoTime();
+        player.update();
+        long playerEnd = System.nanoTime();
+        profiler.record(Profiler.Phase.PLAYER_UPDATE, start, playerEnd);
+        if (isGameOver) {
+            return;
+        }
+        targeting.assign();
+        long targetingEnd = System.nanoTime();
+        profiler.record(Profiler.Phase.TARGETING, playerEnd, targetingEnd);
+        projectiles.update(player.getBullets());
+        long bulletEnd = System.nanoTime();
+        profiler.record(Profiler.Phase.BULLET_UPDATE, targetingEnd, bulletEnd);
+        if (parallelEnemyUpdater != null) {
+            parallelEnemyUpdater.update(enemies);
+        } else {
+            for (Enemy enemy : enemies) {
+                enemy.update();
+            }
+        }
+        Iterator<Enemy> enemyIterator = enemies.iterator();
+        while (enemyIterator.hasNext()) {
+            Enemy enemy = enemyIterator.next();
+            if (!enemy.isAlive()) {
+                enemyIterator.remove();
+                enemyGrid.remove(enemy);
+                enemyPool.release(enemy);
+                enemiesKilled++;
+                EventLog.log(EventLog.Event.ENEMY_REMOVED, enemy.getId());
+            } else {
+                enemyGrid.update(enemy);
+            }
+        }
+        profiler.record(Profiler.Phase.ENEMY_UPDATE, bulletEnd, System.nanoTime());
+    }
+
+    /**
+     * This method is responsible for copying the drawable state of the world into
+     * a snapshot, so that it can be drawn on another thread.
+     * It must be called on the thread that ticks the world, between two ticks.
+     *
+     * @param snapshot The snapshot to fill.
+     */
+    public void writeSnapshot(RenderSnapshot snapshot) {
+        snapshot.tick = tick;
+        snapshot.isGameOver = isGameOver;
+        snapshot.enemiesKilled = enemiesKilled;
+
+        snapshot.playerX = player.getX();
+        snapshot.playerY = player.getY();
+        snapshot.playerWidth = player.getWidth();
+        snapshot.playerHeight = player.getHeight();
+        snapshot.playerHealth = player.getHealth();
+        snapshot.playerAttackRadius = player.getAttackRadius();
+        snapshot.playerHitboxX = player.getHitbox().x;
+        snapshot.playerHitboxY = player.getHitbox().y;
+        snapshot.playerHitboxWidth = player.getHitbox().width;
+        snapshot.playerHitboxHeight = player.getHitbox().height;
+
+        int towerCount = towers.size();
+        snapshot.ensureTowerCapacity(towerCount);
+        for (int i = 0; i < towerCount; i++) {
+            Tower tower = towers.get(i);
+            snapshot.towerX[i] = tower.getX();
+            snapshot.towerY[i] = tower.getY();
+            snapshot.towerAttackRadius[i] = tower.getAttackRadius();
+        }
+        snapshot.towerCount = towerCount;
+
+        if (arraySimulation != null) {
+            writeStoreSnapshot(snapshot);
+            return;
+        }
+
+        int enemyCount = enemies.size();
+        snapshot.ensureEnemyCapacity(enemyCount);
+        for (int i = 0; i < enemyCount; i++) {
+            Enemy enemy = enemies.get(i);
+            snapshot.enemyId[i] = enemy.getId();
+            snapshot.enemyX[i] = enemy.getX();
+            snapshot.enemyY[i] = enemy.getY();
+            snapshot.enemyHealth[i] = enemy.getHealth();
+            snapshot.enemySprite[i] = RenderSnapshot.SPRITE_ENEMY;
+            snapshot.enemyHitboxX[i] = enemy.getHitbox().x;
+            snapshot.enemyHitboxY[i] = enemy.getHitbox().y;
+            snapshot.enemyHitboxWidth[i] = enemy.getHitbox().width;
+            snapshot.enemyHitboxHeight[i] = enemy.getHitbox().height;
+        }
+        snapshot.enemyCount = enemyCount;
+
+        List<Bullet> bullets = player.getBullets();
+        int bulletCount = bullets.size();
+        snapshot.ensureBulletCapacity(bulletCount);
+        for (int i = 0; i < bulletCount; i++) {
+            Bullet bullet = bullets.get(i);
+            snapshot.bulletId[i] = bullet.getId();
+            snapshot.bulletX[i] = bullet.getX();
+            snapshot.bulletY[i] = bullet.getY();
+            snapshot.bulletVisible[i] = bullet.isVisible();
+            snapshot.bulletHitboxX[i] = bullet.getHitbox().x;
+            snapshot.bulletHitboxY[i] = bullet.getHitbox().y;
+            snapshot.bulletHitboxWidth[i] = bullet.getHitbox().width;
+            snapshot.bulletHitboxHeight[i] = bullet.getHitbox().height;
+        }
+        snapshot.bulletCount = bulletCount;
+    }
+
+    private void writeStoreSnapshot(RenderSnapshot snapshot) {
+        EntityStore enemyStore = arraySimulation.getEnemies();
+        int enemyCount = enemyStore.size();
+        snapshot.ensureEnemyCapacity(enemyCount);
+        System.arraycopy(enemyStore.id, 0, snapshot.enemyId, 0, enemyCount);
+        System.arraycopy(enemyStore.x, 0, snapshot.enemyX, 0, enemyCount);
+        System.arraycopy(enemyStore.y, 0, snapshot.enemyY, 0, enemyCount);
+        System.arraycopy(enemyStore.health, 0, snapshot.enemyHealth, 0, enemyCount);
+        System.arraycopy(enemyStore.hitboxX, 0, snapshot.enemyHitboxX, 0, enemyCount);
+        System.arraycopy(enemyStore.hitboxY, 0, snapshot.enemyHitboxY, 0, enemyCount);
+        System.arraycopy(enemyStore.hitboxWidth, 0, snapshot.enemyHitboxWidth, 0, enemyCount);
+        System.arraycopy(enemyStore.hitboxHeight, 0, snapshot.enemyHitboxHeight, 0, enemyCount);
+        Arrays.fill(snapshot.enemySprite, 0, enemyCount, RenderSnapshot.SPRITE_ENEMY);
+        snapshot.enemyCount = enemyCount;
+
+        EntityStore bulletStore = arraySimulation.getBullets();
+        int bulletCount = bulletStore.size();
+        snapshot.ensureBulletCapacity(bulletCount);
+        System.arraycopy(bulletStore.id, 0, snapshot.bulletId, 0, bulletCount);
+        System.arraycopy(bulletStore.x, 0, snapshot.bulletX, 0, bulletCount);
+        System.arraycopy(bulletStore.y, 0, snapshot.bulletY, 0, bulletCount);
+        System.arraycopy(bulletStore.hitboxX, 0, snapshot.bulletHitboxX, 0, bulletCount);
+        System.arraycopy(bulletStore.hitboxY, 0, snapshot.bulletHitboxY, 0, bulletCount);
+        System.arraycopy(bulletStore.hitboxWidth, 0, snapshot.bulletHitboxWidth, 0, bulletCount);
+        System.arraycopy(bulletStore.hitboxHeight, 0, snapshot.bulletHitboxHeight, 0, bulletCount);
+        Arrays.fill(snapshot.bulletVisible, 0, bulletCount, true);
+        snapshot.bulletCount = bulletCount;
+    }
+
+    /**
+     * This method is responsible for copying everything needed to resume the
+     * world into a save state: the clock and the timers, the player, the towers,
+     * and every enemy and bullet. It must be called on the thread that ticks the world,
+     * between two ticks.
+     *
+     * @param state The save state to fill.
+     */
+    public void writeSaveState(SaveState state) {
+        state.ticksPerSecond = ticksPerSecond;
+        state.tileSize = tileSize;
+        state.maxCols = maxCols;
+        state.maxRows = maxRows;
+        state.tick = tick;
+        state.enemiesKilled = enemiesKilled;
+        state.nextEntityId = nextEntityId;
+        state.enemySpawnTimer = getEnemySpawnTimer();
+        state.isGameOver = isGameOver;
+        state.randomState = random.getState();
+
+        state.playerId = player.getId();
+        state.playerX = player.getX();
+        state.playerY = player.getY();
+        state.playerHealth = player.getHealth();
+        state.playerDamage = player.getDamage();
+        state.playerAttackSpeed = player.getAttackSpeed();
+        state.playerAttackCooldown = player.getAttackCooldown();
+        state.playerAttackCounter = attackCounter(tick, player.getAttackReadyTick(), player.getAttackCooldown());
+        state.playerAttackRadius = player.getAttackRadius();
+
+        int towerCount = towers.size();
+        state.ensureTowerCapacity(towerCount);
+        for (int i = 0; i < towerCount; i++) {
+            Tower tower = towers.get(i);
+            state.towerId[i] = tower.getId();
+            state.towerCol[i] = tower.getCol();
+            state.towerRow[i] = tower.getRow();
+            state.towerDamage[i] = tower.getDamage();
+            state.towerAttackSpeed[i] = tower.getAttackSpeed();
+            state.towerAttackCooldown[i] = tower.getAttackCooldown();
+            state.towerAttackCounter[i] = attackCounter(tick, tower.getAttackReadyTick(), tower.getAttackCooldown());
+            state.towerAttackRadius[i] = tower.getAttackRadius();
+        }
+        state.towerCount = towerCount;
+
+        if (arraySimulation != null) {
+            arraySimulation.writeSaveState(state);
+            return;
+        }
+
+        int enemyCount = enemies.size();
+        state.ensureEnemyCapacity(enemyCount);
+        for (int i = 0; i < enemyCount; i++) {
+            Enemy enemy = enemies.get(i);
+            state.enemyId[i] = enemy.getId();
+            state.enemyX[i] = enemy.getX();
+            state.enemyY[i] = enemy.getY();
+            state.enemyHealth[i] = enemy.getHealth();
+            state.enemySpeed[i] = enemy.getSpeed();
+            state.enemyDamage[i] = enemy.getDamage();
+            state.enemyAttackSpeed[i] = enemy.getAttackSpeed();
+            state.enemyAttackCooldown[i] = enemy.getAttackCooldown();
+            state.enemyAttackCounter[i] = attackCounter(tick, enemy.getAttackReadyTick(), enemy.getAttackCooldown());
+            state.enemyMoving[i] = enemy.isMoving();
+        }
+        state.enemyCount = enemyCount;
+
+        List<Bullet> bullets = player.getBullets();
+        int bulletCount = bullets.size();
+        state.ensureBulletCapacity(bulletCount);
+        for (int i = 0; i < bulletCount; i++) {
+            Bullet bullet = bullets.get(i);
+            state.bulletId[i] = bullet.getId();
+            state.bulletTargetId[i] = bullet.getEnemyId();
+            state.bulletX[i] = bullet.getX();
+            state.bulletY[i] = bullet.getY();
+            state.bulletTargetX[i] = bullet.getTargetX();
+            state.bulletTargetY[i] = bullet.getTargetY();
+            state.bulletSpeed[i] = bullet.getSpeed();
+            state.bulletDamage[i] = bullet.getDamage();
+            state.bulletVisible[i] = bullet.isVisible();
+            state.bulletTimeToLive[i] = bullet.getTimeToLive();
+        }
+        state.bulletCount = bulletCount;
+    }
+
+    /**
+     * This method is responsible for replacing the state of the world with a
+     * saved one. The current enemies and bullets go back to the pools, and the
+     * saved ones are rebuilt from the pools, like the towers. Bullets whose
+     * target is not in the save are dropped, and the damage of the others is
+     * committed to their targets again. The random generator is restored last, so the world goes
+     * on exactly as the saved one would have.
+     *
+     * @param state The save state to restore.
+     * @throws IllegalArgumentException If the state was saved by a world with
+     *                                  other settings.
+     */
+    public void readSaveState(SaveState state) {
+        if (state.ticksPerSecond != ticksPerSecond || state.tileSize != tileSize || state.maxCols != maxCols
+                || state.maxRows != maxRows) {
+            throw new IllegalArgumentException("The save was made for a different world");
+        }
+        clearEntities();
+        tick = state.tick;
+        enemiesKilled = state.enemiesKilled;
+        nextEntityId = state.nextEntityId;
+        isGameOver = state.isGameOver;
+        rescheduleWaves();
+
+        player.setId(state.playerId);
+        player.setX(state.playerX);
+        player.setY(state.playerY);
+        player.setHealth(state.playerHealth);
+        player.setDamage(state.playerDamage);
+        player.setAttackSpeed(state.playerAttackSpeed);
+        player.setAttackCooldown(state.playerAttackCooldown);
+        player.setAttackReadyTick(attackReadyTick(tick, state.playerAttackCounter, state.playerAttackCooldown));
+        player.setAttackRadius(state.playerAttackRadius);
+        player.updateHitboxPosition();
+
+        towers.clear();
+        for (int i = 0; i < state.towerCount; i++) {
+            Tower tower = new Tower(this, state.towerCol[i], state.towerRow[i]);
+            tower.setId(state.towerId[i]);
+            tower.setDamage(state.towerDamage[i]);
+            tower.setAttackSpeed(state.towerAttackSpeed[i]);
+            tower.setAttackCooldown(state.towerAttackCooldown[i]);
+            tower.setAttackReadyTick(attackReadyTick(tick, state.towerAttackCounter[i], state.towerAttackCooldown[i]));
+            tower.setAttackRadius(state.towerAttackRadius[i]);
+            towers.add(tower);
+        }
+
+        if (arraySimulation != null) {
+            arraySimulation.readSaveState(state);
+            random.setState(state.randomState);
+            return;
+        }
+
+        Map<Long, Enemy> enemiesById = new HashMap<Long, Enemy>(state.enemyCount * 2);
+        for (int i = 0; i < state.enemyCount; i++) {
+            Enemy enemy = enemyPool.acquire();
+            if (enemy == null) {
+                enemy = new Enemy(this);
+            } else {
+                enemy.reset();
+            }
+            enemy.setId(state.enemyId[i]);
+            enemy.setX(state.enemyX[i]);
+            enemy.setY(state.enemyY[i]);
+            enemy.setHealth(state.enemyHealth[i]);
+            enemy.setSpeed((int) state.enemySpeed[i]);
+            enemy.setDamage(state.enemyDamage[i]);
+            enemy.setAttackSpeed(state.enemyAttackSpeed[i]);
+            enemy.setAttackCooldown(state.enemyAttackCooldown[i]);
+            enemy.setAttackReadyTick(attackReadyTick(tick, state.enemyAttackCounter[i], state.enemyAttackCooldown[i]));
+            enemy.setMoving(state.enemyMoving[i]);
+            enemy.updateHitboxPosition();
+            enemies.add(enemy);
+            enemyGrid.insert(enemy);
+            enemiesById.put(enemy.getId(), enemy);
+        }
+
+        for (int i = 0; i < state.bulletCount; i++) {
+            Enemy target = enemiesById.get(state.bulletTargetId[i]);
+            if (target == null) {
+                continue;
+            }
+            Bullet bullet = bulletPool.acquire();
+            if (bullet == null) {
+                bullet = new Bullet(this, target);
+            } else {
+                bullet.reset(target);
+            }
+            bullet.setId(state.bulletId[i]);
+            bullet.setX(state.bulletX[i]);
+            bullet.setY(state.bulletY[i]);
+            bullet.setTarget(state.bulletTargetX[i], state.bulletTargetY[i]);
+            bullet.setSpeed((int) state.bulletSpeed[i]);
+            bullet.setDamage(state.bulletDamage[i]);
+            bullet.setVisible(state.bulletVisible[i]);
+            bullet.setTimeToLive(state.bulletTimeToLive[i]);
+            bullet.updateHitboxPosition();
+            player.getBullets().add(bullet);
+            target.setCommittedDamage(target.getCommittedDamage() + bullet.getDamage());
+        }
+        random.setState(state.randomState);
+    }
+
+    /**
+     * This method is responsible for hashing the state of the world: the clock,
+     * the random generator, the player, the towers, and every enemy and bullet
+     * in order. Two worlds that hash the same after every tick are playing out
+     * the same way, which is what replays check. Changing what is hashed breaks
+     * the recorded replays, so it must come with a new Replay.VERSION.
+     *
+     * @return A hash of the state of the world.
+     */
+    public long stateHash() {
+        long hash = 0;
+        hash = mix(hash, tick);
+        hash = mix(hash, enemiesKilled);
+        hash = mix(hash, nextEntityId);
+        hash = mix(hash, isGameOver ? 1 : 0);
+        hash = mix(hash, random.getState());
+        hash = mix(hash, Float.floatToIntBits(player.getHealth()));
+        hash = mix(hash, attackWait(player.getAttackReadyTick()));
+        for (int i = 0; i < towers.size(); i++) {
+            hash = mix(hash, towers.get(i).getId());
+            hash = mix(hash, attackWait(towers.get(i).getAttackReadyTick()));
+        }
+
+        if (arraySimulation != null) {
+            EntityStore enemyStore = arraySimulation.getEnemies();
+            for (int i = 0; i < enemyStore.size(); i++) {
+                hash = mix(hash, enemyStore.id[i]);
+                hash = mix(hash, pack(Float.floatToIntBits(enemyStore.x[i]), Float.floatToIntBits(enemyStore.y[i])));
+                hash = mix(hash, Float.floatToIntBits(enemyStore.health[i]));
+                hash = mix(hash, attackWait(enemyStore.attackReadyTick[i]));
+            }
+            EntityStore bulletStore = arraySimulation.getBullets();
+            for (int i = 0; i < bulletStore.size(); i++) {
+                hash = mix(hash, bulletStore.id[i]);
+                hash = mix(hash, pack(Float.floatToIntBits(bulletStore.x[i]), Float.floatToIntBits(bulletStore.y[i])));
+                hash = mix(hash, bulletStore.timeToLive[i]);
+            }
+            return hash;
+        }
+
+        for (Enemy enemy : enemies) {
+            hash = mix(hash, enemy.getId());
+            hash = mix(hash, pack(Float.floatToIntBits(enemy.getX()), Float.floatToIntBits(enemy.getY())));
+            hash = mix(hash, Float.floatToIntBits(enemy.getHealth()));
+            hash = mix(hash, attackWait(enemy.getAttackReadyTick()));
+        }
+        for (Bullet bullet : player.getBullets()) {
+            hash = mix(hash, bullet.getId());
+            hash = mix(hash, pack(Float.floatToIntBits(bullet.getX()), Float.floatToIntBits(bullet.getY())));
+            hash = mix(hash, bullet.getTimeToLive());
+        }
+        return hash;
+    }
+
+    // Returns the number of ticks until an entity can attack, 0 if it can now
+    private long attackWait(long attackReadyTick) {
+        return Math.max(0, attackReadyTick - tick);
+    }
+
+    // Returns two ints as one long
+    private static long pack(int high, int low) {
+        return (long) high << 32 | low & 0xFFFFFFFFL;
+    }
+
+    // Folds a value into a hash
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft((hash ^ value) * 0x9E3779B97F4A7C15L, 29);
+    }
+
+    // Returns the attack counter saved for an entity: the ticks since its last
+    // attack, where a counter that reached the cooldown means it is ready
+    static int attackCounter(long tick, long attackReadyTick, int attackCooldown) {
+        return (int) Math.max(0, Math.min(attackCooldown, tick - attackReadyTick + attackCooldown));
+    }
+
+    // Returns the tick an entity can attack again, from its saved attack counter
+    static long attackReadyTick(long tick, int attackCounter, int attackCooldown) {
+        return tick + attackCooldown - attackCounter;
+    }
+
+    // Returns a new id for an entity
+    public long nextEntityId() {
+        return nextEntityId++;
+    }
+
+    // Counts an enemy removed by an entity store
+    void recordKill() {
+        enemiesKilled++;
+    }
+
+    /**
+     * This method is responsible for moving the clock forward by ticks that were
+     * estimated instead of simulated. The waves are scheduled again from the new
+     * tick, as if the ticks had run.
+     *
+     * @param ticks The number of ticks that passed.
+     * @param kills The number of enemies killed during those ticks.
+     */
+    void skipTicks(long ticks, long kills) {
+        tick += ticks;
+        enemiesKilled += kills;
+        rescheduleWaves();
+    }
+
+    /**
+     * This method is responsible for removing every enemy and bullet from the
+     * world and returning them to the pools.
+     */
+    void clearEntities() {
+        if (arraySimulation != null) {
+            arraySimulation.getEnemies().clear();
+            arraySimulation.getBullets().clear();
+            return;
+        }
+        for (Enemy enemy : enemies) {
+            enemyGrid.remove(enemy);
+            enemyPool.release(enemy);
+        }
+        enemies.clear();
+        for (Bullet bullet : player.getBullets()) {
+            bulletPool.release(bullet);
+        }
+        player.getBullets().clear();
+    }
+
+    /**
+     * This method is called when the player dies. It freezes the world and
+     * notifies the listener once.
+     */
+    public void gameOver() {
+        if (!isGameOver) {
+            isGameOver = true;
+            EventLog.log(EventLog.Event.GAME_OVER, player.getId());
+            listener.onGameOver();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package simulation;
+
+/**
+ * Receives the events of a World that have effects outside of the simulation,
+ * like sounds.
+ * The World only holds game state, so a view that wants to react to these
+ * events registers itself as a listener. A headless simulation can simply keep
+ * the default listener, which ignores every event.
+ */
+public interface WorldListener {
+
+    // Called when an enemy hits the player and the player survives the hit
+    default void onEnemyAttack() {
+    }
+
+    // Called once, on the tick the player dies
+    default void onGameOver() {
+    }
+}
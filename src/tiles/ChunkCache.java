@@ -0,0 +1,318 @@
+package tiles;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Holds the chunks of a map that were used recently.
+ * The map is cut into square chunks of tiles. A chunk is read from the
+ * ChunkSource the first time it is needed, and when more chunks are loaded than
+ * the capacity allows, the least recently used one is dropped, so the memory
+ * used does not depend on the size of the map.
+ * A chunk whose tiles were changed is never dropped, because the source may not
+ * be able to store the change.
+ * The chunks are found by their position through a hash table of primitive
+ * keys and kept in order of use through links in the chunks themselves, so
+ * finding a chunk that is in memory does not allocate.
+ */
+public class ChunkCache {
+    public static final int DEFAULT_CHUNK_SIZE = 32;
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * A square of tiles of the map, and the image the tiles were last drawn
+     * into. Chunks on the right and bottom edges of the map can be smaller.
+     */
+    static class Chunk {
+        final long key;
+        final int col;
+        final int row;
+        final int width;
+        final int height;
+        final short[] tiles;
+        BufferedImage image;
+        boolean isImageDirty = true;
+        boolean isModified = false;
+
+        // The chunks used just before and just after this one
+        Chunk older;
+        Chunk newer;
+
+        Chunk(long key, int col, int row, int width, int height) {
+            this.key = key;
+            this.col = col;
+            this.row = row;
+            this.width = width;
+            this.height = height;
+            this.tiles = new short[width * height];
+        }
+    }
+
+    private final ChunkSource source;
+    private final int chunkSize;
+    private final int chunkCols;
+    private final int chunkRows;
+    private int capacity;
+
+    // Chunks by key, open addressing with linear probing, kept at most half
+    // full
+    private Chunk[] table = new Chunk[DEFAULT_CAPACITY * 2];
+    private int size = 0;
+
+    // Chunks in order of use, from the least recently used one
+    private Chunk oldest;
+    private Chunk newest;
+
+    // Statistics
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long modifications = 0;
+
+    /**
+     * Constructor for a ChunkCache with the default chunk size and capacity.
+     *
+     * @param source The map.
+     */
+    public ChunkCache(ChunkSource source) {
+        this(source, DEFAULT_CHUNK_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor for the ChunkCache class.
+     *
+     * @param source    The map.
+     * @param chunkSize The number of tiles on each side of a chunk.
+     * @param capacity  The number of chunks kept in memory.
+     */
+    public ChunkCache(ChunkSource source, int chunkSize, int capacity) {
+        if (chunkSize < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize + " or capacity " + capacity);
+        }
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.chunkCols = (source.getCols() + chunkSize - 1) / chunkSize;
+        this.chunkRows = (source.getRows() + chunkSize - 1) / chunkSize;
+        this.capacity = capacity;
+    }
+
+    // Returns the map the chunks are read from
+    public ChunkSource getSource() {
+        return source;
+    }
+
+    // Returns the number of tiles on each side of a chunk
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    // Returns the number of chunk columns of the map
+    public int getChunkCols() {
+        return chunkCols;
+    }
+
+    // Returns the number of chunk rows of the map
+    public int getChunkRows() {
+        return chunkRows;
+    }
+
+    // Returns the number of chunks kept in memory
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Sets the number of chunks kept in memory; extra chunks are dropped on the
+    // next load
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    // Returns the number of chunks in memory
+    public int size() {
+        return size;
+    }
+
+    // Returns the number of chunks found in memory
+    public long getHits() {
+        return hits;
+    }
+
+    // Returns the number of chunks read from the source
+    public long getMisses() {
+        return misses;
+    }
+
+    // Returns the number of tiles changed since the cache was created, so a
+    // renderer can tell that the images it drew the map from are out of date
+    public long getModifications() {
+        return modifications;
+    }
+
+    // Returns the number of chunks dropped to make room for others
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * This method is responsible for returning a chunk, reading it from the
+     * source if it is not in memory.
+     *
+     * @param chunkCol The chunk column.
+     * @param chunkRow The chunk row.
+     * @return The chunk.
+     */
+    Chunk get(int chunkCol, int chunkRow) {
+        long key = key(chunkCol, chunkRow);
+        Chunk chunk = find(key);
+        if (chunk != null) {
+            hits++;
+            if (chunk != newest) {
+                unlink(chunk);
+                link(chunk);
+            }
+            return chunk;
+        }
+        misses++;
+        int col = chunkCol * chunkSize;
+        int row = chunkRow * chunkSize;
+        chunk = new Chunk(key, col, row, Math.min(chunkSize, source.getCols() - col),
+                Math.min(chunkSize, source.getRows() - row));
+        source.readTiles(col, row, chunk.width, chunk.height, chunk.tiles);
+        insert(chunk);
+        link(chunk);
+        evict(chunk);
+        return chunk;
+    }
+
+    // Drops the least recently used chunks that were not modified until the
+    // cache fits its capacity
+    private void evict(Chunk keep) {
+        Chunk chunk = oldest;
+        while (size > capacity && chunk != null) {
+            Chunk newer = chunk.newer;
+            if (chunk != keep && !chunk.isModified) {
+                unlink(chunk);
+                remove(chunk);
+                evictions++;
+            }
+            chunk = newer;
+        }
+    }
+
+    // Returns the chunk with the given key, or null if it is not in memory
+    private Chunk find(long key) {
+        int mask = table.length - 1;
+        for (int slot = slot(key, mask); table[slot] != null; slot = (slot + 1) & mask) {
+            if (table[slot].key == key) {
+                return table[slot];
+            }
+        }
+        return null;
+    }
+
+    private void insert(Chunk chunk) {
+        if ((size + 1) * 2 > table.length) {
+            Chunk[] previous = table;
+            table = new Chunk[previous.length * 2];
+            for (Chunk moved : previous) {
+                if (moved != null) {
+                    table[freeSlot(moved.key)] = moved;
+                }
+            }
+        }
+        table[freeSlot(chunk.key)] = chunk;
+        size++;
+    }
+
+    private int freeSlot(long key) {
+        int mask = table.length - 1;
+        int slot = slot(key, mask);
+        while (table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Takes a chunk out of the table, moving back the chunks after it that
+    // could not take their own slot, so no lookup stops at the hole
+    private void remove(Chunk chunk) {
+        int mask = table.length - 1;
+        int hole = slot(chunk.key, mask);
+        while (table[hole] != chunk) {
+            hole = (hole + 1) & mask;
+        }
+        for (int slot = (hole + 1) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            int home = slot(table[slot].key, mask);
+            // Moved back if its home slot is not between the hole and its slot
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = null;
+        size--;
+    }
+
+    // Adds a chunk as the most recently used one
+    private void link(Chunk chunk) {
+        chunk.older = newest;
+        chunk.newer = null;
+        if (newest == null) {
+            oldest = chunk;
+        } else {
+            newest.newer = chunk;
+        }
+        newest = chunk;
+    }
+
+    private void unlink(Chunk chunk) {
+        if (chunk.older == null) {
+            oldest = chunk.newer;
+        } else {
+            chunk.older.newer = chunk.newer;
+        }
+        if (chunk.newer == null) {
+            newest = chunk.older;
+        } else {
+            chunk.newer.older = chunk.older;
+        }
+        chunk.older = null;
+        chunk.newer = null;
+    }
+
+    // Returns the tile number at the given column and row of the map
+    public int getTile(int col, int row) {
+        Chunk chunk = get(col / chunkSize, row / chunkSize);
+        return chunk.tiles[(row - chunk.row) * chunk.width + col - chunk.col];
+    }
+
+    /**
+     * This method is responsible for changing a tile. The chunk of the tile is
+     * kept in memory from then on, and its image is drawn again.
+     *
+     * @param col     The column of the tile.
+     * @param row     The row of the tile.
+     * @param tileNum The new tile number.
+     */
+    public void setTile(int col, int row, int tileNum) {
+        if (tileNum < 0 || tileNum > TileMap.MAX_TILE) {
+            throw new IllegalArgumentException("Invalid tile number " + tileNum);
+        }
+        Chunk chunk = get(col / chunkSize, row / chunkSize);
+        int index = (row - chunk.row) * chunk.width + col - chunk.col;
+        if (chunk.tiles[index] != tileNum) {
+            chunk.tiles[index] = (short) tileNum;
+            chunk.isModified = true;
+            chunk.isImageDirty = true;
+            modifications++;
+        }
+    }
+
+    private static long key(int chunkCol, int chunkRow) {
+        return (long) chunkCol << 32 | chunkRow & 0xFFFFFFFFL;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,27 @@
+package tiles;
+
+/**
+ * Where the tiles of a chunked map come from.
+ * A ChunkCache only asks for the chunks it needs, so a source can be a map held
+ * in memory, a generator, or anything else that can produce a rectangle of
+ * tiles on demand.
+ */
+public interface ChunkSource {
+    // Returns the number of columns of the map
+    int getCols();
+
+    // Returns the number of rows of the map
+    int getRows();
+
+    /**
+     * This method is responsible for copying a rectangle of tile numbers. The
+     * rectangle is always inside the map.
+     *
+     * @param col    The first column of the rectangle.
+     * @param row    The first row of the rectangle.
+     * @param width  The number of columns of the rectangle.
+     * @param height The number of rows of the rectangle.
+     * @param tiles  The array to fill, row by row, width tiles per row.
+     */
+    void readTiles(int col, int row, int width, int height, short[] tiles);
+}
@@ -0,0 +1,68 @@
+package tiles;
+
+/**
+ * A map that is generated on demand instead of stored.
+ * Every tile is computed from its position and the seed, so a map of any size
+ * takes no memory until its chunks are loaded, and the same seed always
+ * produces the same map. The map is made of square patches of one tile each,
+ * which look like terrain rather than noise.
+ */
+public class MapGenerator implements ChunkSource {
+    private static final int DEFAULT_PATCH_SIZE = 8;
+
+    private final int cols;
+    private final int rows;
+    private final int tileTypes;
+    private final int patchSize;
+    private final long seed;
+
+    /**
+     * Constructor for the MapGenerator class.
+     *
+     * @param cols      The number of columns of the map.
+     * @param rows      The number of rows of the map.
+     * @param tileTypes The number of different tiles, numbered from 0.
+     * @param seed      The seed of the map.
+     */
+    public MapGenerator(int cols, int rows, int tileTypes, long seed) {
+        if (cols < 0 || rows < 0 || tileTypes < 1 || tileTypes > TileMap.MAX_TILE + 1) {
+            throw new IllegalArgumentException("Invalid map " + cols + "x" + rows + " with " + tileTypes + " tiles");
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.tileTypes = tileTypes;
+        this.patchSize = DEFAULT_PATCH_SIZE;
+        this.seed = seed;
+    }
+
+    // Returns the number of columns of the map
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    // Returns the number of rows of the map
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    // Returns the tile number at the given column and row
+    public int getTile(int col, int row) {
+        long h = seed ^ ((long) (col / patchSize) << 32 | (row / patchSize) & 0xFFFFFFFFL);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) ((h >>> 1) % tileTypes);
+    }
+
+    // Generates a rectangle of tile numbers
+    @Override
+    public void readTiles(int col, int row, int width, int height, short[] tiles) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                tiles[y * width + x] = (short) getTile(col + x, row + y);
+            }
+        }
+    }
+}
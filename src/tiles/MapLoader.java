@@ -0,0 +1,344 @@
+package tiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads and writes tile maps of any size.
+ *
+ * Text maps have one row per line and the tile numbers separated by spaces or
+ * tabs. They are parsed in one pass over the characters, without splitting
+ * lines into strings, and the size of the map is taken from the file: every row
+ * must have as many tiles as the first one.
+ *
+ * Binary maps start with a little-endian header (magic, version, columns,
+ * rows, and 1 or 2 bytes per tile), followed by the tiles row by row as runs:
+ * the length of the run as a varint, then the tile number. Large maps are
+ * mostly long runs of the same tile, so a map of millions of tiles takes a few
+ * kilobytes and loads in a few milliseconds.
+ */
+public final class MapLoader {
+    // Format
+    public static final int MAGIC = 0x4D4C4449; // "IDLM"
+    public static final int VERSION = 1;
+    public static final String BINARY_EXTENSION = ".map";
+
+    private static final int HEADER_BYTES = 17;
+    private static final int BUFFER_SIZE = 8192;
+
+    private MapLoader() {
+    }
+
+    /**
+     * This method is responsible for loading a map from the classpath. Files
+     * ending in ".map" are read as binary maps, anything else as text.
+     *
+     * @param resourcePath The classpath path of the map, e.g. "/maps/map01.txt".
+     * @return The map.
+     * @throws IOException If the map cannot be found or read.
+     */
+    public static TileMap loadResource(String resourcePath) throws IOException {
+        try (InputStream in = MapLoader.class.getResourceAsStream(resourcePath)) {
+            if (in == null) {
+                throw new IOException("Map not found: " + resourcePath);
+            }
+            if (resourcePath.endsWith(BINARY_EXTENSION)) {
+                return decode(ByteBuffer.wrap(in.readAllBytes()));
+            }
+            return parseText(new InputStreamReader(in, StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * This method is responsible for loading a map from a file. Files ending in
+     * ".map" are memory-mapped and read as binary maps, anything else as text.
+     *
+     * @param path The path of the map.
+     * @return The map.
+     * @throws IOException If the map cannot be read.
+     */
+    public static TileMap load(Path path) throws IOException {
+        if (path.toString().endsWith(BINARY_EXTENSION)) {
+            return readBinary(path);
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            return parseText(reader);
+        }
+    }
+
+    /**
+     * This method is responsible for parsing a text map.
+     * Blank lines are skipped, so a trailing newline or an empty last line do
+     * not matter.
+     *
+     * @param reader The text of the map. It is read to the end but not closed.
+     * @return The map.
+     * @throws IOException If the text cannot be read, contains something other
+     *                     than tile numbers, or has rows of different lengths.
+     */
+    public static TileMap parseText(Reader reader) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        short[] tiles = new short[1024];
+        int count = 0;
+        int cols = -1;
+        int rows = 0;
+        int rowLength = 0;
+        int value = -1;
+
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (c >= '0' && c <= '9') {
+                    value = (value < 0 ? 0 : value * 10) + (c - '0');
+                    if (value > TileMap.MAX_TILE) {
+                        throw new IOException("Tile number too large on row " + (rows + 1));
+                    }
+                    continue;
+                }
+                if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                    throw new IOException("Unexpected character '" + c + "' on row " + (rows + 1));
+                }
+                if (value >= 0) {
+                    if (count == tiles.length) {
+                        tiles = Arrays.copyOf(tiles, count * 2);
+                    }
+                    tiles[count++] = (short) value;
+                    rowLength++;
+                    value = -1;
+                }
+                if (c == '\n' && rowLength > 0) {
+                    cols = endRow(cols, rowLength, rows);
+                    rows++;
+                    rowLength = 0;
+                }
+            }
+        }
+        if (value >= 0) {
+            if (count == tiles.length) {
+                tiles = Arrays.copyOf(tiles, count + 1);
+            }
+            tiles[count++] = (short) value;
+            rowLength++;
+        }
+        if (rowLength > 0) {
+            cols = endRow(cols, rowLength, rows);
+            rows++;
+        }
+        if (rows == 0) {
+            return new TileMap(0, 0);
+        }
+        return new TileMap(cols, rows, count == tiles.length ? tiles : Arrays.copyOf(tiles, count));
+    }
+
+    // Checks that a row has as many tiles as the first one and returns the
+    // number of columns
+    private static int endRow(int cols, int rowLength, int row) throws IOException {
+        if (cols >= 0 && rowLength != cols) {
+            throw new IOException("Row " + (row + 1) + " has " + rowLength + " tiles instead of " + cols);
+        }
+        return rowLength;
+    }
+
+    /**
+     * This method is responsible for reading a binary map. The file is
+     * memory-mapped, so it is read straight from the page cache without being
+     * copied into the heap first.
+     *
+     * @param path The path of the map.
+     * @return The map.
+     * @throws IOException If the file cannot be read or is not a valid map.
+     */
+    public static TileMap readBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        }
+    }
+
+    /**
+     * This method is responsible for writing a binary map. Maps that only use
+     * tiles 0 to 255 are written with one byte per tile number, others with two.
+     *
+     * @param map  The map.
+     * @param path The path of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeBinary(TileMap map, Path path) throws IOException {
+        ByteBuffer buffer = encode(map);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * This method is responsible for encoding a map in the binary format.
+     *
+     * @param map The map.
+     * @return A buffer holding the encoded map, ready to be read.
+     */
+    public static ByteBuffer encode(TileMap map) {
+        short[] tiles = map.getTiles();
+        int bytesPerTile = map.getMaxTile() > 0xFF ? 2 : 1;
+
+        // Count the runs first so the buffer is allocated once
+        int size = HEADER_BYTES;
+        for (int i = 0; i < tiles.length;) {
+            int end = endOfRun(tiles, i);
+            size += varintSize(end - i) + bytesPerTile;
+            i = end;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(map.getCols());
+        buffer.putInt(map.getRows());
+        buffer.put((byte) bytesPerTile);
+        for (int i = 0; i < tiles.length;) {
+            int end = endOfRun(tiles, i);
+            putVarint(buffer, end - i);
+            if (bytesPerTile == 1) {
+                buffer.put((byte) tiles[i]);
+            } else {
+                buffer.putShort(tiles[i]);
+            }
+            i = end;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * This method is responsible for decoding a map in the binary format.
+     *
+     * @param buffer The encoded map, from its position to its limit.
+     * @return The map.
+     * @throws IOException If the buffer does not hold a valid map.
+     */
+    public static TileMap decode(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a map file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported map version " + version);
+            }
+            int cols = buffer.getInt();
+            int rows = buffer.getInt();
+            int bytesPerTile = buffer.get();
+            if (cols < 0 || rows < 0 || (long) cols * rows > Integer.MAX_VALUE) {
+                throw new IOException("Invalid map size " + cols + "x" + rows);
+            }
+            if (bytesPerTile != 1 && bytesPerTile != 2) {
+                throw new IOException("Invalid tile size " + bytesPerTile);
+            }
+
+            short[] tiles = new short[cols * rows];
+            int count = 0;
+            while (count < tiles.length) {
+                int run = getVarint(buffer);
+                int tile = bytesPerTile == 1 ? buffer.get() & 0xFF : buffer.getShort();
+                if (run <= 0 || run > tiles.length - count || tile < 0) {
+                    throw new IOException("Invalid run at tile " + count);
+                }
+                Arrays.fill(tiles, count, count + run, (short) tile);
+                count += run;
+            }
+            return new TileMap(cols, rows, tiles);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated map file", e);
+        }
+    }
+
+    // Returns the index after the last tile equal to the tile at the given index
+    private static int endOfRun(short[] tiles, int start) {
+        short tile = tiles[start];
+        int end = start + 1;
+        while (end < tiles.length && tiles[end] == tile) {
+            end++;
+        }
+        return end;
+    }
+
+    // Returns the number of bytes of a varint
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    // Writes an unsigned varint, 7 bits per byte, lowest bits first
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    // Reads an unsigned varint
+    private static int getVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid run length");
+    }
+
+    /**
+     * This method converts a text map to a binary map, and prints how long each
+     * of them takes to load.
+     *
+     * Usage: MapLoader input.txt output.map
+     *
+     * @param args The text map to read and the binary map to write.
+     * @throws IOException If a map cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: MapLoader input.txt output.map");
+            System.exit(2);
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+
+        long start = System.nanoTime();
+        TileMap map = load(input);
+        long textTime = System.nanoTime() - start;
+        writeBinary(map, output);
+        start = System.nanoTime();
+        readBinary(output);
+        long binaryTime = System.nanoTime() - start;
+
+        System.out.println("Map: " + map.getCols() + "x" + map.getRows() + " tiles");
+        System.out.println("Text: " + Files.size(input) + " bytes, loaded in "
+                + String.format("%.2f", textTime / 1e6) + " ms");
+        System.out.println("Binary: " + Files.size(output) + " bytes, loaded in "
+                + String.format("%.2f", binaryTime / 1e6) + " ms");
+    }
+}
@@ -1,11 +1,9 @@
 package tiles;
 
 import java.awt.Graphics2D;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.awt.Transparency;
 
-import javax.imageio.ImageIO;
+import main.AssetManager;
 import main.GamePanel;
 
 public class TileManager {
@@ -13,75 +11,136 @@ public class TileManager {
     Tile[] tile;
     final int numTiles = 1;
 
-    int mapTileNum[][];
+    // The map, cut into chunks that are loaded when they come into view
+    ChunkCache chunks;
 
     public TileManager(GamePanel gamePanel) {
         this.gamePanel = gamePanel;
         tile = new Tile[numTiles];
-        mapTileNum = new int[gamePanel.getMaxScreenRows()][gamePanel.getMaxScreenCols()];
+        chunks = new ChunkCache(new TileMap(gamePanel.getMaxScreenCols(), gamePanel.getMaxScreenRows()));
         getTileImage();
         loadMap("/maps/map01.txt");
     }
 
     public void getTileImage() {
+        for (int i = 0; i < tile.length; i++) {
+            tile[i] = new Tile();
+            tile[i].image = AssetManager.getImage("/tiles/tile" + (i + 1) + ".png");
+        }
+    }
+
+    /**
+     * This method is responsible for loading the map from the classpath.
+     * The map can be of any size and can be a text map or a binary ".map" file,
+     * see MapLoader. If it cannot be loaded, the current map is kept.
+     *
+     * @param filePath The classpath path of the map, e.g. "/maps/map01.txt".
+     */
+    public void loadMap(String filePath){
         try {
-            for (int i = 0; i < tile.length; i++) {
-                tile[i] = new Tile();
-                tile[i].image = ImageIO.read(getClass().getResourceAsStream("/tiles/tile" + (i + 1) + ".png"));
-            }
+            setMap(MapLoader.loadResource(filePath));
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    public void loadMap(String filePath){
-        try {
-            InputStream in = getClass().getResourceAsStream(filePath);
-            BufferedReader  br = new BufferedReader(new InputStreamReader(in));
+    // Returns the map the chunks are read from
+    public ChunkSource getMap() {
+        return chunks.getSource();
+    }
 
-            int col = 0;
-            int row = 0;
+    // Replaces the current map, dropping every chunk of the previous one
+    public void setMap(ChunkSource map) {
+        chunks = new ChunkCache(map);
+    }
 
-            while(col < gamePanel.getMaxScreenCols() && row < gamePanel.getMaxScreenRows()){
-                String line = br.readLine();
+    // Returns the cache holding the loaded chunks
+    public ChunkCache getChunkCache() {
+        return chunks;
+    }
 
-                while(col < gamePanel.getMaxScreenCols()){
-                    String[] numbers = line.split("\s+");
-                    mapTileNum[row][col] = Integer.parseInt(numbers[col]);
-                    col++;
-                }
+    // Returns the width of the map in world pixels
+    public int getMapWidth() {
+        return chunks.getSource().getCols() * gamePanel.getTileSize();
+    }
 
-                if(col == gamePanel.getMaxScreenCols()){
-                    col = 0;
-                    row++;
-                }
-            }
+    // Returns the height of the map in world pixels
+    public int getMapHeight() {
+        return chunks.getSource().getRows() * gamePanel.getTileSize();
+    }
 
-            br.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    public int getTile(int col, int row) {
+        return chunks.getTile(col, row);
     }
 
-    public void draw(Graphics2D g2d){
-        int col = 0;
-        int row = 0;
-        int x = 0;
-        int y = 0;
-        int tileNum = 0;
+    public void setTile(int col, int row, int tileNum) {
+        chunks.setTile(col, row, tileNum);
+    }
+
+    /**
+     * This method is responsible for drawing the part of the map that is in
+     * view. The Graphics2D object must already draw in world pixels, through the
+     * camera.
+     * Only the chunks that overlap the view are drawn, so the cost depends on the
+     * size of the view and not on the size of the map. Each chunk is drawn once,
+     * at the original tile size, into an image that is kept with the chunk, and
+     * every frame only copies that image, scaled to the tile size.
+     *
+     * @param g2d        The Graphics2D object to draw on.
+     * @param viewX      The world x coordinate of the left edge of the view.
+     * @param viewY      The world y coordinate of the top edge of the view.
+     * @param viewWidth  The width of the view in world pixels.
+     * @param viewHeight The height of the view in world pixels.
+     */
+    public void draw(Graphics2D g2d, double viewX, double viewY, double viewWidth, double viewHeight){
+        ChunkCache chunks = this.chunks;
+        int chunkPixels = chunks.getChunkSize() * gamePanel.getTileSize();
+        int firstCol = Math.max(0, (int) Math.floor(viewX / chunkPixels));
+        int firstRow = Math.max(0, (int) Math.floor(viewY / chunkPixels));
+        int lastCol = Math.min(chunks.getChunkCols() - 1, (int) Math.floor((viewX + viewWidth) / chunkPixels));
+        int lastRow = Math.min(chunks.getChunkRows() - 1, (int) Math.floor((viewY + viewHeight) / chunkPixels));
+        if (firstCol > lastCol || firstRow > lastRow) {
+            return;
+        }
 
-        while(col < gamePanel.getMaxScreenCols() && row < gamePanel.getMaxScreenRows()){
-            x = col * gamePanel.getTileSize();
-            y = row * gamePanel.getTileSize();
-            tileNum = mapTileNum[row][col];
+        // Keep every visible chunk, and a ring around them, in memory
+        int visible = (lastCol - firstCol + 3) * (lastRow - firstRow + 3);
+        if (chunks.getCapacity() < visible) {
+            chunks.setCapacity(visible);
+        }
 
-            g2d.drawImage(tile[tileNum].image, x, y, gamePanel.getTileSize(), gamePanel.getTileSize(), null);
+        for (int chunkRow = firstRow; chunkRow <= lastRow; chunkRow++) {
+            for (int chunkCol = firstCol; chunkCol <= lastCol; chunkCol++) {
+                ChunkCache.Chunk chunk = chunks.get(chunkCol, chunkRow);
+                if (chunk.image == null || chunk.isImageDirty) {
+                    bakeChunk(chunk);
+                }
+                g2d.drawImage(chunk.image, chunk.col * gamePanel.getTileSize(), chunk.row * gamePanel.getTileSize(),
+                        chunk.width * gamePanel.getTileSize(), chunk.height * gamePanel.getTileSize(), null);
+            }
+        }
+    }
 
-            col++;
-            if(col == gamePanel.getMaxScreenCols()){
-                col = 0;
-                row++;
+    // Draws the tiles of a chunk into its image. The map can hold any tile
+    // number, but only the tiles that have an image can be drawn; the others
+    // are drawn as the first tile.
+    private void bakeChunk(ChunkCache.Chunk chunk){
+        int size = gamePanel.getOriginalTileSize();
+        if (chunk.image == null) {
+            chunk.image = AssetManager.createCompatibleImage(chunk.width * size, chunk.height * size,
+                    Transparency.OPAQUE);
+        }
+        Graphics2D g2d = chunk.image.createGraphics();
+        for (int row = 0; row < chunk.height; row++) {
+            for (int col = 0; col < chunk.width; col++) {
+                int tileNum = chunk.tiles[row * chunk.width + col];
+                if (tileNum < 0 || tileNum >= tile.length) {
+                    tileNum = 0;
+                }
+                g2d.drawImage(tile[tileNum].image, col * size, row * size, size, size, null);
             }
         }
+        g2d.dispose();
+        chunk.isImageDirty = false;
     }
 }
@@ -0,0 +1,102 @@
+package tiles;
+
+/**
+ * A rectangular map of tile numbers of any size.
+ * The tiles are stored row by row in one flat array of shorts, which takes a
+ * quarter of the memory of an int[][] and keeps every row next to the one
+ * before it.
+ */
+public class TileMap implements ChunkSource {
+    // The largest tile number a map can hold
+    public static final int MAX_TILE = Short.MAX_VALUE;
+
+    private final int cols;
+    private final int rows;
+    private final short[] tiles;
+
+    /**
+     * Constructor for an empty TileMap, where every tile is tile 0.
+     *
+     * @param cols The number of columns.
+     * @param rows The number of rows.
+     */
+    public TileMap(int cols, int rows) {
+        this(cols, rows, new short[checkSize(cols, rows)]);
+    }
+
+    /**
+     * Constructor for a TileMap over existing tiles.
+     *
+     * @param cols  The number of columns.
+     * @param rows  The number of rows.
+     * @param tiles The tile numbers, row by row. The array is used as is, not
+     *              copied.
+     */
+    TileMap(int cols, int rows, short[] tiles) {
+        if (tiles.length != checkSize(cols, rows)) {
+            throw new IllegalArgumentException("Expected " + cols * rows + " tiles but got " + tiles.length);
+        }
+        this.cols = cols;
+        this.rows = rows;
+        this.tiles = tiles;
+    }
+
+    private static int checkSize(int cols, int rows) {
+        if (cols < 0 || rows < 0 || (long) cols * rows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid map size " + cols + "x" + rows);
+        }
+        return cols * rows;
+    }
+
+    // Returns the number of columns
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    // Returns the number of rows
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    // Returns the tile number at the given column and row
+    public int getTile(int col, int row) {
+        return tiles[row * cols + col];
+    }
+
+    // Sets the tile number at the given column and row
+    public void setTile(int col, int row, int tileNum) {
+        if (tileNum < 0 || tileNum > MAX_TILE) {
+            throw new IllegalArgumentException("Invalid tile number " + tileNum);
+        }
+        tiles[row * cols + col] = (short) tileNum;
+    }
+
+    // Returns true if the given column and row are on the map
+    public boolean contains(int col, int row) {
+        return col >= 0 && row >= 0 && col < cols && row < rows;
+    }
+
+    // Copies a rectangle of tile numbers, one row at a time
+    @Override
+    public void readTiles(int col, int row, int width, int height, short[] tiles) {
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(this.tiles, (row + y) * cols + col, tiles, y * width, width);
+        }
+    }
+
+    // Returns the largest tile number used on the map
+    public int getMaxTile() {
+        int max = 0;
+        for (short tile : tiles) {
+            max = Math.max(max, tile);
+        }
+        return max;
+    }
+
+    // Returns the tiles row by row, for the map loader
+    short[] getTiles() {
+        return tiles;
+    }
+}
@@ -0,0 +1,140 @@
+package render;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import simulation.RenderSnapshot;
+
+/**
+ * Tests which frames are drawn whole, and how the bounds of the entities that
+ * changed are merged into regions of cells.
+ */
+class DamageTrackerTest {
+    private static final int IMAGE_SIZE = 320;
+
+    private DamageTracker tracker;
+    private int spriteSize = 32;
+    private RenderSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new DamageTracker();
+        snapshot = new RenderSnapshot();
+        assertTrue(update(0), "The first frame is drawn whole");
+    }
+
+    @Test
+    void anUnchangedFrameHasNoRegions() {
+        assertFalse(update(0));
+        assertEquals(0, tracker.getRegionCount());
+    }
+
+    @Test
+    void theBoundsBeforeAndAfterAMoveMergeIntoOneRegion() {
+        setEnemies(new float[] { 100, 100 });
+        update(0);
+
+        setEnemies(new float[] { 104, 100 });
+        assertFalse(update(0));
+
+        // Both bounds, with their margin, cover the cells 6 to 8 of both axes
+        assertEquals(1, tracker.getRegionCount());
+        assertRegion(0, 96, 96, 48, 48);
+    }
+
+    @Test
+    void entitiesFarApartGetTheirOwnRegions() {
+        setEnemies(new float[] { 16, 200 }, new float[] { 250, 16 });
+        assertFalse(update(0));
+
+        assertEquals(2, tracker.getRegionCount());
+        assertRegion(0, 240, 0, 48, 64);
+        assertRegion(1, 0, 192, 64, 48);
+    }
+
+    @Test
+    void anEntityThatIsGoneDamagesWhereItWas() {
+        setEnemies(new float[] { 100, 100 });
+        update(0);
+
+        setEnemies();
+        assertFalse(update(0));
+
+        assertEquals(1, tracker.getRegionCount());
+        assertRegion(0, 96, 96, 48, 48);
+    }
+
+    @Test
+    void movingTheCameraDrawsTheWholeFrame() {
+        assertTrue(update(1));
+        assertEquals(0, tracker.getRegionCount());
+    }
+
+    @Test
+    void damageOverMostOfTheFrameDrawsTheWholeFrame() {
+        snapshot.playerX = IMAGE_SIZE / 2f;
+        snapshot.playerY = IMAGE_SIZE / 2f;
+        snapshot.playerAttackRadius = IMAGE_SIZE;
+        assertTrue(update(0));
+    }
+
+    @Test
+    void asManyRegionsAsAllowedAreDrawnAsRegions() {
+        spreadEnemies(DamageTracker.MAX_REGIONS);
+
+        assertFalse(update(0));
+        assertEquals(DamageTracker.MAX_REGIONS, tracker.getRegionCount());
+    }
+
+    @Test
+    void tooManyRegionsDrawTheWholeFrame() {
+        spreadEnemies(DamageTracker.MAX_REGIONS + 1);
+
+        assertTrue(update(0));
+    }
+
+    // Places small enemies on every other cell of every other row, so no two
+    // share a region, and they damage a quarter of the frame at most
+    private void spreadEnemies(int count) {
+        spriteSize = 8;
+        update(0);
+        int perRow = IMAGE_SIZE / DamageTracker.CELL_SIZE / 2;
+        float[][] enemies = new float[count][];
+        for (int i = 0; i < count; i++) {
+            enemies[i] = new float[] { (i % perRow) * 2 * DamageTracker.CELL_SIZE + 2,
+                    (i / perRow) * 2 * DamageTracker.CELL_SIZE + 2 };
+        }
+        setEnemies(enemies);
+    }
+
+    private boolean update(double originX) {
+        return tracker.update(snapshot, IMAGE_SIZE, IMAGE_SIZE, originX, 0, 1, spriteSize);
+    }
+
+    // Places enemies with a hitbox the size of their sprite at the given
+    // positions
+    private void setEnemies(float[]... positions) {
+        snapshot.ensureEnemyCapacity(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            snapshot.enemyId[i] = i + 1;
+            snapshot.enemyX[i] = positions[i][0];
+            snapshot.enemyY[i] = positions[i][1];
+            snapshot.enemyHitboxX[i] = (int) positions[i][0];
+            snapshot.enemyHitboxY[i] = (int) positions[i][1];
+            snapshot.enemyHitboxWidth[i] = spriteSize;
+            snapshot.enemyHitboxHeight[i] = spriteSize;
+        }
+        snapshot.enemyCount = positions.length;
+    }
+
+    private void assertRegion(int region, int x, int y, int width, int height) {
+        assertEquals(x, tracker.getRegionX(region), "x");
+        assertEquals(y, tracker.getRegionY(region), "y");
+        assertEquals(width, tracker.getRegionWidth(region), "width");
+        assertEquals(height, tracker.getRegionHeight(region), "height");
+    }
+}
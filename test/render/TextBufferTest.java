@@ -0,0 +1,98 @@
+package render;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that numbers are appended with the same digits as Long.toString and
+ * fixed-point numbers like BigDecimal.toPlainString, that columns are padded
+ * and aligned, and that the buffer grows and clears as text is appended.
+ */
+class TextBufferTest {
+
+    @Test
+    void numbersAtTheLimitsAreAppendedLikeLongToString() {
+        long[] values = { 0, 1, -1, 9, 10, -10, 99, 100, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE,
+                Long.MIN_VALUE, Long.MIN_VALUE + 1 };
+        TextBuffer text = new TextBuffer(1);
+        for (long value : values) {
+            assertEquals(Long.toString(value), text(text.clear().append(value)));
+        }
+    }
+
+    @Test
+    void randomNumbersAreAppendedLikeLongToString() {
+        Random random = new Random(42);
+        TextBuffer text = new TextBuffer(4);
+        for (int i = 0; i < 100_000; i++) {
+            // Spread the values over every number of digits
+            long value = random.nextLong() >> random.nextInt(64);
+            assertEquals(Long.toString(value), text(text.clear().append(value)));
+        }
+    }
+
+    @Test
+    void fixedPointNumbersAreAppendedLikeBigDecimal() {
+        long[] values = { 0, 5, -5, 999, 1000, -1000, 123456, Long.MAX_VALUE, Long.MIN_VALUE };
+        TextBuffer text = new TextBuffer(1);
+        for (long value : values) {
+            for (int decimals = 0; decimals <= 20; decimals++) {
+                assertEquals(BigDecimal.valueOf(value, decimals).toPlainString(),
+                        text(text.clear().append(value, decimals)), value + " with " + decimals + " decimals");
+            }
+        }
+    }
+
+    @Test
+    void randomFixedPointNumbersAreAppendedLikeBigDecimal() {
+        Random random = new Random(42);
+        TextBuffer text = new TextBuffer(4);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            int decimals = random.nextInt(8);
+            assertEquals(BigDecimal.valueOf(value, decimals).toPlainString(),
+                    text(text.clear().append(value, decimals)));
+        }
+    }
+
+    @Test
+    void columnsArePaddedOnTheLeftAndAlignedOnTheRight() {
+        TextBuffer text = new TextBuffer(1);
+        text.append("Tick").padTo(6);
+        int start = text.length();
+        text.append(1234L, 3).alignRight(start, 8);
+        start = text.length();
+        text.append("too wide").alignRight(start, 4);
+
+        assertEquals("Tick     1.234too wide", text(text));
+    }
+
+    @Test
+    void textIsAppendedAfterWhatIsAlreadyThere() {
+        TextBuffer text = new TextBuffer(1);
+        text.append("Enemies: ").append(-42L).append(' ').append("/ ").append(1000L);
+
+        assertEquals("Enemies: -42 / 1000", text(text));
+    }
+
+    @Test
+    void clearingKeepsTheCharacters() {
+        TextBuffer text = new TextBuffer(1);
+        text.append("a long line of text");
+        char[] chars = text.getChars();
+
+        text.clear().append("short");
+
+        assertEquals("short", text(text));
+        assertSame(chars, text.getChars());
+    }
+
+    private static String text(TextBuffer text) {
+        return new String(text.getChars(), 0, text.length());
+    }
+}
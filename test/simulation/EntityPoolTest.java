@@ -0,0 +1,125 @@
+package simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import entity.Bullet;
+import entity.Enemy;
+
+/**
+ * Tests the statistics of the pool and that an enemy or a bullet taken from
+ * the pool keeps nothing of its previous life once it is reset.
+ */
+class EntityPoolTest {
+
+    @Test
+    void acquisitionsCountAsHitsOrMissesAndAFullPoolDropsReleases() {
+        EntityPool<Object> pool = new EntityPool<Object>(1);
+        Object first = new Object();
+        Object second = new Object();
+
+        assertNull(pool.acquire());
+        assertNull(pool.acquire());
+        pool.release(first);
+        pool.release(second);
+        assertSame(first, pool.acquire());
+        assertNull(pool.acquire());
+
+        assertEquals(1, pool.getHits());
+        assertEquals(3, pool.getMisses());
+        assertEquals(1, pool.getDropped());
+        assertEquals(0, pool.getFreeCount());
+    }
+
+    @Test
+    void theHighWaterMarkKeepsTheMostEntitiesInUseAtOnce() {
+        EntityPool<Object> pool = new EntityPool<Object>(8);
+        Object[] entities = new Object[5];
+        for (int i = 0; i < entities.length; i++) {
+            pool.acquire();
+            entities[i] = new Object();
+        }
+        for (Object entity : entities) {
+            pool.release(entity);
+        }
+        pool.acquire();
+        pool.acquire();
+
+        assertEquals(2, pool.getInUse());
+        assertEquals(5, pool.getHighWaterMark());
+        assertEquals(3, pool.getFreeCount());
+    }
+
+    @Test
+    void aRecycledEnemyIsResetToANewSpawn() {
+        World world = new World(16, 2, 21, 21, 60);
+        Enemy enemy = new Enemy(world);
+        enemy.setHealth(0.5f);
+        enemy.setSpeed(7);
+        enemy.setDamage(9);
+        enemy.setAttackSpeed(3);
+        enemy.setAttackCooldown(1);
+        enemy.setAttackReadyTick(-5);
+        enemy.setMoving(false);
+        enemy.setCommittedDamage(12);
+        for (int i = 0; i < 10; i++) {
+            world.tick();
+        }
+
+        world.getEnemyPool().release(enemy);
+        Enemy recycled = world.getEnemyPool().acquire();
+        recycled.reset();
+        Enemy fresh = new Enemy(world);
+
+        assertSame(enemy, recycled);
+        assertEquals(fresh.getHealth(), recycled.getHealth());
+        assertEquals(fresh.getSpeed(), recycled.getSpeed());
+        assertEquals(fresh.getDamage(), recycled.getDamage());
+        assertEquals(fresh.getAttackSpeed(), recycled.getAttackSpeed());
+        assertEquals(fresh.getAttackCooldown(), recycled.getAttackCooldown());
+        assertEquals(world.getTick(), recycled.getAttackReadyTick());
+        assertTrue(recycled.isMoving());
+        assertEquals(0, recycled.getCommittedDamage());
+        assertEquals(fresh.getHitbox().getSize(), recycled.getHitbox().getSize());
+    }
+
+    @Test
+    void aRecycledBulletIsResetToFlyAtItsNewTarget() {
+        World world = new World(16, 2, 21, 21, 60);
+        Enemy oldTarget = new Enemy(world);
+        oldTarget.setId(world.nextEntityId());
+        Enemy newTarget = new Enemy(world);
+        newTarget.setId(world.nextEntityId());
+        Bullet bullet = new Bullet(world, oldTarget);
+        bullet.setX(-100);
+        bullet.setY(-100);
+        bullet.setSpeed(1);
+        bullet.setDamage(50);
+        bullet.setTimeToLive(1);
+        bullet.setVisible(true);
+        bullet.setTarget(0, 0);
+
+        world.getBulletPool().release(bullet);
+        Bullet recycled = world.getBulletPool().acquire();
+        recycled.reset(newTarget);
+        Bullet fresh = new Bullet(world, newTarget);
+
+        assertSame(bullet, recycled);
+        assertSame(newTarget, recycled.getEnemy());
+        assertEquals(newTarget.getId(), recycled.getEnemyId());
+        assertEquals(fresh.getX(), recycled.getX());
+        assertEquals(fresh.getY(), recycled.getY());
+        assertEquals(fresh.getTargetX(), recycled.getTargetX());
+        assertEquals(fresh.getTargetY(), recycled.getTargetY());
+        assertEquals(fresh.getSpeed(), recycled.getSpeed());
+        assertEquals(fresh.getDamage(), recycled.getDamage());
+        assertEquals(fresh.getTimeToLive(), recycled.getTimeToLive());
+        assertFalse(recycled.isVisible());
+        assertEquals(fresh.getHitbox(), recycled.getHitbox());
+    }
+}
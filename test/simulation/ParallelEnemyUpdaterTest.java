@@ -0,0 +1,61 @@
+package simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that updating the enemies on a fork-join pool plays out exactly like
+ * updating them one by one.
+ */
+class ParallelEnemyUpdaterTest {
+    private static final long SEED = 42;
+    private static final int ENEMY_COUNT = 1500;
+    private static final int TICKS = 600;
+
+    private World sequential;
+    private World parallel;
+
+    @AfterEach
+    void tearDown() {
+        parallel.setEnemyUpdateParallelism(0);
+    }
+
+    @Test
+    void theParallelUpdateHashesTheSameAsTheSequentialOneOnEveryTick() {
+        sequential = createWorld();
+        sequential.setEnemyUpdateParallelism(0);
+        parallel = createWorld();
+        parallel.setEnemyUpdateParallelism(4);
+
+        int attackedTicks = 0;
+        for (int tick = 0; tick < TICKS; tick++) {
+            float health = sequential.getPlayer().getHealth();
+            sequential.tick();
+            parallel.tick();
+            assertEquals(sequential.stateHash(), parallel.stateHash(), "Hash after tick " + tick);
+            if (sequential.getPlayer().getHealth() < health) {
+                attackedTicks++;
+            }
+        }
+
+        // The enemies must have filled several chunks and reached the player,
+        // or the attack merge was never tested
+        assertTrue(sequential.getEnemyCount() > 1024, "Enemies left: " + sequential.getEnemyCount());
+        assertTrue(attackedTicks > 0, "The enemies never attacked");
+    }
+
+    // Returns a seeded world with enough enemies for several chunks, and a
+    // player that survives every attack
+    private static World createWorld() {
+        World world = new World(16, 2, 21, 21, 60);
+        world.setRandom(new GameRandom(SEED));
+        world.getPlayer().setHealth(1e6f);
+        for (int i = 0; i < ENEMY_COUNT; i++) {
+            world.spawnEnemy();
+        }
+        return world;
+    }
+}
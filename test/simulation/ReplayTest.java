@@ -0,0 +1,102 @@
+package simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a recorded session survives the file format and plays again with
+ * the same state hash on every tick, up to the game over that ends it, and
+ * that a recording of an older version is refused.
+ */
+class ReplayTest {
+    private static final long SEED = 42;
+    private static final int TICKS = 600;
+
+    @Test
+    void aRecordingOfObjectsPlaysAgainFromTheFile(@TempDir Path directory) throws IOException {
+        ReplayRecorder recorder = record(false);
+        Replay replay = roundTrip(recorder, directory);
+
+        assertSameRecording(recorder.getReplay(), replay);
+        assertEquals(-1, ReplayRunner.run(replay, replay.createWorld()));
+    }
+
+    @Test
+    void aRecordingOfAnEntityStorePlaysAgainFromTheFile(@TempDir Path directory) throws IOException {
+        ReplayRecorder recorder = record(true);
+        Replay replay = roundTrip(recorder, directory);
+
+        assertSameRecording(recorder.getReplay(), replay);
+        assertEquals(-1, ReplayRunner.run(replay, replay.createWorld()));
+    }
+
+    @Test
+    void aWorldWithAnotherSeedStopsMatchingOnTheFirstTick(@TempDir Path directory) throws IOException {
+        Replay replay = roundTrip(record(false), directory);
+        World world = replay.createWorld();
+        world.setRandom(new GameRandom(SEED + 1));
+
+        assertEquals(0, ReplayRunner.run(replay, world));
+    }
+
+    @Test
+    void aRecordingOfVersion1IsRefused(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("replay");
+        record(false).getReplay().write(path);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        // The version follows the magic number
+        bytes.putInt(Integer.BYTES, 1);
+        Files.write(path, bytes.array());
+
+        assertThrows(IOException.class, () -> Replay.read(path));
+    }
+
+    // Records a session with enemies spawned and towers placed along the way,
+    // until the player dies or the ticks run out
+    private static ReplayRecorder record(boolean useEntityStore) {
+        World world = new World(16, 2, 21, 21, 60, useEntityStore);
+        world.setRandom(new GameRandom(SEED));
+        ReplayRecorder recorder = new ReplayRecorder(world);
+        for (int tick = 0; tick < TICKS; tick++) {
+            if (tick % 7 == 0) {
+                recorder.input(Replay.Input.SPAWN_ENEMY, 0);
+            }
+            if (tick % 100 == 50) {
+                int col = tick / 100;
+                recorder.input(Replay.Input.PLACE_TOWER, (long) col << 32 | 3);
+            }
+            recorder.tick();
+        }
+        return recorder;
+    }
+
+    private static void assertSameRecording(Replay expected, Replay actual) {
+        assertTrue(expected.getTickCount() > 0);
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getInputCount(), actual.getInputCount());
+        for (int i = 0; i < expected.getInputCount(); i++) {
+            assertEquals(expected.getInputTick(i), actual.getInputTick(i));
+            assertEquals(expected.getInput(i), actual.getInput(i));
+            assertEquals(expected.getInputValue(i), actual.getInputValue(i));
+        }
+        assertEquals(expected.getTickCount(), actual.getTickCount());
+        for (int tick = 0; tick < expected.getTickCount(); tick++) {
+            assertEquals(expected.getHash(tick), actual.getHash(tick));
+        }
+    }
+
+    private static Replay roundTrip(ReplayRecorder recorder, Path directory) throws IOException {
+        Path path = directory.resolve("replay");
+        recorder.write(path);
+        return Replay.read(path);
+    }
+}
@@ -0,0 +1,118 @@
+package simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a save file reads back the newest checkpoint, and falls back to
+ * the one before it when the slot of the newest is damaged.
+ */
+class SaveFileTest {
+    // The header page before the two slots
+    private static final int HEADER_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void theNewestCheckpointIsRead() throws IOException {
+        SaveFile file = new SaveFile(directory.resolve("save.dat"));
+        file.write(state(100, 3));
+        file.write(state(200, 5));
+        file.write(state(300, 7));
+        file.close();
+
+        SaveState read = file.read();
+
+        assertEquals(300, read.tick);
+        assertEquals(7, read.enemyCount);
+        assertEquals(306, read.enemyId[6]);
+    }
+
+    @Test
+    void aDamagedNewestSlotFallsBackToTheOlderOne() throws IOException {
+        Path path = directory.resolve("save.dat");
+        SaveFile file = new SaveFile(path);
+        file.write(state(100, 3));
+        file.write(state(200, 5));
+        file.close();
+
+        // The second checkpoint went to the second slot
+        damage(path, 1);
+        SaveState read = file.read();
+
+        assertEquals(100, read.tick);
+        assertEquals(3, read.enemyCount);
+    }
+
+    @Test
+    void theNextCheckpointOverwritesTheDamagedSlot() throws IOException {
+        Path path = directory.resolve("save.dat");
+        SaveFile file = new SaveFile(path);
+        file.write(state(100, 3));
+        file.write(state(200, 5));
+        file.close();
+        damage(path, 1);
+
+        SaveFile reopened = new SaveFile(path);
+        reopened.write(state(300, 4));
+        reopened.close();
+
+        assertEquals(300, reopened.read().tick);
+        damage(path, 1);
+        assertEquals(100, reopened.read().tick);
+    }
+
+    @Test
+    void aFileWithoutACompleteCheckpointIsRejected() throws IOException {
+        Path path = directory.resolve("save.dat");
+        SaveFile file = new SaveFile(path);
+        file.write(state(100, 3));
+        file.write(state(200, 5));
+        file.close();
+
+        damage(path, 0);
+        damage(path, 1);
+
+        assertThrows(IOException.class, file::read);
+    }
+
+    // Returns a state at the given tick with enemies numbered from tick
+    private static SaveState state(long tick, int enemyCount) {
+        SaveState state = new SaveState();
+        state.tick = tick;
+        state.ticksPerSecond = 60;
+        state.ensureEnemyCapacity(enemyCount);
+        for (int i = 0; i < enemyCount; i++) {
+            state.enemyId[i] = tick + i;
+            state.enemyX[i] = i;
+            state.enemyY[i] = -i;
+            state.enemyHealth[i] = 10;
+        }
+        state.enemyCount = enemyCount;
+        return state;
+    }
+
+    // Flips a byte of the world block of a slot, as an interrupted checkpoint
+    // would leave it. The two slots have the same size and fill the file after
+    // the header.
+    private static void damage(Path path, int slot) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long slotBytes = (channel.size() - HEADER_BYTES) / 2;
+            long position = HEADER_BYTES + slot * slotBytes + 8;
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, position);
+            value.put(0, (byte) ~value.get(0)).rewind();
+            channel.write(value, position);
+        }
+    }
+}
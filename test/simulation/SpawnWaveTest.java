@@ -0,0 +1,67 @@
+package simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the burst ticks of a spawn wave around its first and last burst, and
+ * the size of bursts that ramp up.
+ */
+class SpawnWaveTest {
+
+    @Test
+    void theFirstBurstIsOnTheStartTick() {
+        SpawnWave wave = new SpawnWave(59, 60, 1, 0, 0);
+
+        assertEquals(59, wave.getNextBurstTick(0));
+        assertEquals(59, wave.getNextBurstTick(58));
+        assertEquals(59, wave.getNextBurstTick(59));
+    }
+
+    @Test
+    void aBurstTickIsItsOwnNextBurst() {
+        SpawnWave wave = new SpawnWave(10, 5, 1, 0, 0);
+
+        assertEquals(15, wave.getNextBurstTick(11));
+        assertEquals(15, wave.getNextBurstTick(15));
+        assertEquals(20, wave.getNextBurstTick(16));
+    }
+
+    @Test
+    void aFiniteWaveEndsAfterItsLastBurst() {
+        SpawnWave wave = new SpawnWave(0, 10, 2, 0, 3);
+
+        assertEquals(20, wave.getNextBurstTick(11));
+        assertEquals(20, wave.getNextBurstTick(20));
+        assertEquals(-1, wave.getNextBurstTick(21));
+        assertEquals(-1, wave.getNextBurstTick(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void anEndlessWaveNeverEnds() {
+        SpawnWave wave = new SpawnWave(0, 1, 1, 0, 0);
+
+        assertEquals(1_000_000_000_000L, wave.getNextBurstTick(1_000_000_000_000L));
+    }
+
+    @Test
+    void burstsGrowByTheRampAfterTheFirst() {
+        SpawnWave wave = new SpawnWave(100, 50, 3, 1.5f, 0);
+
+        assertEquals(3, wave.getBurstSize(100));
+        assertEquals(4, wave.getBurstSize(150));
+        assertEquals(6, wave.getBurstSize(200));
+        assertEquals(7, wave.getBurstSize(250));
+    }
+
+    @Test
+    void invalidWavesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SpawnWave(0, 0, 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SpawnWave(-1, 10, 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SpawnWave(0, 10, -1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SpawnWave(0, 10, 1, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SpawnWave(0, 10, 1, 0, -1));
+    }
+}
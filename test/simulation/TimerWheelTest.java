@@ -0,0 +1,124 @@
+package simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the order timers fire in, timers due more than one turn of the wheel
+ * ahead, and handlers that schedule and cancel timers while the wheel fires.
+ */
+class TimerWheelTest {
+    // Records every timer that fires as "target@tick"
+    private final List<String> fired = new ArrayList<>();
+    private final TimerWheel.Handler recorder = (type, target, tick) -> fired.add(target + "@" + tick);
+
+    @Test
+    void timersDueOnTheSameTickFireInTheOrderTheyWereScheduled() {
+        TimerWheel wheel = new TimerWheel(8);
+        wheel.schedule(3, 0, 1);
+        wheel.schedule(2, 0, 2);
+        wheel.schedule(3, 0, 3);
+        wheel.schedule(3, 0, 4);
+
+        wheel.advance(5, recorder);
+
+        assertEquals(List.of("2@2", "1@3", "3@3", "4@3"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void timersMoreThanOneTurnAheadWaitForTheirTurn() {
+        TimerWheel wheel = new TimerWheel(4);
+        // Ticks 1, 5, 9 and 13 all share a slot of a wheel of four slots
+        wheel.schedule(13, 0, 13);
+        wheel.schedule(5, 0, 5);
+        wheel.schedule(1, 0, 1);
+
+        wheel.advance(4, recorder);
+        assertEquals(List.of("1@1"), fired);
+        wheel.advance(12, recorder);
+        assertEquals(List.of("1@1", "5@5"), fired);
+        wheel.advance(13, recorder);
+        assertEquals(List.of("1@1", "5@5", "13@13"), fired);
+    }
+
+    @Test
+    void aPassedDeadlineFiresOnTheNextTick() {
+        TimerWheel wheel = new TimerWheel(4);
+        wheel.advance(9, recorder);
+
+        wheel.schedule(2, 0, 1);
+        wheel.advance(10, recorder);
+
+        assertEquals(List.of("1@10"), fired);
+    }
+
+    @Test
+    void cancellingATimerDueOnTheTickThatIsFiringStopsIt() {
+        TimerWheel wheel = new TimerWheel(8);
+        long[] later = new long[1];
+        wheel.schedule(4, 0, 1);
+        later[0] = wheel.schedule(4, 0, 2);
+        wheel.schedule(4, 0, 3);
+
+        wheel.advance(4, (type, target, tick) -> {
+            fired.add(target + "@" + tick);
+            if (target == 1) {
+                assertTrue(wheel.cancel(later[0]));
+            }
+        });
+
+        assertEquals(List.of("1@4", "3@4"), fired);
+        assertEquals(0, wheel.size());
+        assertFalse(wheel.cancel(later[0]));
+    }
+
+    @Test
+    void cancellingTheTimerThatIsFiringDoesNothing() {
+        TimerWheel wheel = new TimerWheel(8);
+        long[] handle = new long[1];
+        handle[0] = wheel.schedule(2, 0, 1);
+
+        wheel.advance(2, (type, target, tick) -> {
+            fired.add(target + "@" + tick);
+            assertFalse(wheel.cancel(handle[0]));
+        });
+
+        assertEquals(List.of("1@2"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void aTimerScheduledWhileFiringForTheSameTickFiresOnTheNextTick() {
+        TimerWheel wheel = new TimerWheel(4);
+        wheel.schedule(2, 0, 1);
+
+        wheel.advance(3, (type, target, tick) -> {
+            fired.add(target + "@" + tick);
+            if (target == 1) {
+                wheel.schedule(tick, 0, 2);
+            }
+        });
+
+        assertEquals(List.of("1@2", "2@3"), fired);
+    }
+
+    @Test
+    void aCancelledHandleDoesNotCancelTheTimerThatReusesItsPlace() {
+        TimerWheel wheel = new TimerWheel(8);
+        long stale = wheel.schedule(1, 0, 1);
+        assertTrue(wheel.cancel(stale));
+        wheel.schedule(1, 0, 2);
+
+        assertFalse(wheel.cancel(stale));
+        wheel.advance(1, recorder);
+
+        assertEquals(List.of("2@1"), fired);
+    }
+}
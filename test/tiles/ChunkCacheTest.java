@@ -0,0 +1,80 @@
+package tiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the cache drops the least recently used chunks, keeps the
+ * modified ones, and counts hits, misses and evictions like a LinkedHashMap in
+ * access order would.
+ */
+class ChunkCacheTest {
+
+    @Test
+    void theLeastRecentlyUsedChunkIsDropped() {
+        ChunkCache cache = new ChunkCache(new TileMap(12, 4), 4, 2);
+        ChunkCache.Chunk first = cache.get(0, 0);
+        ChunkCache.Chunk second = cache.get(1, 0);
+        assertSame(first, cache.get(0, 0));
+
+        cache.get(2, 0);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(first, cache.get(0, 0));
+        assertNotSame(second, cache.get(1, 0));
+    }
+
+    @Test
+    void aModifiedChunkIsKeptAndKeepsItsTiles() {
+        ChunkCache cache = new ChunkCache(new TileMap(12, 4), 4, 1);
+        cache.setTile(1, 1, 7);
+
+        cache.get(1, 0);
+        cache.get(2, 0);
+
+        assertEquals(7, cache.getTile(1, 1));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void randomAccessesMatchALinkedHashMapInAccessOrder() {
+        int chunkCols = 40;
+        int chunkRows = 30;
+        int capacity = 50;
+        ChunkCache cache = new ChunkCache(new TileMap(chunkCols * 2, chunkRows * 2), 2, capacity);
+        LinkedHashMap<Long, ChunkCache.Chunk> expected = new LinkedHashMap<Long, ChunkCache.Chunk>(16, 0.75f, true);
+        long expectedEvictions = 0;
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // Mostly chunks near a point that wanders, like a scrolling view
+            int chunkCol = Math.floorMod(i / 500 + random.nextInt(10), chunkCols);
+            int chunkRow = random.nextInt(chunkRows);
+            long key = (long) chunkCol << 32 | chunkRow;
+            ChunkCache.Chunk chunk = cache.get(chunkCol, chunkRow);
+            ChunkCache.Chunk previous = expected.get(key);
+            if (previous != null) {
+                assertSame(previous, chunk);
+                continue;
+            }
+            expected.put(key, chunk);
+            Iterator<ChunkCache.Chunk> iterator = expected.values().iterator();
+            while (expected.size() > capacity) {
+                iterator.next();
+                iterator.remove();
+                expectedEvictions++;
+            }
+        }
+
+        assertEquals(expected.size(), cache.size());
+        assertEquals(expectedEvictions, cache.getEvictions());
+        assertEquals(100_000, cache.getHits() + cache.getMisses());
+    }
+}
@@ -0,0 +1,117 @@
+package tiles;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that maps survive the binary format unchanged, with runs whose lengths
+ * take one, two and three varint bytes and with tiles of one and two bytes,
+ * and that broken files are rejected.
+ */
+class MapLoaderTest {
+
+    @Test
+    void runsOfEveryVarintSizeRoundTrip() throws IOException {
+        // Runs of 1, 127, 128, 16383 and 16384 tiles
+        short[] tiles = new short[1 + 127 + 128 + 16383 + 16384 + 1];
+        int i = 0;
+        i = fill(tiles, i, 1, 3);
+        i = fill(tiles, i, 127, 0);
+        i = fill(tiles, i, 128, 255);
+        i = fill(tiles, i, 16383, 1);
+        i = fill(tiles, i, 16384, 2);
+        fill(tiles, i, 1, 7);
+        TileMap map = new TileMap(tiles.length / 2, 2, tiles);
+
+        assertSameMap(map, roundTrip(map));
+    }
+
+    @Test
+    void tilesAbove255UseTwoBytes() throws IOException {
+        short[] tiles = { 0, 256, 256, TileMap.MAX_TILE, 1, 1 };
+        TileMap map = new TileMap(3, 2, tiles);
+
+        assertSameMap(map, roundTrip(map));
+    }
+
+    @Test
+    void aMapWithoutRepeatsRoundTrips() throws IOException {
+        short[] tiles = new short[200];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = (short) (i % 2 == 0 ? i : 1000 - i);
+        }
+        TileMap map = new TileMap(20, 10, tiles);
+
+        assertSameMap(map, roundTrip(map));
+    }
+
+    @Test
+    void anEmptyMapRoundTrips() throws IOException {
+        TileMap map = new TileMap(0, 0);
+
+        assertSameMap(map, roundTrip(map));
+    }
+
+    @Test
+    void aTextMapReadsTheSameFromTheBinaryFile(@TempDir Path directory) throws IOException {
+        TileMap text = MapLoader.parseText(new StringReader("0 0 1 1\n2 2 2 2\n\n3 0 0 0\n"));
+        Path path = directory.resolve("map" + MapLoader.BINARY_EXTENSION);
+
+        MapLoader.writeBinary(text, path);
+
+        assertEquals(4, text.getCols());
+        assertEquals(3, text.getRows());
+        assertSameMap(text, MapLoader.readBinary(path));
+    }
+
+    @Test
+    void aTruncatedMapIsRejected() {
+        ByteBuffer encoded = MapLoader.encode(new TileMap(4, 4));
+        encoded.limit(encoded.limit() - 1);
+
+        assertThrows(IOException.class, () -> MapLoader.decode(encoded));
+    }
+
+    @Test
+    void aRunPastTheEndOfTheMapIsRejected() {
+        short[] tiles = new short[8];
+        ByteBuffer encoded = MapLoader.encode(new TileMap(4, 2, tiles));
+        // One run of 8 tiles, made one longer than the map
+        encoded.put(encoded.limit() - 2, (byte) 9);
+
+        assertThrows(IOException.class, () -> MapLoader.decode(encoded));
+    }
+
+    @Test
+    void aFileOfAnotherKindIsRejected() {
+        ByteBuffer encoded = MapLoader.encode(new TileMap(2, 2));
+        encoded.put(0, (byte) 0);
+
+        assertThrows(IOException.class, () -> MapLoader.decode(encoded));
+    }
+
+    private static int fill(short[] tiles, int start, int length, int tile) {
+        Arrays.fill(tiles, start, start + length, (short) tile);
+        return start + length;
+    }
+
+    private static TileMap roundTrip(TileMap map) throws IOException {
+        return MapLoader.decode(MapLoader.encode(map));
+    }
+
+    private static void assertSameMap(TileMap expected, TileMap actual) {
+        assertEquals(expected.getCols(), actual.getCols());
+        assertEquals(expected.getRows(), actual.getRows());
+        assertArrayEquals(expected.getTiles(), actual.getTiles());
+    }
+}